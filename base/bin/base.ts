@@ -53,8 +53,9 @@ const springdemoServiceAccount = blueprint.getClusterInfo().cluster.addServiceAc
 });
 springdemoServiceAccount.role.addToPrincipalPolicy(new iam.PolicyStatement(
     {
-      actions: ['dynamodb:PutItem', 'dynamodb:GetItem', 'dynamodb:Scan'],
-      resources: ['arn:aws:dynamodb:' + process.env.CDK_DEFAULT_REGION + ':' + process.env.CDK_DEFAULT_ACCOUNT + ':table/springdemo-prod-customer'],
+      actions: ['dynamodb:PutItem', 'dynamodb:GetItem', 'dynamodb:Scan', 'dynamodb:Query', 'dynamodb:BatchWriteItem', 'dynamodb:DeleteItem', 'dynamodb:UpdateItem', 'dynamodb:BatchGetItem', 'dynamodb:DescribeTable'],
+      resources: ['arn:aws:dynamodb:' + process.env.CDK_DEFAULT_REGION + ':' + process.env.CDK_DEFAULT_ACCOUNT + ':table/springdemo-prod-customer',
+        'arn:aws:dynamodb:' + process.env.CDK_DEFAULT_REGION + ':' + process.env.CDK_DEFAULT_ACCOUNT + ':table/springdemo-prod-customer/index/*'],
     }
   ));
 springdemoServiceAccount.role.addToPrincipalPolicy(new iam.PolicyStatement(
@@ -71,8 +72,9 @@ const springdemoNativeIntServiceAccount = blueprint.getClusterInfo().cluster.add
 });
 springdemoNativeIntServiceAccount.role.addToPrincipalPolicy(new iam.PolicyStatement(
     {
-      actions: ['dynamodb:PutItem', 'dynamodb:GetItem', 'dynamodb:Scan'],
-      resources: ['arn:aws:dynamodb:' + process.env.CDK_DEFAULT_REGION + ':' + process.env.CDK_DEFAULT_ACCOUNT + ':table/springdemo-native-int-prod-customer'],
+      actions: ['dynamodb:PutItem', 'dynamodb:GetItem', 'dynamodb:Scan', 'dynamodb:Query', 'dynamodb:BatchWriteItem', 'dynamodb:DeleteItem', 'dynamodb:UpdateItem', 'dynamodb:BatchGetItem', 'dynamodb:DescribeTable'],
+      resources: ['arn:aws:dynamodb:' + process.env.CDK_DEFAULT_REGION + ':' + process.env.CDK_DEFAULT_ACCOUNT + ':table/springdemo-native-int-prod-customer',
+        'arn:aws:dynamodb:' + process.env.CDK_DEFAULT_REGION + ':' + process.env.CDK_DEFAULT_ACCOUNT + ':table/springdemo-native-int-prod-customer/index/*'],
     }
   ));
 springdemoNativeIntServiceAccount.role.addToPrincipalPolicy(new iam.PolicyStatement(
@@ -15,15 +15,57 @@
 
 package com.amazon.customerService.config;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 
 @Configuration
 public class AppConfig {
 
     public final static Integer APPLICATION_VERSION = 2;
 
-    @Value("${amazon.dynamodb.endpoint}")
-    private String amazonDynamoDBEndpoint;
+    @Value("${repository.executor.threads:0}")
+    private int repositoryExecutorThreads;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${scan.parallel.max-segments:16}")
+    private int scanMaxSegments;
+
+    /**
+     * Bounded pool used by the repositories to fan out DynamoDB calls (e.g. parallel scan segments).
+     * A thread count of 0 sizes the pool to the available cores.
+     * <p>
+     * With {@code spring.threads.virtual.enabled} (profile {@code virtual}) every task gets its own virtual
+     * thread instead; the fan-out is then bounded by the callers (batches) and the HTTP connection pool.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService repositoryExecutor() {
+        if (virtualThreads) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("repository-", 0).factory());
+        }
+        int threads = repositoryExecutorThreads > 0 ? repositoryExecutorThreads : Runtime.getRuntime().availableProcessors();
+        return Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("repository-"));
+    }
+
+    /**
+     * Runs the segments of parallel scans, with {@code scan.parallel.max-segments} threads (virtual threads
+     * with {@code spring.threads.virtual.enabled}). A segment blocks while its consumer is behind, so scans
+     * get their own pool rather than {@link #repositoryExecutor()}; concurrent scans may wait for each other,
+     * but never for batch reads and writes.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService scanExecutor() {
+        ThreadFactory threadFactory = virtualThreads
+                ? Thread.ofVirtual().name("scan-", 0).factory()
+                : new CustomizableThreadFactory("scan-");
+        return Executors.newFixedThreadPool(scanMaxSegments, threadFactory);
+    }
 
 }
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.config;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import javax.annotation.PostConstruct;
+
+import org.crac.Context;
+import org.crac.Core;
+import org.crac.Resource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import com.amazon.customerService.model.Customer;
+import com.amazon.customerService.model.metrics.ContainerMetric;
+import com.amazon.customerService.model.metrics.MetricWrapper;
+import com.amazon.customerService.model.metrics.PodMetric;
+import com.amazon.customerService.model.metrics.TaskMetric;
+import com.amazon.customerService.utils.JsonMappers;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs the JSON serializers before a checkpoint, so that a restored instance starts with their classes
+ * loaded, the mappers' serializer caches filled and the hot paths JIT-compiled. Each of the
+ * {@code json.warmup.iterations} iterations (0 disables the warm-up) writes a list of
+ * {@value #CUSTOMERS} customers as an array and as a stream, reads it back, and writes a
+ * {@link MetricWrapper}. With {@code server.compression.enabled}, the list is also compressed.
+ * Sample data only; no customer is read from or written to the table.
+ */
+@Slf4j
+@Component
+public class JsonWarmup implements Resource {
+
+    private static final int CUSTOMERS = 100;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Environment environment;
+
+    private int iterations;
+    private boolean compression;
+
+    @PostConstruct
+    public void init() {
+        loadConfig();
+        Core.getGlobalContext().register(this);
+    }
+
+    @Override
+    public void beforeCheckpoint(Context<? extends Resource> context) {
+        log.info("Executing beforeCheckpoint...");
+        if (iterations <= 0) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            warmUp();
+        } catch (IOException | RuntimeException exc) {
+            // A failed warm-up must not prevent the checkpoint, the first requests will simply be slower
+            log.warn("JSON warm-up failed: " + exc);
+            return;
+        }
+        log.info("JSON warm-up finished in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+                + " ms (" + iterations + " iterations)");
+    }
+
+    @Override
+    public void afterRestore(Context<? extends Resource> context) {
+        log.info("Executing afterRestore ...");
+        loadConfig();
+    }
+
+    private void warmUp() throws IOException {
+        List<Customer> customers = sampleCustomers();
+        MetricWrapper metrics = sampleMetrics();
+
+        for (int i = 0; i < iterations; i++) {
+            byte[] json = objectMapper.writeValueAsBytes(customers);
+            objectMapper.readValue(json, Customer[].class);
+            objectMapper.writeValueAsBytes(customers.get(i % CUSTOMERS));
+
+            // Same generator path as the streaming endpoints
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(OutputStream.nullOutputStream())) {
+                generator.writeStartArray();
+                for (Customer customer : customers) {
+                    generator.writeObject(customer);
+                }
+                generator.writeEndArray();
+            }
+
+            if (compression) {
+                try (GZIPOutputStream gzip = new GZIPOutputStream(OutputStream.nullOutputStream())) {
+                    gzip.write(json);
+                }
+            }
+
+            JsonMappers.WRITER.writeValueAsBytes(metrics);
+        }
+    }
+
+    private static List<Customer> sampleCustomers() {
+        List<Customer> customers = new ArrayList<>(CUSTOMERS);
+        for (int i = 0; i < CUSTOMERS; i++) {
+            Customer customer = new Customer();
+            customer.setId(UUID.randomUUID().toString());
+            customer.setName("Warm-up " + i);
+            customer.setEmail("warmup" + i + "@example.com");
+            customer.setAccountNumber(String.valueOf(100000 + i));
+            customer.setRegDate(new Date());
+            customers.add(customer);
+        }
+        return customers;
+    }
+
+    private static MetricWrapper sampleMetrics() {
+        Instant now = Instant.now();
+        return new MetricWrapper(new ContainerMetric(now, now), new TaskMetric(now, now, "warmup"),
+                new PodMetric(now, now, "warmup"), Duration.ofSeconds(1), now, AppConfig.APPLICATION_VERSION);
+    }
+
+    private void loadConfig() {
+        this.iterations = environment.getProperty("json.warmup.iterations", Integer.class, 200);
+        this.compression = environment.getProperty("server.compression.enabled", Boolean.class, false);
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.controller;
+
+import com.amazon.customerService.exception.InvalidBatchException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the elements of a JSON array one at a time. A malformed element ends the iteration, and
+ * {@link #getError()} then describes it. {@code null} elements are returned as {@code null}.
+ */
+final class ArrayElements<T> implements Iterator<T> {
+
+    private final JsonParser parser;
+    private final Class<T> type;
+
+    private T next;
+    private boolean fetched;
+    private boolean done;
+    private String error;
+
+    ArrayElements(JsonParser parser, Class<T> type) throws IOException {
+        this.parser = parser;
+        this.type = type;
+        try {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new InvalidBatchException("The request body has to be a JSON array");
+            }
+        } catch (JsonProcessingException exc) {
+            throw new InvalidBatchException("The request body has to be a JSON array: " + exc.getOriginalMessage());
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!fetched) {
+            fetch();
+        }
+        return !done;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        fetched = false;
+        return next;
+    }
+
+    String getError() {
+        return error;
+    }
+
+    private void fetch() {
+        fetched = true;
+        try {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.END_ARRAY) {
+                done = true;
+            } else if (token == null) {
+                done = true;
+                error = "unexpected end of input";
+            } else {
+                next = parser.readValueAs(type);
+            }
+        } catch (JsonProcessingException exc) {
+            done = true;
+            error = exc.getOriginalMessage();
+        } catch (IOException exc) {
+            throw new UncheckedIOException(exc);
+        }
+    }
+}
@@ -16,6 +16,7 @@
 package com.amazon.customerService.model;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbAttribute;
 import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbBean;
 import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbPartitionKey;
@@ -25,6 +26,7 @@ import java.util.Objects;
 
 @DynamoDbBean
 @JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonSerialize(using = CustomerSerializer.class)
 
 public class Customer {
 
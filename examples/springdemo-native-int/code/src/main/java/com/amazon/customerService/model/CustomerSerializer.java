@@ -0,0 +1,117 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.model;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Date;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.databind.util.StdDateFormat;
+
+/**
+ * Hand-written Jackson serializer for {@link Customer}, registered on the class so that every mapper uses
+ * it. It writes the same JSON as the reflective bean serializer: fields in declaration order, {@code null}
+ * fields omitted, and {@code regDate} formatted according to the mapper's date settings. It skips the
+ * per-property accessor calls and inclusion checks, and the field names are encoded once.
+ * <p>
+ * Most of the time went into the date: Jackson's default date format clones a {@code Calendar} per call
+ * and formats through it. With the default format and time zone, which is what Spring Boot configures
+ * unless {@code spring.jackson.date-format} or {@code spring.jackson.time-zone} are set, the same text is
+ * written directly into a {@code char[]} instead.
+ */
+public class CustomerSerializer extends StdSerializer<Customer> {
+
+    private static final SerializableString ID = new SerializedString("id");
+    private static final SerializableString NAME = new SerializedString("name");
+    private static final SerializableString EMAIL = new SerializedString("email");
+    private static final SerializableString ACCOUNT_NUMBER = new SerializedString("accountNumber");
+    private static final SerializableString REG_DATE = new SerializedString("regDate");
+
+    // Output of StdDateFormat in UTC, e.g. 2023-11-14T22:13:20.123+00:00
+    private static final char[] ISO_DATE_TEMPLATE = "0000-00-00T00:00:00.000+00:00".toCharArray();
+
+    // StdDateFormat uses the Julian calendar before 1582-10-15 and a different layout after year 9999
+    private static final long GREGORIAN_CUTOVER_MILLIS = -12219292800000L;
+    private static final long YEAR_10000_MILLIS = 253402300800000L;
+
+    public CustomerSerializer() {
+        super(Customer.class);
+    }
+
+    @Override
+    public void serialize(Customer customer, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject(customer);
+        writeString(gen, ID, customer.getId());
+        writeString(gen, NAME, customer.getName());
+        writeString(gen, EMAIL, customer.getEmail());
+        writeString(gen, ACCOUNT_NUMBER, customer.getAccountNumber());
+        if (customer.getRegDate() != null) {
+            gen.writeFieldName(REG_DATE);
+            writeDate(gen, provider, customer.getRegDate());
+        }
+        gen.writeEndObject();
+    }
+
+    private static void writeDate(JsonGenerator gen, SerializerProvider provider, Date date) throws IOException {
+        SerializationConfig config = provider.getConfig();
+        if (config.isEnabled(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                || config.getDateFormat() != StdDateFormat.instance || config.hasExplicitTimeZone()) {
+            provider.defaultSerializeDateValue(date, gen);
+            return;
+        }
+
+        long millis = date.getTime();
+        if (millis < GREGORIAN_CUTOVER_MILLIS || millis >= YEAR_10000_MILLIS) {
+            provider.defaultSerializeDateValue(date, gen);
+            return;
+        }
+
+        LocalDateTime time = LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000L),
+                (int) Math.floorMod(millis, 1000L) * 1_000_000, ZoneOffset.UTC);
+
+        char[] text = ISO_DATE_TEMPLATE.clone();
+        writeDigits(text, 0, 4, time.getYear());
+        writeDigits(text, 5, 2, time.getMonthValue());
+        writeDigits(text, 8, 2, time.getDayOfMonth());
+        writeDigits(text, 11, 2, time.getHour());
+        writeDigits(text, 14, 2, time.getMinute());
+        writeDigits(text, 17, 2, time.getSecond());
+        writeDigits(text, 20, 3, time.getNano() / 1_000_000);
+        gen.writeString(text, 0, text.length);
+    }
+
+    private static void writeDigits(char[] text, int offset, int length, int value) {
+        for (int i = offset + length - 1; i >= offset; i--) {
+            text[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    private static void writeString(JsonGenerator gen, SerializableString name, String value) throws IOException {
+        if (value != null) {
+            gen.writeFieldName(name);
+            gen.writeString(value);
+        }
+    }
+}
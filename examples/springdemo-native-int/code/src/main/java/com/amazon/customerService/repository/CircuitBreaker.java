@@ -0,0 +1,171 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.repository;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+import com.amazon.customerService.exception.CircuitOpenException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.exception.SdkClientException;
+
+/**
+ * Count-based circuit breaker for DynamoDB calls. It tracks the outcome of the last {@code windowSize}
+ * calls; once at least {@code minimumCalls} have been made and the share of failures reaches
+ * {@code failureRateThreshold}, it opens and rejects calls with a {@link CircuitOpenException} for
+ * {@code openDuration}. Then it lets {@code halfOpenCalls} trial calls through: if all of them succeed it
+ * closes again, otherwise it reopens.
+ * <p>
+ * Only errors that indicate an unhealthy dependency count as failures: client-side errors such as timeouts
+ * and I/O errors, throttling and 5xx responses. Other service errors (e.g. a failed condition) count as
+ * successes.
+ * <p>
+ * Metrics: {@code customer.circuit-breaker.state} (gauge, 0 closed, 1 open, 2 half-open) and
+ * {@code customer.circuit-breaker.rejected} (counter).
+ */
+@Slf4j
+class CircuitBreaker {
+
+    enum State {CLOSED, OPEN, HALF_OPEN}
+
+    private final boolean[] window;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final Duration openDuration;
+    private final int halfOpenCalls;
+    private final Counter rejected;
+
+    private State state = State.CLOSED;
+    private int calls;
+    private int failures;
+    private int next;
+    private long openedAt;
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+
+    CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold, Duration openDuration,
+                   int halfOpenCalls, MeterRegistry meterRegistry) {
+        this.window = new boolean[windowSize];
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDuration = openDuration;
+        this.halfOpenCalls = halfOpenCalls;
+
+        meterRegistry.gauge("customer.circuit-breaker.state", this, breaker -> breaker.state().ordinal());
+        this.rejected = meterRegistry.counter("customer.circuit-breaker.rejected");
+    }
+
+    <T> T execute(Supplier<T> call) {
+        acquirePermission();
+        T result;
+        try {
+            result = call.get();
+        } catch (RuntimeException | Error exc) {
+            onResult(isFailure(exc));
+            throw exc;
+        }
+        onResult(false);
+        return result;
+    }
+
+    synchronized State state() {
+        return state;
+    }
+
+    /**
+     * Closes the breaker and forgets all outcomes, e.g. after a restore, when the outcomes from before the
+     * checkpoint say nothing about the new environment.
+     */
+    synchronized void reset() {
+        transitionTo(State.CLOSED);
+    }
+
+    static boolean isFailure(Throwable exc) {
+        if (exc instanceof AwsServiceException serviceException) {
+            return serviceException.statusCode() >= 500 || serviceException.isThrottlingException();
+        }
+        return exc instanceof SdkClientException;
+    }
+
+    private synchronized void acquirePermission() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < openDuration.toNanos()) {
+                rejected.increment();
+                throw new CircuitOpenException(openDuration);
+            }
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermits == 0) {
+                rejected.increment();
+                throw new CircuitOpenException(openDuration);
+            }
+            halfOpenPermits--;
+        }
+    }
+
+    private synchronized void onResult(boolean failure) {
+        switch (state) {
+            case CLOSED -> {
+                if (calls == window.length) {
+                    failures -= window[next] ? 1 : 0;
+                } else {
+                    calls++;
+                }
+                window[next] = failure;
+                failures += failure ? 1 : 0;
+                next = (next + 1) % window.length;
+
+                if (calls >= minimumCalls && failures >= failureRateThreshold * calls) {
+                    log.warn("Opening DynamoDB circuit breaker: " + failures + " of the last " + calls
+                            + " calls failed");
+                    transitionTo(State.OPEN);
+                }
+            }
+            case HALF_OPEN -> {
+                if (failure) {
+                    transitionTo(State.OPEN);
+                } else if (++halfOpenSuccesses == halfOpenCalls) {
+                    log.info("Closing DynamoDB circuit breaker after " + halfOpenCalls + " successful trial calls");
+                    transitionTo(State.CLOSED);
+                }
+            }
+            case OPEN -> {
+                // Outcome of a call that was let through before the breaker opened
+            }
+        }
+    }
+
+    private void transitionTo(State newState) {
+        state = newState;
+        switch (newState) {
+            case CLOSED -> {
+                calls = 0;
+                failures = 0;
+                next = 0;
+            }
+            case OPEN -> openedAt = System.nanoTime();
+            case HALF_OPEN -> {
+                halfOpenPermits = halfOpenCalls;
+                halfOpenSuccesses = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * Warms up a freshly created DynamoDB client so that the first real request after a restore does not pay
+ * for credential resolution (e.g. the STS web identity exchange), DNS, TLS handshakes and pool growth:
+ * <ol>
+ * <li>{@code credentials}: resolves the credentials provider used by the client</li>
+ * <li>{@code describe-table}: one DescribeTable call, which opens the first connection</li>
+ * <li>{@code connections}: {@code connections} concurrent GetItem calls for a non-existent key, which
+ * forces that many pooled connections to be established</li>
+ * </ol>
+ * Each step is recorded as the {@value #WARMUP_TIMER} timer, tagged with the step name.
+ */
+@Slf4j
+class ConnectionWarmer {
+
+    static final String WARMUP_TIMER = "customer.restore.warmup";
+
+    private static final String WARMUP_KEY = "__warmup__";
+
+    private final ExecutorService executor;
+    private final MeterRegistry meterRegistry;
+
+    ConnectionWarmer(ExecutorService executor, MeterRegistry meterRegistry) {
+        this.executor = executor;
+        this.meterRegistry = meterRegistry;
+    }
+
+    void warmUp(DynamoDbClient client, AwsCredentialsProvider credentialsProvider, String tableName, int connections) {
+        long start = System.nanoTime();
+
+        step("credentials", credentialsProvider::resolveCredentials);
+        step("describe-table", () -> client.describeTable(builder -> builder.tableName(tableName)));
+        step("connections", () -> fillPool(client, tableName, connections));
+
+        log.info("Restore warm-up finished in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+                + " ms (" + connections + " connections)");
+    }
+
+    private void fillPool(DynamoDbClient client, String tableName, int connections) {
+        // All calls wait for each other before sending, so that none of them can reuse another's connection
+        CountDownLatch ready = new CountDownLatch(connections);
+        List<CompletableFuture<?>> calls = new ArrayList<>(connections);
+
+        for (int i = 0; i < connections; i++) {
+            calls.add(CompletableFuture.runAsync(() -> {
+                ready.countDown();
+                try {
+                    ready.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException exc) {
+                    Thread.currentThread().interrupt();
+                }
+                client.getItem(builder -> builder
+                        .tableName(tableName)
+                        .key(Map.of(CustomerRepository.ID_COLUMN, AttributeValue.fromS(WARMUP_KEY))));
+            }, executor));
+        }
+
+        CompletableFuture.allOf(calls.toArray(new CompletableFuture[0])).join();
+    }
+
+    private void step(String name, Runnable action) {
+        long start = System.nanoTime();
+        try {
+            action.run();
+        } catch (RuntimeException exc) {
+            // A failed warm-up must not prevent the restore, the first request will simply be slower
+            log.warn("Restore warm-up step " + name + " failed: " + exc);
+        }
+        long duration = System.nanoTime() - start;
+
+        Timer.builder(WARMUP_TIMER)
+                .tag("step", name)
+                .register(meterRegistry)
+                .record(duration, TimeUnit.NANOSECONDS);
+        log.info("Restore warm-up step " + name + " took " + TimeUnit.NANOSECONDS.toMillis(duration) + " ms");
+    }
+}
@@ -0,0 +1,26 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.repository;
+
+/**
+ * Generates the ids of new customers. The implementation is chosen with {@code id.generator}:
+ * {@code uuidv7} (the default, see {@link UuidV7Generator}) or {@code random} ({@code UUID.randomUUID()},
+ * see {@link RandomUuidGenerator}).
+ */
+public interface CustomerIdGenerator {
+
+    String newId();
+}
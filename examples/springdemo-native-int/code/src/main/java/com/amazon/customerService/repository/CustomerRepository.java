@@ -15,65 +15,168 @@
 
 package com.amazon.customerService.repository;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 import org.crac.Context;
 import org.crac.Core;
 import org.crac.Resource;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.env.Environment;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Repository;
 
+import com.amazon.customerService.exception.CustomerNotFoundException;
+import com.amazon.customerService.exception.PreconditionFailedException;
 import com.amazon.customerService.model.Customer;
+import com.amazon.customerService.model.CustomerPage;
+import com.amazon.customerService.model.TaggedCustomer;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
-import software.amazon.awssdk.auth.credentials.EnvironmentVariableCredentialsProvider;
-import software.amazon.awssdk.auth.credentials.WebIdentityTokenFileCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
 import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteRequest;
 import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
 import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
 import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
 
+/**
+ * DynamoDB implementation of {@link CustomerStore}, used unless {@code mode=memory}.
+ */
 @Slf4j
 @Repository
-public class CustomerRepository implements Resource {
+@ConditionalOnExpression("'${mode:}' != 'memory'")
+public class CustomerRepository implements Resource, CustomerStore {
 
     public static final String ID_COLUMN = "Id";
     public static final String NAME_COLUMN = "Name";
     public static final String EMAIL_COLUMN = "Email";
     public static final String ACCOUNT_NUMBER_COLUMN = "AccountNumber";
     public static final String REGISTRATION_DATE_COLUMN = "RegistrationDate";
-    private final SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSXXX");
+    public static final String EMAIL_INDEX = "Email-index";
+    public static final String ACCOUNT_NUMBER_INDEX = "AccountNumber-index";
+    private static final List<String> UPDATABLE_COLUMNS =
+            List.of(NAME_COLUMN, EMAIL_COLUMN, ACCOUNT_NUMBER_COLUMN, REGISTRATION_DATE_COLUMN);
+    private static final List<String> CUSTOMER_COLUMNS =
+            List.of(ID_COLUMN, NAME_COLUMN, EMAIL_COLUMN, ACCOUNT_NUMBER_COLUMN, REGISTRATION_DATE_COLUMN);
     
     private DynamoDbClient client;
+    private AwsCredentialsProvider credentialsProvider;
     private String tableName;
-    private String mode;
+    private boolean scanParallel;
+    private int scanSegments;
+    private int scanMaxSegments;
+    private int scanBufferSize;
+    private int batchMaxAttempts;
+    private long batchBackoffMillis;
+    private int batchReadMaxAttempts;
+    private long batchReadBackoffMillis;
+    private boolean warmupEnabled;
+    private int warmupConnections;
+    private boolean provisionTable;
+    private WriteBehindBuffer writeBehind;
+    private boolean coalescing;
+    private SingleFlight<String, Map<String, AttributeValue>> itemFlights;
+    private SingleFlight<String, List<Customer>> scanFlights;
+    private CircuitBreaker circuitBreaker;
+    private HedgedReads hedgedReads;
  
     @Autowired
     private Environment environment;
+
+    @Autowired
+    private CustomerIdGenerator idGenerator;
+
+    @Autowired
+    private DynamoDbClientFactory clientFactory;
+
+    @Autowired
+    @Qualifier("repositoryExecutor")
+    private ExecutorService repositoryExecutor;
+
+    @Autowired
+    @Qualifier("scanExecutor")
+    private ExecutorService scanExecutor;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private CustomerCache customerCache;
+
+    @Autowired
+    private CustomerSnapshotStore snapshot;
+
+    @Autowired
+    private CustomerIdFilter idFilter;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
     
     @PostConstruct
     public void init() {
     	loadConfig();
-    	this.client = createDynamoDbClient();
+    	this.credentialsProvider = clientFactory.credentialsProvider();
+    	this.client = clientFactory.createClient(credentialsProvider);
+    	this.itemFlights = new SingleFlight<>(meterRegistry.counter("customer.coalesced", "operation", "findById"));
+    	this.scanFlights = new SingleFlight<>(meterRegistry.counter("customer.coalesced", "operation", "findAll"));
+    	if (provisionTable) {
+    		new TableProvisioner(client).ensureTable(tableName);
+    	}
+    	if (environment.getProperty("write-behind.enabled", Boolean.class, false)) {
+    		this.writeBehind = createWriteBehindBuffer();
+    	}
+    	if (environment.getProperty("resilience.circuit-breaker.enabled", Boolean.class, false)) {
+    		this.circuitBreaker = createCircuitBreaker();
+    	}
+    	if (environment.getProperty("resilience.hedge.enabled", Boolean.class, false)) {
+    		this.hedgedReads = createHedgedReads();
+    	}
+    	idFilter.start(this::approximateItemCount, this::scanIds);
         Core.getGlobalContext().register(this);
     }
 
     @Override
     public void beforeCheckpoint(Context<? extends Resource> context) {
         log.info("Executing beforeCheckpoint...");
+        AvailabilityChangeEvent.publish(eventPublisher, this, ReadinessState.REFUSING_TRAFFIC);
+        if (writeBehind != null) {
+            writeBehind.flushAndPause();
+        }
+        idFilter.suspend();
         this.client.close();
     }
 
@@ -81,31 +184,218 @@ public class CustomerRepository implements Resource {
     public void afterRestore(Context<? extends Resource> context) {
         log.info("Executing afterRestore ...");
         loadConfig();
-        this.client = createDynamoDbClient();
+        this.credentialsProvider = clientFactory.credentialsProvider();
+        this.client = clientFactory.createClient(credentialsProvider);
+
+        if (warmupEnabled) {
+            new ConnectionWarmer(repositoryExecutor, meterRegistry)
+                    .warmUp(client, credentialsProvider, tableName, warmupConnections);
+        }
+        // Latencies and failures from before the checkpoint say nothing about the restore environment
+        if (circuitBreaker != null) {
+            circuitBreaker.reset();
+        }
+        if (hedgedReads != null) {
+            hedgedReads.reset();
+        }
+        if (writeBehind != null) {
+            writeBehind.resume();
+        }
+        idFilter.resume();
+        AvailabilityChangeEvent.publish(eventPublisher, this, ReadinessState.ACCEPTING_TRAFFIC);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (writeBehind != null) {
+            writeBehind.close();
+        }
+        if (hedgedReads != null) {
+            hedgedReads.close();
+        }
     }
 
-    public Customer save(final Customer customer) {
+    /**
+     * Stores {@code customer} under a newly generated id. With {@code write-behind.enabled} the item is
+     * buffered and written later through BatchWriteItem; {@code durable} then waits until it has been written.
+     */
+    @Override
+    public Customer save(final Customer customer, final boolean durable) {
 
-        customer.setId(UUID.randomUUID().toString());
+        customer.setId(idGenerator.newId());
 
         if (customer.getRegDate() == null) {
             customer.setRegDate(new Date());
         }
 
+        idFilter.add(customer.getId());
+
+        if (writeBehind != null) {
+            enqueuePut(CustomerCodec.toItem(customer), durable);
+            return customer;
+        }
+
         PutItemRequest putItemRequest = PutItemRequest.builder()
                 .tableName(this.tableName)
-                .item(convertPojoToMap(customer))
+                .item(CustomerCodec.toItem(customer))
                 .build();
 
-        client.putItem(putItemRequest);
+        guarded(() -> client.putItem(putItemRequest));
+        invalidate(customer.getId());
 
         return customer;
     }
 
+    /**
+     * Replaces the customer with a single conditional UpdateItem. With {@code write-behind.enabled} the new
+     * version is buffered instead, after checking that the customer exists; {@code durable} then waits until
+     * it has been written.
+     * <p>
+     * With {@code expectedETags}, the item is read (strongly consistent) and its ETag checked first, and the
+     * UpdateItem is conditioned on the item still being the same, so a write in between fails it as well.
+     * Buffered writes cannot be conditional: with {@code write-behind.enabled} the ETag is only checked
+     * against the latest version known to this process.
+     */
+    @Override
+    public Customer update(final Customer customer, final boolean durable, final Collection<String> expectedETags) {
+        if (writeBehind != null) {
+            checkBufferedETag(customer.getId(), expectedETags);
+            return bufferedUpdate(customer.getId(), customer, true, durable);
+        }
+        return updateItem(customer.getId(), customer, true, expectedItem(customer.getId(), expectedETags));
+    }
+
+    /**
+     * Patches the customer with a single conditional UpdateItem, or buffers it with
+     * {@code write-behind.enabled} (see {@link #update(Customer, boolean)}).
+     */
+    @Override
+    public Customer patch(final String id, final Customer changes, final boolean durable) {
+        return writeBehind != null
+                ? bufferedUpdate(id, changes, false, durable)
+                : updateItem(id, changes, false, null);
+    }
+
+    /**
+     * Writes all customers through BatchWriteItem (see {@link BatchWriter}). Customers without an id get a
+     * generated one.
+     *
+     * @throws IllegalStateException if some items were still unprocessed after all retries
+     */
+    @Override
+    public List<Customer> saveAll(final List<Customer> customers) {
+
+        log.debug("Save " + customers.size() + " customers in batches");
+
+        List<WriteRequest> unprocessed = batchWriter().write(putRequests(customers));
+        invalidateAll(customers.stream().map(Customer::getId).collect(Collectors.toList()));
+        if (!unprocessed.isEmpty()) {
+            throw new IllegalStateException(unprocessed.size() + " of " + customers.size()
+                    + " customers could not be written after " + batchMaxAttempts + " attempts");
+        }
+
+        return customers;
+    }
+
+    /**
+     * Like {@link #saveAll}, but a failed BatchWriteItem call only fails the customers it contained.
+     */
+    @Override
+    public Map<String, String> trySaveAll(final List<Customer> customers) {
+
+        log.debug("Try to save " + customers.size() + " customers in batches");
+
+        Map<String, String> failures = batchWriter().writeAll(putRequests(customers));
+        invalidateAll(customers.stream().map(Customer::getId).collect(Collectors.toList()));
+
+        return failures;
+    }
+
+    private List<WriteRequest> putRequests(final List<Customer> customers) {
+        List<WriteRequest> writeRequests = new ArrayList<>(customers.size());
+        for (Customer customer : customers) {
+            if (customer.getId() == null) {
+                customer.setId(idGenerator.newId());
+            }
+            if (customer.getRegDate() == null) {
+                customer.setRegDate(new Date());
+            }
+            idFilter.add(customer.getId());
+            writeRequests.add(WriteRequest.builder()
+                    .putRequest(PutRequest.builder().item(CustomerCodec.toItem(customer)).build())
+                    .build());
+        }
+        return writeRequests;
+    }
+
+    /**
+     * Looks the customer up in the write-behind buffer, the off-heap snapshot, the cache and finally
+     * DynamoDB, in that order. Ids that the {@link CustomerIdFilter} rules out are not looked up in the
+     * cache or DynamoDB.
+     */
+    @Override
     public Customer findById(final String id) {
+        TaggedCustomer tagged = findTaggedById(id);
+        return tagged != null ? tagged.getCustomer() : null;
+    }
+
+    /**
+     * Same lookup as {@link #findById}; the ETag of a cached customer comes from the cache.
+     */
+    @Override
+    public TaggedCustomer findTaggedById(final String id) {
 
         log.debug("Find customer with id: " + id);
 
+        if (writeBehind != null) {
+            WriteRequest pending = writeBehind.pending(id);
+            if (pending != null) {
+                // Read our own buffered write
+                return pending.putRequest() != null ? tag(CustomerCodec.fromItem(pending.putRequest().item())) : null;
+            }
+        }
+
+        Customer snapshotted = snapshot.get(id);
+        if (snapshotted != null) {
+            return tag(snapshotted);
+        }
+
+        if (!idFilter.mightContain(id)) {
+            return null;
+        }
+
+        CustomerCache.Entry cached = customerCache.get(id, this::loadItemCoalesced);
+        if (cached == null) {
+            idFilter.recordFalsePositive();
+            return null;
+        }
+
+        return new TaggedCustomer(CustomerCodec.fromItem(cached.item), cached.etag);
+    }
+
+    private static TaggedCustomer tag(final Customer customer) {
+        return new TaggedCustomer(customer, CustomerCodec.etag(customer));
+    }
+
+    /**
+     * Concurrent loads of the same id share one GetItem (with {@code coalescing.enabled}, the default). With
+     * the cache enabled, Caffeine already coalesces concurrent misses before they get here.
+     */
+    private Map<String, AttributeValue> loadItemCoalesced(final String id) {
+        return coalescing ? itemFlights.execute(id, this::loadItem) : loadItem(id);
+    }
+
+    private Map<String, AttributeValue> loadItem(final String id) {
+        long generation = snapshot.generation();
+        Map<String, AttributeValue> item = getItem(id);
+        if (item != null && snapshot.isEnabled()) {
+            snapshot.put(CustomerCodec.fromItem(item), generation);
+        }
+        return item;
+    }
+
+    private Map<String, AttributeValue> getItem(final String id) {
+
         Map<String, AttributeValue> key = new HashMap<>();
         key.put(ID_COLUMN, AttributeValue.builder().s(id).build());
 
@@ -114,32 +404,75 @@ public class CustomerRepository implements Resource {
                 .key(key)
                 .build();
 
-        GetItemResponse item = client.getItem(getItemRequest);
-        Customer customer = null;
-        if (item.hasItem()) {
-            Map<String, AttributeValue> itemAttr = item.item();
-            customer = convertMapToPojo(itemAttr);
-        }
+        GetItemResponse item = guarded(() -> hedgedReads != null
+                ? hedgedReads.execute(() -> client.getItem(getItemRequest))
+                : client.getItem(getItemRequest));
 
-        return customer;
+        return item.hasItem() ? item.item() : null;
     }
 
-    public List<Customer> findAll() {
+    /**
+     * Looks up customers by id through BatchGetItem (see {@link BatchReader}), so N ids cost about
+     * N/100 round trips. Duplicate ids are collapsed; ids that do not exist are omitted from the result.
+     */
+    @Override
+    public List<Customer> findAllById(final Collection<String> ids) {
 
-        log.debug("Find all customers");
-        List<Customer> customerList = new ArrayList<>();
+        log.debug("Find " + ids.size() + " customers by id");
 
-        ScanRequest scanRequest = ScanRequest.builder().
-                tableName(this.tableName).
-                build();
+        List<Map<String, AttributeValue>> keys = new ArrayList<>(ids.size());
+        for (String id : new LinkedHashSet<>(ids)) {
+            keys.add(Map.of(ID_COLUMN, AttributeValue.builder().s(id).build()));
+        }
 
-        List<Map<String, AttributeValue>> list = client.scan(scanRequest).items();
+        List<Map<String, AttributeValue>> items = batchReader().read(keys);
 
-        for (Map<String, AttributeValue> item : list) {
-            Customer customer = convertMapToPojo(item);
-            customerList.add(customer);
+        List<Customer> customerList = new ArrayList<>(items.size());
+        for (Map<String, AttributeValue> item : items) {
+            customerList.add(CustomerCodec.fromItem(item));
         }
 
+        return customerList;
+    }
+
+    /**
+     * Queries the {@value #EMAIL_INDEX} global secondary index. Index reads are eventually consistent, so a
+     * customer written a moment ago may not be returned yet.
+     */
+    @Override
+    public List<Customer> findByEmail(final String email) {
+
+        log.debug("Find customers with email: " + email);
+
+        return queryIndex(EMAIL_INDEX, EMAIL_COLUMN, email);
+    }
+
+    /**
+     * Queries the {@value #ACCOUNT_NUMBER_INDEX} global secondary index. Index reads are eventually
+     * consistent, so a customer written a moment ago may not be returned yet.
+     */
+    @Override
+    public List<Customer> findByAccountNumber(final String accountNumber) {
+
+        log.debug("Find customers with account number: " + accountNumber);
+
+        return queryIndex(ACCOUNT_NUMBER_INDEX, ACCOUNT_NUMBER_COLUMN, accountNumber);
+    }
+
+    /**
+     * Scans all customers. Concurrent calls share one scan (with {@code coalescing.enabled}, the default)
+     * and each get their own copies of the customers.
+     */
+    @Override
+    public List<Customer> findAll() {
+
+        log.debug("Find all customers");
+        List<Customer> customerList = coalescing
+                ? scanFlights.execute(tableName, table -> scanAll()).stream()
+                        .map(CustomerCodec::copy)
+                        .collect(Collectors.toList())
+                : scanAll();
+
         log.debug("Found customers: ");
         for (Customer customer : customerList
         ) {
@@ -149,69 +482,506 @@ public class CustomerRepository implements Resource {
         return customerList;
     }
 
-    public void deleteById(String id) {
+    private List<Customer> scanAll() {
+        try (Stream<Customer> customers = streamAllConfigured()) {
+            return customers.collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Reads one page with a single Scan call ({@code Limit}, {@code ExclusiveStartKey}). Pages follow the
+     * table's scan order, which is stable but not meaningful (by hash of the id). Besides {@code limit}, a
+     * page is cut off after 1 MB of items; DynamoDB then returns a next cursor anyway.
+     */
+    @Override
+    public CustomerPage findPage(final String cursor, final int limit) {
+
+        log.debug("Find customers page of " + limit + " after cursor: " + cursor);
+
+        ScanRequest.Builder scanRequest = ScanRequest.builder()
+                .tableName(this.tableName)
+                .limit(limit);
+        if (cursor != null) {
+            scanRequest.exclusiveStartKey(Map.of(ID_COLUMN, AttributeValue.fromS(PageCursor.decode(cursor))));
+        }
+
+        ScanResponse response = guarded(() -> client.scan(scanRequest.build()));
+
+        List<Customer> customerList = response.items().stream()
+                .map(CustomerCodec::fromItem)
+                .collect(Collectors.toList());
+        String nextCursor = response.hasLastEvaluatedKey() && !response.lastEvaluatedKey().isEmpty()
+                ? PageCursor.encode(response.lastEvaluatedKey().get(ID_COLUMN).s())
+                : null;
+
+        return new CustomerPage(customerList, nextCursor);
+    }
+
+    /**
+     * Lazily scans the whole table. The next page is only requested (via LastEvaluatedKey) once the
+     * items of the current page have been consumed, so callers can process any table size in constant memory.
+     */
+    @Override
+    public Stream<Customer> streamAll() {
+
+        log.debug("Stream all customers");
+
+        ScanRequest scanRequest = ScanRequest.builder().
+                tableName(this.tableName).
+                build();
+
+        return snapshotting(client.scanPaginator(scanRequest).items().stream()
+                .map(CustomerCodec::fromItem));
+    }
+
+    /**
+     * Scans the table with {@code totalSegments} parallel segments and merges the results into one
+     * stream. Item order is not defined. The time spent per segment is recorded under the
+     * {@value SegmentedScan#SEGMENT_TIMER} metric.
+     *
+     * @param totalSegments between 1 and {@code scan.parallel.max-segments}
+     */
+    @Override
+    public Stream<Customer> streamAllParallel(int totalSegments) {
+
+        log.debug("Stream all customers using " + totalSegments + " segments");
+
+        if (totalSegments < 1 || totalSegments > scanMaxSegments) {
+            throw new IllegalArgumentException("Expected 1-" + scanMaxSegments + " segments, got " + totalSegments);
+        }
+
+        return snapshotting(new SegmentedScan(client, tableName, totalSegments, scanBufferSize, scanExecutor,
+                meterRegistry)
+                .stream()
+                .map(CustomerCodec::fromItem));
+    }
+
+    /**
+     * Streams all customers using the configured scan mode ({@code scan.parallel.enabled}).
+     */
+    @Override
+    public Stream<Customer> streamAllConfigured() {
+        return scanParallel ? streamAllParallel(scanSegments) : streamAll();
+    }
+
+    /**
+     * Scans only the ids, page by page like {@link #streamAll()}.
+     */
+    @Override
+    public Stream<String> streamAllIds() {
+
+        log.debug("Stream all customer ids");
+
+        return scanIds();
+    }
+
+    /**
+     * With {@code expectedETags}, the DeleteItem is conditioned like {@link #update(Customer, boolean, Collection)}.
+     */
+    @Override
+    public void deleteById(final String id, final Collection<String> expectedETags) {
 
         log.debug("Delete customer with id: " + id);
 
+        // Not short-circuited by the id filter, which does not know ids created by other processes
         Map<String, AttributeValue> key = new HashMap<>();
         key.put(ID_COLUMN, AttributeValue.builder().s(id).build());
 
-        DeleteItemRequest deleteItemRequest = DeleteItemRequest.builder()
+        if (writeBehind != null) {
+            checkBufferedETag(id, expectedETags);
+            writeBehind.enqueue(id, WriteRequest.builder()
+                    .deleteRequest(DeleteRequest.builder().key(key).build())
+                    .build());
+            invalidate(id);
+            return;
+        }
+
+        DeleteItemRequest.Builder deleteItemRequest = DeleteItemRequest.builder()
                 .tableName(this.tableName)
-                .key(key)
-                .build();
+                .key(key);
+
+        Map<String, AttributeValue> expected = expectedItem(id, expectedETags);
+        if (expected != null) {
+            Map<String, String> names = new HashMap<>();
+            Map<String, AttributeValue> values = new HashMap<>();
+            deleteItemRequest.conditionExpression(unchangedCondition(expected, names, values))
+                    .expressionAttributeNames(names)
+                    .expressionAttributeValues(values);
+        }
 
-        client.deleteItem(deleteItemRequest);
+        try {
+            guarded(() -> client.deleteItem(deleteItemRequest.build()));
+        } catch (ConditionalCheckFailedException exc) {
+            throw new PreconditionFailedException(id);
+        } finally {
+            invalidate(id);
+        }
     }
 
-    private Map<String, AttributeValue> convertPojoToMap(final Customer customer) {
-        Map<String, AttributeValue> item = new HashMap<>();
+    /**
+     * Deletes through BatchWriteItem like {@link #trySaveAll}. Duplicate ids are collapsed, as DynamoDB
+     * rejects a batch that contains a key twice. Pending write-behind writes are flushed first, so that none
+     * of them puts a deleted customer back afterwards.
+     */
+    @Override
+    public Map<String, String> tryDeleteAll(final Collection<String> ids) {
 
-        item.put(ID_COLUMN, AttributeValue.builder().s(customer.getId()).build());
-        item.put(NAME_COLUMN, AttributeValue.builder().s(customer.getName()).build());
-        item.put(EMAIL_COLUMN, AttributeValue.builder().s(customer.getEmail()).build());
-        item.put(ACCOUNT_NUMBER_COLUMN, AttributeValue.builder().s(customer.getAccountNumber()).build());
-        item.put(REGISTRATION_DATE_COLUMN, AttributeValue.builder().s(sdf.format(customer.getRegDate())).build());
+        log.debug("Try to delete " + ids.size() + " customers in batches");
 
-        return item;
+        if (writeBehind != null) {
+            writeBehind.flush();
+        }
+
+        List<String> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        List<WriteRequest> writeRequests = new ArrayList<>(distinctIds.size());
+        for (String id : distinctIds) {
+            writeRequests.add(WriteRequest.builder()
+                    .deleteRequest(DeleteRequest.builder().key(Map.of(ID_COLUMN, AttributeValue.fromS(id))).build())
+                    .build());
+        }
+
+        Map<String, String> failures = batchWriter().writeAll(writeRequests);
+        invalidateAll(distinctIds);
+
+        return failures;
     }
 
-    private Customer convertMapToPojo(final Map<String, AttributeValue> item) {
-        Customer customer = new Customer();
+    /**
+     * @param expected if not {@code null}, the item as it has to be for the update to succeed
+     */
+    private Customer updateItem(final String id, final Customer changes, final boolean removeMissing,
+                                final Map<String, AttributeValue> expected) {
+
+        log.debug("Update customer with id: " + id);
+
+        Map<String, AttributeValue> attributes = CustomerCodec.toItem(changes);
+        Map<String, String> names = new HashMap<>();
+        Map<String, AttributeValue> values = new HashMap<>();
+        List<String> setActions = new ArrayList<>();
+        List<String> removeActions = new ArrayList<>();
+
+        for (String column : UPDATABLE_COLUMNS) {
+            AttributeValue value = attributes.get(column);
+            if (value != null) {
+                names.put("#" + column, column);
+                values.put(":" + column, value);
+                setActions.add("#" + column + " = :" + column);
+            } else if (removeMissing && !REGISTRATION_DATE_COLUMN.equals(column)) {
+                names.put("#" + column, column);
+                removeActions.add("#" + column);
+            }
+        }
+
+        if (setActions.isEmpty() && removeActions.isEmpty()) {
+            Customer existing = findById(id);
+            if (existing == null) {
+                throw new CustomerNotFoundException(id);
+            }
+            return existing;
+        }
 
-        customer.setAccountNumber(item.get(ACCOUNT_NUMBER_COLUMN).s());
-        customer.setEmail(item.get(EMAIL_COLUMN).s());
-        customer.setAccountNumber(item.get(ACCOUNT_NUMBER_COLUMN).s());
-        customer.setId(item.get(ID_COLUMN).s());
+        StringBuilder updateExpression = new StringBuilder();
+        if (!setActions.isEmpty()) {
+            updateExpression.append("SET ").append(String.join(", ", setActions));
+        }
+        if (!removeActions.isEmpty()) {
+            updateExpression.append(" REMOVE ").append(String.join(", ", removeActions));
+        }
+
+        String condition;
+        if (expected != null) {
+            condition = unchangedCondition(expected, names, values);
+        } else {
+            names.put("#" + ID_COLUMN, ID_COLUMN);
+            condition = "attribute_exists(#" + ID_COLUMN + ")";
+        }
 
-        Date registrationDate = null;
+        UpdateItemRequest.Builder updateItemRequest = UpdateItemRequest.builder()
+                .tableName(this.tableName)
+                .key(Map.of(ID_COLUMN, AttributeValue.fromS(id)))
+                .updateExpression(updateExpression.toString().trim())
+                .conditionExpression(condition)
+                .expressionAttributeNames(names)
+                .returnValues(ReturnValue.ALL_NEW);
+        if (!values.isEmpty()) {
+            updateItemRequest.expressionAttributeValues(values);
+        }
 
+        UpdateItemResponse response;
         try {
-            registrationDate = sdf.parse(item.get(REGISTRATION_DATE_COLUMN).s());
-        } catch (ParseException exc) {
-            log.error(exc.toString());
+            response = guarded(() -> client.updateItem(updateItemRequest.build()));
+        } catch (ConditionalCheckFailedException exc) {
+            if (expected != null) {
+                throw new PreconditionFailedException(id);
+            }
+            throw new CustomerNotFoundException(id);
+        } finally {
+            invalidate(id);
         }
 
-        customer.setRegDate(registrationDate);
+        return CustomerCodec.fromItem(response.attributes());
+    }
 
-        return customer;
+    /**
+     * Reads the item, strongly consistent and past all caches, and checks its ETag.
+     *
+     * @return the item, or {@code null} without {@code expectedETags}
+     * @throws PreconditionFailedException if the item does not exist or its ETag does not match
+     */
+    private Map<String, AttributeValue> expectedItem(final String id, final Collection<String> expectedETags) {
+        if (expectedETags == null) {
+            return null;
+        }
+
+        GetItemRequest getItemRequest = GetItemRequest.builder()
+                .tableName(this.tableName)
+                .key(Map.of(ID_COLUMN, AttributeValue.fromS(id)))
+                .consistentRead(true)
+                .build();
+        GetItemResponse response = guarded(() -> client.getItem(getItemRequest));
+
+        if (!response.hasItem() || !tag(CustomerCodec.fromItem(response.item())).matchesAny(expectedETags)) {
+            throw new PreconditionFailedException(id);
+        }
+        return response.item();
     }
 
-    private DynamoDbClient createDynamoDbClient() {
-    	log.info("Mode (through Environment Abstraction):" + this.mode);
-        if ("ci".equals(this.mode)) {
-            return DynamoDbClient.builder()
-                    .credentialsProvider(EnvironmentVariableCredentialsProvider.create())
-                    .build();
+    /**
+     * Condition that the item still has exactly the customer attributes of {@code expected}.
+     */
+    private static String unchangedCondition(final Map<String, AttributeValue> expected,
+                                             final Map<String, String> names,
+                                             final Map<String, AttributeValue> values) {
+        List<String> conditions = new ArrayList<>();
+        for (String column : CUSTOMER_COLUMNS) {
+            names.put("#" + column, column);
+            AttributeValue value = expected.get(column);
+            if (value != null) {
+                values.put(":expected" + column, value);
+                conditions.add("#" + column + " = :expected" + column);
+            } else {
+                conditions.add("attribute_not_exists(#" + column + ")");
+            }
         }
+        return String.join(" AND ", conditions);
+    }
 
-        return DynamoDbClient.builder()
-                .credentialsProvider(WebIdentityTokenFileCredentialsProvider.create())
+    private void checkBufferedETag(final String id, final Collection<String> expectedETags) {
+        if (expectedETags == null) {
+            return;
+        }
+        TaggedCustomer current = findTaggedById(id);
+        if (current == null || !current.matchesAny(expectedETags)) {
+            throw new PreconditionFailedException(id);
+        }
+    }
+
+    private List<Customer> queryIndex(final String indexName, final String column, final String value) {
+
+        QueryRequest queryRequest = QueryRequest.builder()
+                .tableName(this.tableName)
+                .indexName(indexName)
+                .keyConditionExpression("#key = :value")
+                .expressionAttributeNames(Map.of("#key", column))
+                .expressionAttributeValues(Map.of(":value", AttributeValue.fromS(value)))
                 .build();
+
+        return guarded(() -> client.queryPaginator(queryRequest).items().stream()
+                .map(CustomerCodec::fromItem)
+                .collect(Collectors.toList()));
     }
-    
+
+    /**
+     * Runs a DynamoDB call through the circuit breaker, if enabled. Scans and batch operations are not
+     * guarded, as they consist of many calls and are not on the latency-critical path.
+     */
+    private <T> T guarded(final Supplier<T> call) {
+        return circuitBreaker != null ? circuitBreaker.execute(call) : call.get();
+    }
+
+    private Customer bufferedUpdate(final String id, final Customer changes, final boolean replace,
+                                    final boolean durable) {
+
+        log.debug("Buffer update of customer with id: " + id);
+
+        Customer existing = findById(id);
+        if (existing == null) {
+            throw new CustomerNotFoundException(id);
+        }
+        Map<String, AttributeValue> current = CustomerCodec.toItem(existing);
+
+        Map<String, AttributeValue> item;
+        if (replace) {
+            item = CustomerCodec.toItem(changes);
+            if (!item.containsKey(REGISTRATION_DATE_COLUMN) && current.containsKey(REGISTRATION_DATE_COLUMN)) {
+                item.put(REGISTRATION_DATE_COLUMN, current.get(REGISTRATION_DATE_COLUMN));
+            }
+        } else {
+            item = new HashMap<>(current);
+            item.putAll(CustomerCodec.toItem(changes));
+        }
+        item.put(ID_COLUMN, AttributeValue.fromS(id));
+
+        enqueuePut(item, durable);
+
+        return CustomerCodec.fromItem(item);
+    }
+
+    private void enqueuePut(final Map<String, AttributeValue> item, final boolean durable) {
+        String id = item.get(ID_COLUMN).s();
+        CompletableFuture<Void> ack = writeBehind.enqueue(id, WriteRequest.builder()
+                .putRequest(PutRequest.builder().item(item).build())
+                .build());
+        invalidate(id);
+
+        if (durable) {
+            try {
+                ack.join();
+            } catch (CompletionException exc) {
+                throw exc.getCause() instanceof RuntimeException ? (RuntimeException) exc.getCause() : exc;
+            }
+        }
+    }
+
+    private WriteBehindBuffer createWriteBehindBuffer() {
+        int capacity = environment.getProperty("write-behind.capacity", Integer.class, 10_000);
+        int flushSize = environment.getProperty("write-behind.flush-size", Integer.class, BatchWriter.MAX_BATCH_SIZE);
+        Duration flushInterval = environment.getProperty("write-behind.flush-interval", Duration.class,
+                Duration.ofMillis(50));
+        Duration offerTimeout = environment.getProperty("write-behind.offer-timeout", Duration.class,
+                Duration.ofSeconds(1));
+        int maxAttempts = environment.getProperty("write-behind.max-attempts", Integer.class, 3);
+
+        log.info("Write-behind enabled (capacity " + capacity + ", flush size " + flushSize + ", flush interval "
+                + flushInterval + ")");
+
+        return new WriteBehindBuffer(requests -> {
+            List<WriteRequest> unprocessed = batchWriter().write(requests);
+            // A scan may have put the previous version into the snapshot while the write was pending
+            for (WriteRequest request : requests) {
+                snapshot.remove(BatchWriter.idOf(request));
+            }
+            return unprocessed;
+        }, capacity, flushSize, flushInterval, offerTimeout, maxAttempts, meterRegistry);
+    }
+
+    private CircuitBreaker createCircuitBreaker() {
+        int windowSize = environment.getProperty("resilience.circuit-breaker.window-size", Integer.class, 100);
+        int minimumCalls = environment.getProperty("resilience.circuit-breaker.minimum-calls", Integer.class, 20);
+        double failureRate = environment.getProperty("resilience.circuit-breaker.failure-rate", Double.class, 0.5);
+        Duration openDuration = environment.getProperty("resilience.circuit-breaker.open-duration", Duration.class,
+                Duration.ofSeconds(10));
+        int halfOpenCalls = environment.getProperty("resilience.circuit-breaker.half-open-calls", Integer.class, 5);
+
+        log.info("Circuit breaker enabled (window " + windowSize + ", failure rate " + failureRate + ", open for "
+                + openDuration + ")");
+
+        return new CircuitBreaker(windowSize, minimumCalls, failureRate, openDuration, halfOpenCalls, meterRegistry);
+    }
+
+    private HedgedReads createHedgedReads() {
+        double percentile = environment.getProperty("resilience.hedge.percentile", Double.class, 0.95);
+        Duration minDelay = environment.getProperty("resilience.hedge.min-delay", Duration.class,
+                Duration.ofMillis(5));
+        Duration maxDelay = environment.getProperty("resilience.hedge.max-delay", Duration.class,
+                Duration.ofMillis(500));
+        double budgetRatio = environment.getProperty("resilience.hedge.budget.ratio", Double.class, 0.1);
+        int budgetMaxTokens = environment.getProperty("resilience.hedge.budget.max-tokens", Integer.class, 10);
+
+        log.info("Hedged reads enabled (p" + percentile * 100 + " delay between " + minDelay + " and " + maxDelay
+                + ", budget " + budgetRatio + ")");
+
+        ExecutorService executor;
+        if (environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false)) {
+            executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("customer-hedge-", 0).factory());
+        } else {
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("customer-hedge-");
+            threadFactory.setDaemon(true);
+            executor = Executors.newCachedThreadPool(threadFactory);
+        }
+
+        return new HedgedReads(executor, new RetryBudget(budgetRatio, budgetMaxTokens), percentile, minDelay,
+                maxDelay, meterRegistry);
+    }
+
+    /**
+     * Scans only the ids, for {@link CustomerIdFilter}.
+     */
+    private Stream<String> scanIds() {
+        ScanRequest scanRequest = ScanRequest.builder()
+                .tableName(this.tableName)
+                .projectionExpression("#id")
+                .expressionAttributeNames(Map.of("#id", ID_COLUMN))
+                .build();
+
+        return client.scanPaginator(scanRequest).items().stream().map(item -> item.get(ID_COLUMN).s());
+    }
+
+    private long approximateItemCount() {
+        Long itemCount = client.describeTable(request -> request.tableName(this.tableName)).table().itemCount();
+        return itemCount != null ? itemCount : 0;
+    }
+
+    /**
+     * Adds scanned customers to the off-heap snapshot as they pass by, so that it is rebuilt incrementally.
+     * Customers written since the scan started are skipped, as their scanned version may be older.
+     */
+    private Stream<Customer> snapshotting(final Stream<Customer> customers) {
+        if (!snapshot.isEnabled()) {
+            return customers;
+        }
+        long generation = snapshot.generation();
+        return customers.peek(customer -> snapshot.put(customer, generation));
+    }
+
+    /**
+     * Also detaches reads in flight, so that later lookups do not join a read that started before the write.
+     * Used by {@link CustomerAsyncRepository} as well.
+     */
+    void invalidate(final String id) {
+        customerCache.invalidate(id);
+        snapshot.remove(id);
+        itemFlights.forget(id);
+        scanFlights.forget(tableName);
+    }
+
+    private void invalidateAll(final List<String> ids) {
+        customerCache.invalidateAll(ids);
+        snapshot.removeAll(ids);
+        ids.forEach(itemFlights::forget);
+        scanFlights.forget(tableName);
+    }
+
+    /**
+     * @return the write-behind buffer, or {@code null} unless {@code write-behind.enabled}; shared with
+     * {@link CustomerAsyncRepository} so that its writes are ordered with the buffered ones
+     */
+    WriteBehindBuffer writeBehind() {
+        return writeBehind;
+    }
+
+    private BatchWriter batchWriter() {
+        return new BatchWriter(client, tableName, repositoryExecutor, batchMaxAttempts, batchBackoffMillis);
+    }
+
+    private BatchReader batchReader() {
+        return new BatchReader(client, tableName, repositoryExecutor, batchReadMaxAttempts, batchReadBackoffMillis);
+    }
+
     private void loadConfig() {
-    	this.mode = environment.getProperty("mode");
     	this.tableName = environment.getProperty("table.name");
+    	this.scanParallel = environment.getProperty("scan.parallel.enabled", Boolean.class, false);
+    	this.scanMaxSegments = environment.getProperty("scan.parallel.max-segments", Integer.class, 16);
+    	this.scanSegments = Math.min(environment.getProperty("scan.parallel.segments", Integer.class,
+    			Runtime.getRuntime().availableProcessors()), scanMaxSegments);
+    	this.scanBufferSize = environment.getProperty("scan.parallel.buffer-size", Integer.class, 1000);
+    	this.batchMaxAttempts = environment.getProperty("batch.write.max-attempts", Integer.class, 8);
+    	this.batchBackoffMillis = environment.getProperty("batch.write.backoff-millis", Long.class, 50L);
+    	this.batchReadMaxAttempts = environment.getProperty("batch.read.max-attempts", Integer.class, 8);
+    	this.batchReadBackoffMillis = environment.getProperty("batch.read.backoff-millis", Long.class, 50L);
+    	this.warmupEnabled = environment.getProperty("restore.warmup.enabled", Boolean.class, true);
+    	this.warmupConnections = environment.getProperty("restore.warmup.connections", Integer.class, 8);
+    	this.provisionTable = environment.getProperty("table.provision.enabled", Boolean.class, false);
+    	this.coalescing = environment.getProperty("coalescing.enabled", Boolean.class, true);
     }
 }
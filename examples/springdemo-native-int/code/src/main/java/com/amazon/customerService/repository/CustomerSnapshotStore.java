@@ -0,0 +1,520 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.crac.Context;
+import org.crac.Core;
+import org.crac.Resource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import com.amazon.customerService.model.Customer;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Off-heap snapshot of customers in a memory-mapped file, consulted by {@link CustomerRepository#findById}
+ * before the cache and DynamoDB. Customers are added as they are read (GetItem and scans) and removed
+ * whenever they are written, just like {@link CustomerCache} entries, but they take no heap and are not
+ * evicted. Enabled with {@code snapshot.enabled}.
+ * <p>
+ * Writes by other instances are not seen, so every record expires {@code snapshot.ttl} (default 5
+ * minutes) after it was stored, like the cache. A read that started before a write to the same id may
+ * complete after the write has removed the id; {@link #put(Customer, long)} then skips the stale
+ * version. To tell, removals record a sequence number in one of {@value #REMOVAL_STRIPES} stripes (by id
+ * hash), and readers pass the {@link #generation()} from before their read. Ids that share a stripe with
+ * a recent write are occasionally not stored; they are simply read again next time.
+ * <p>
+ * The file ({@code snapshot.path}) holds a header, an open-addressing index of {@code 2 * capacity}
+ * slots (record number and id hash, linear probing) and up to {@code snapshot.capacity} fixed-size
+ * records. A deleted customer keeps its record and slot, flagged as deleted, so that the index never
+ * needs tombstones; re-adding the id reuses the record. Customers with attributes longer than their
+ * field are not stored, and nothing is added once the file is full.
+ * <p>
+ * The file is deleted before a checkpoint, so that neither the image nor the restored process contains
+ * customers that may have changed in the meantime, and a new one is mapped in {@code afterRestore}. The
+ * same applies to a file left behind by an earlier process on startup. Heap, RSS and file size are logged
+ * before the checkpoint and after the restore; {@code customer.snapshot.entries} and
+ * {@code customer.snapshot.file.bytes} are published as metrics.
+ */
+@Slf4j
+@Component
+public class CustomerSnapshotStore implements Resource {
+
+    private static final int MAGIC = 0x43534e50;
+    private static final int VERSION = 2;
+
+    private static final long HEADER_SIZE = 64;
+    private static final long HEADER_MAGIC = 0;
+    private static final long HEADER_VERSION = 4;
+    private static final long HEADER_CAPACITY = 8;
+    private static final long HEADER_SLOTS = 12;
+    private static final long HEADER_RECORDS = 16;
+
+    private static final long SLOT_SIZE = 8;
+
+    private static final long RECORD_FLAGS = 0;
+    private static final long RECORD_STORED_AT = 8;
+    private static final long RECORD_REG_DATE = 16;
+    private static final long RECORD_ID = 24;
+    private static final long RECORD_NAME = 88;
+    private static final long RECORD_EMAIL = 152;
+    private static final long RECORD_ACCOUNT_NUMBER = 248;
+    private static final long RECORD_SIZE = 280;
+
+    private static final int ID_FIELD = 64;
+    private static final int NAME_FIELD = 64;
+    private static final int EMAIL_FIELD = 96;
+    private static final int ACCOUNT_NUMBER_FIELD = 32;
+
+    private static final int LIVE = 1;
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    private static final int REMOVAL_STRIPES = 1024;
+
+    private final StampedLock lock = new StampedLock();
+
+    // Sequence of the last removal per id hash stripe, guarded by the write lock
+    private final long[] removals = new long[REMOVAL_STRIPES];
+    private final AtomicLong sequence = new AtomicLong();
+
+    private boolean enabled;
+    private Path path;
+    private int capacity;
+    private long ttlMillis;
+
+    private Arena arena;
+    private MemorySegment segment;
+    private int slotCount;
+    private long recordsOffset;
+    private int recordCount;
+    private int liveCount;
+    private boolean fullLogged;
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @PostConstruct
+    public void init() {
+        loadConfig();
+        if (enabled) {
+            map();
+        }
+
+        meterRegistry.gauge("customer.snapshot.entries", this, store -> store.liveCount);
+        meterRegistry.gauge("customer.snapshot.file.bytes", this, CustomerSnapshotStore::fileSize);
+
+        Core.getGlobalContext().register(this);
+    }
+
+    @Override
+    public void beforeCheckpoint(Context<? extends Resource> context) {
+        if (!enabled) {
+            return;
+        }
+
+        long stamp = lock.writeLock();
+        try {
+            unmap();
+            Files.deleteIfExists(path);
+        } catch (IOException exc) {
+            throw new UncheckedIOException(exc);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        logFootprint("before checkpoint");
+    }
+
+    @Override
+    public void afterRestore(Context<? extends Resource> context) {
+        loadConfig();
+        if (enabled) {
+            map();
+        }
+        logFootprint("after restore");
+    }
+
+    @PreDestroy
+    public void destroy() {
+        long stamp = lock.writeLock();
+        try {
+            unmap();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the generation to pass to {@link #put(Customer, long)} for a read that starts now
+     */
+    long generation() {
+        return sequence.get();
+    }
+
+    /**
+     * @return a copy of the snapshotted customer, or {@code null} if it is not in the snapshot or expired
+     */
+    Customer get(String id) {
+        if (!enabled) {
+            return null;
+        }
+        byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(idBytes);
+
+        // Optimistic read first; a concurrent write or remap makes validate() fail (or the read throw)
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                Customer customer = read(idBytes, hash);
+                if (lock.validate(stamp)) {
+                    return customer;
+                }
+            } catch (RuntimeException exc) {
+                // torn read, retried under the read lock
+            }
+        }
+
+        stamp = lock.readLock();
+        try {
+            return read(idBytes, hash);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Stores a customer read from the table, unless it was removed after {@code generation}.
+     */
+    void put(Customer customer, long generation) {
+        if (!enabled || customer.getId() == null) {
+            return;
+        }
+        byte[] id = customer.getId().getBytes(StandardCharsets.UTF_8);
+        byte[] name = bytes(customer.getName());
+        byte[] email = bytes(customer.getEmail());
+        byte[] accountNumber = bytes(customer.getAccountNumber());
+        boolean fits = fits(id, ID_FIELD) && fits(name, NAME_FIELD) && fits(email, EMAIL_FIELD)
+                && fits(accountNumber, ACCOUNT_NUMBER_FIELD);
+
+        long stamp = lock.writeLock();
+        try {
+            if (segment == null) {
+                return;
+            }
+            int hash = hash(id);
+            if (removals[hash & (REMOVAL_STRIPES - 1)] > generation) {
+                // Read before a write to this id (or one sharing its stripe), may be stale
+                return;
+            }
+            long slot = findSlot(id, hash);
+            int ref = segment.get(ValueLayout.JAVA_INT, slot);
+            if (!fits) {
+                // Cannot be stored, so make sure an older version is not served either
+                if (ref != 0) {
+                    markDeleted(ref - 1);
+                }
+                return;
+            }
+
+            int record;
+            if (ref != 0) {
+                record = ref - 1;
+            } else if (recordCount < capacity) {
+                record = recordCount++;
+                segment.set(ValueLayout.JAVA_INT, HEADER_RECORDS, recordCount);
+                segment.set(ValueLayout.JAVA_INT, slot + 4, hash);
+                segment.set(ValueLayout.JAVA_INT, slot, record + 1);
+            } else {
+                if (!fullLogged) {
+                    log.warn("Customer snapshot is full (" + capacity + " records), increase snapshot.capacity");
+                    fullLogged = true;
+                }
+                return;
+            }
+
+            long offset = recordOffset(record);
+            if (segment.get(ValueLayout.JAVA_INT, offset + RECORD_FLAGS) != LIVE) {
+                liveCount++;
+            }
+            segment.set(ValueLayout.JAVA_LONG, offset + RECORD_STORED_AT, System.currentTimeMillis());
+            segment.set(ValueLayout.JAVA_LONG, offset + RECORD_REG_DATE,
+                    customer.getRegDate() != null ? customer.getRegDate().getTime() : NO_DATE);
+            writeString(offset + RECORD_ID, id);
+            writeString(offset + RECORD_NAME, name);
+            writeString(offset + RECORD_EMAIL, email);
+            writeString(offset + RECORD_ACCOUNT_NUMBER, accountNumber);
+            segment.set(ValueLayout.JAVA_INT, offset + RECORD_FLAGS, LIVE);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    void remove(String id) {
+        if (!enabled) {
+            return;
+        }
+        byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+
+        int hash = hash(idBytes);
+
+        long stamp = lock.writeLock();
+        try {
+            removals[hash & (REMOVAL_STRIPES - 1)] = sequence.incrementAndGet();
+            if (segment == null) {
+                return;
+            }
+            int ref = segment.get(ValueLayout.JAVA_INT, findSlot(idBytes, hash));
+            if (ref != 0) {
+                markDeleted(ref - 1);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    void removeAll(List<String> ids) {
+        for (String id : ids) {
+            remove(id);
+        }
+    }
+
+    private Customer read(byte[] id, int hash) {
+        MemorySegment current = segment;
+        if (current == null) {
+            return null;
+        }
+        int ref = current.get(ValueLayout.JAVA_INT, findSlot(current, id, hash));
+        if (ref == 0) {
+            return null;
+        }
+
+        long offset = recordOffset(ref - 1);
+        if (current.get(ValueLayout.JAVA_INT, offset + RECORD_FLAGS) != LIVE
+                || current.get(ValueLayout.JAVA_LONG, offset + RECORD_STORED_AT) + ttlMillis
+                <= System.currentTimeMillis()) {
+            return null;
+        }
+
+        Customer customer = new Customer();
+        customer.setId(readString(current, offset + RECORD_ID));
+        customer.setName(readString(current, offset + RECORD_NAME));
+        customer.setEmail(readString(current, offset + RECORD_EMAIL));
+        customer.setAccountNumber(readString(current, offset + RECORD_ACCOUNT_NUMBER));
+        long regDate = current.get(ValueLayout.JAVA_LONG, offset + RECORD_REG_DATE);
+        customer.setRegDate(regDate != NO_DATE ? new Date(regDate) : null);
+
+        return customer;
+    }
+
+    private long findSlot(byte[] id, int hash) {
+        return findSlot(segment, id, hash);
+    }
+
+    /**
+     * @return the offset of the slot holding {@code id}, or of the empty slot where it would be inserted
+     */
+    private long findSlot(MemorySegment current, byte[] id, int hash) {
+        int mask = slotCount - 1;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            long slot = HEADER_SIZE + i * SLOT_SIZE;
+            int ref = current.get(ValueLayout.JAVA_INT, slot);
+            if (ref == 0) {
+                return slot;
+            }
+            if (current.get(ValueLayout.JAVA_INT, slot + 4) == hash
+                    && idEquals(current, recordOffset(ref - 1) + RECORD_ID, id)) {
+                return slot;
+            }
+        }
+    }
+
+    private void markDeleted(int record) {
+        long offset = recordOffset(record);
+        if (segment.get(ValueLayout.JAVA_INT, offset + RECORD_FLAGS) == LIVE) {
+            segment.set(ValueLayout.JAVA_INT, offset + RECORD_FLAGS, 0);
+            liveCount--;
+        }
+    }
+
+    private long recordOffset(int record) {
+        return recordsOffset + record * RECORD_SIZE;
+    }
+
+    private static boolean idEquals(MemorySegment current, long offset, byte[] id) {
+        return current.get(ValueLayout.JAVA_SHORT, offset) == id.length
+                && Arrays.equals(readBytes(current, offset), id);
+    }
+
+    private void writeString(long offset, byte[] value) {
+        if (value == null) {
+            segment.set(ValueLayout.JAVA_SHORT, offset, (short) -1);
+            return;
+        }
+        segment.set(ValueLayout.JAVA_SHORT, offset, (short) value.length);
+        MemorySegment.copy(value, 0, segment, ValueLayout.JAVA_BYTE, offset + 2, value.length);
+    }
+
+    private static String readString(MemorySegment current, long offset) {
+        byte[] value = readBytes(current, offset);
+        return value != null ? new String(value, StandardCharsets.UTF_8) : null;
+    }
+
+    private static byte[] readBytes(MemorySegment current, long offset) {
+        short length = current.get(ValueLayout.JAVA_SHORT, offset);
+        if (length < 0) {
+            return null;
+        }
+        byte[] value = new byte[length];
+        MemorySegment.copy(current, ValueLayout.JAVA_BYTE, offset + 2, value, 0, length);
+        return value;
+    }
+
+    private static byte[] bytes(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static boolean fits(byte[] value, int field) {
+        return value == null || value.length <= field - 2;
+    }
+
+    private static int hash(byte[] id) {
+        int h = Arrays.hashCode(id);
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Maps a new, empty file in place of any file left behind.
+     */
+    private void map() {
+        long stamp = lock.writeLock();
+        try {
+            unmap();
+
+            int slots = Integer.highestOneBit(Math.max(capacity, 1) * 2 - 1) << 1;
+            long size = HEADER_SIZE + slots * SLOT_SIZE + capacity * RECORD_SIZE;
+
+            Arena newArena = Arena.ofShared();
+            MemorySegment newSegment;
+            try (FileChannel channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                // A sparse file: pages are only allocated once records are written
+                channel.truncate(0);
+                channel.write(ByteBuffer.allocate(1), size - 1);
+                newSegment = channel.map(FileChannel.MapMode.READ_WRITE, 0, size, newArena);
+            } catch (IOException | RuntimeException exc) {
+                newArena.close();
+                log.error("Could not map customer snapshot " + path + ", snapshot disabled: " + exc);
+                enabled = false;
+                return;
+            }
+
+            this.arena = newArena;
+            this.segment = newSegment;
+            this.slotCount = slots;
+            this.recordsOffset = HEADER_SIZE + slots * SLOT_SIZE;
+            this.fullLogged = false;
+
+            segment.set(ValueLayout.JAVA_INT, HEADER_MAGIC, MAGIC);
+            segment.set(ValueLayout.JAVA_INT, HEADER_VERSION, VERSION);
+            segment.set(ValueLayout.JAVA_INT, HEADER_CAPACITY, capacity);
+            segment.set(ValueLayout.JAVA_INT, HEADER_SLOTS, slots);
+            segment.set(ValueLayout.JAVA_INT, HEADER_RECORDS, 0);
+            this.recordCount = 0;
+            this.liveCount = 0;
+
+            log.info("Mapped customer snapshot " + path + " (capacity " + capacity + ", ttl " + ttlMillis + " ms)");
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void unmap() {
+        if (arena != null) {
+            segment.force();
+            arena.close();
+            arena = null;
+            segment = null;
+        }
+    }
+
+    private long fileSize() {
+        try {
+            return path != null && Files.exists(path) ? Files.size(path) : 0;
+        } catch (IOException exc) {
+            return 0;
+        }
+    }
+
+    private void logFootprint(String phase) {
+        long heapUsed = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        log.info("Footprint " + phase + ": heap used " + (heapUsed >> 20) + " MB, RSS " + (rssKb() >> 10)
+                + " MB, customer snapshot " + (enabled ? (fileSize() >> 20) + " MB file, " + liveCount + " customers"
+                : "disabled"));
+    }
+
+    private static long rssKb() {
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc/self/status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", ""));
+                }
+            }
+        } catch (IOException | RuntimeException exc) {
+            // not on Linux
+        }
+        return -1;
+    }
+
+    private void loadConfig() {
+        this.enabled = environment.getProperty("snapshot.enabled", Boolean.class, false);
+        this.path = Paths.get(environment.getProperty("snapshot.path",
+                System.getProperty("java.io.tmpdir") + "/customer-snapshot.dat"));
+        this.capacity = environment.getProperty("snapshot.capacity", Integer.class, 100_000);
+        this.ttlMillis = environment.getProperty("snapshot.ttl", Duration.class, Duration.ofMinutes(5)).toMillis();
+    }
+}
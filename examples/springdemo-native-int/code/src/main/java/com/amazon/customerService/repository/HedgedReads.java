@@ -0,0 +1,168 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.repository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import software.amazon.awssdk.core.exception.AbortedException;
+
+/**
+ * Hedged reads: if a read has not completed after the hedge delay, a second, identical read is started and
+ * whichever succeeds first wins; the other one is cancelled. The hedge delay is the {@code percentile} of
+ * the recent read latencies, bounded by {@code minDelay} and {@code maxDelay} ({@code maxDelay} until enough
+ * latencies have been seen), so that only the slowest reads are hedged. Hedges are paid for from a
+ * {@link RetryBudget}, which caps them at a share of the traffic when the dependency is slow as a whole.
+ * <p>
+ * Only use it for idempotent calls. The attempts run on {@code executor}, which is closed with this class.
+ * <p>
+ * Metrics: {@code customer.hedge.delay} (gauge, ms), {@code customer.hedge.sent},
+ * {@code customer.hedge.wins} and {@code customer.hedge.budget-exhausted} (counters).
+ */
+class HedgedReads implements AutoCloseable {
+
+    private static final int SAMPLES = 1024;
+    private static final int RECOMPUTE_EVERY = 128;
+
+    private final ExecutorService executor;
+    private final RetryBudget budget;
+    private final double percentile;
+    private final long minDelayNanos;
+    private final long maxDelayNanos;
+
+    private final AtomicLongArray latencies = new AtomicLongArray(SAMPLES);
+    private final AtomicLong recorded = new AtomicLong();
+    private volatile long delayNanos;
+
+    private final Counter sent;
+    private final Counter wins;
+    private final Counter budgetExhausted;
+
+    HedgedReads(ExecutorService executor, RetryBudget budget, double percentile, Duration minDelay,
+                Duration maxDelay, MeterRegistry meterRegistry) {
+        this.executor = executor;
+        this.budget = budget;
+        this.percentile = percentile;
+        this.minDelayNanos = minDelay.toNanos();
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.delayNanos = maxDelayNanos;
+
+        meterRegistry.gauge("customer.hedge.delay", this, hedgedReads -> hedgedReads.delayNanos / 1e6);
+        this.sent = meterRegistry.counter("customer.hedge.sent");
+        this.wins = meterRegistry.counter("customer.hedge.wins");
+        this.budgetExhausted = meterRegistry.counter("customer.hedge.budget-exhausted");
+    }
+
+    <T> T execute(Supplier<T> read) {
+        budget.deposit();
+        long start = System.nanoTime();
+
+        ExecutorCompletionService<T> attempts = new ExecutorCompletionService<>(executor);
+        List<Future<T>> futures = new ArrayList<>(2);
+        futures.add(attempts.submit(read::get));
+        try {
+            int running = 1;
+            Future<T> done = attempts.poll(delayNanos, TimeUnit.NANOSECONDS);
+            if (done == null) {
+                if (budget.tryWithdraw()) {
+                    sent.increment();
+                    futures.add(attempts.submit(read::get));
+                    running++;
+                } else {
+                    budgetExhausted.increment();
+                }
+            }
+
+            RuntimeException failure = null;
+            while (true) {
+                if (done == null) {
+                    done = attempts.take();
+                }
+                running--;
+                try {
+                    T result = done.get();
+                    if (done != futures.get(0)) {
+                        wins.increment();
+                    }
+                    record(System.nanoTime() - start);
+                    return result;
+                } catch (ExecutionException exc) {
+                    failure = failure != null ? failure : unwrap(exc);
+                    if (running == 0) {
+                        throw failure;
+                    }
+                    done = null;
+                }
+            }
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+            throw AbortedException.builder().message("Interrupted while waiting for a read").cause(exc).build();
+        } finally {
+            for (Future<T> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Forgets the recorded latencies, e.g. after a restore, when the network path may be entirely different.
+     */
+    void reset() {
+        recorded.set(0);
+        delayNanos = maxDelayNanos;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private void record(long latencyNanos) {
+        long count = recorded.incrementAndGet();
+        latencies.set((int) ((count - 1) % SAMPLES), latencyNanos);
+        if (count >= RECOMPUTE_EVERY && count % RECOMPUTE_EVERY == 0) {
+            long[] sorted = new long[(int) Math.min(count, SAMPLES)];
+            for (int i = 0; i < sorted.length; i++) {
+                sorted[i] = latencies.get(i);
+            }
+            Arrays.sort(sorted);
+            long observed = sorted[(int) Math.min(sorted.length - 1, Math.floor(percentile * sorted.length))];
+            delayNanos = Math.max(minDelayNanos, Math.min(maxDelayNanos, observed));
+        }
+    }
+
+    private static RuntimeException unwrap(ExecutionException exc) {
+        if (exc.getCause() instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        if (exc.getCause() instanceof Error error) {
+            throw error;
+        }
+        return new IllegalStateException(exc.getCause());
+    }
+}
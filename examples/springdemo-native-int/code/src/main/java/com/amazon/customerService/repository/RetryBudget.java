@@ -0,0 +1,56 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.repository;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket that limits extra attempts (hedges) to a share of the regular traffic: every request deposits
+ * {@code ratio} tokens, every extra attempt withdraws one, and at most {@code maxTokens} can be saved up.
+ * The budget therefore grows and shrinks with the request rate, and when the dependency is slow for every
+ * request, extra attempts stay at {@code ratio} of the load instead of doubling it.
+ */
+class RetryBudget {
+
+    private static final long TOKEN = 1000;
+
+    private final long deposit;
+    private final long capacity;
+    private final AtomicLong balance;
+
+    RetryBudget(double ratio, int maxTokens) {
+        this.deposit = Math.round(ratio * TOKEN);
+        this.capacity = maxTokens * TOKEN;
+        this.balance = new AtomicLong(capacity);
+    }
+
+    void deposit() {
+        if (balance.get() < capacity) {
+            balance.getAndUpdate(current -> Math.min(capacity, current + deposit));
+        }
+    }
+
+    boolean tryWithdraw() {
+        long current;
+        do {
+            current = balance.get();
+            if (current < TOKEN) {
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current - TOKEN));
+        return true;
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.repository;
+
+import java.nio.ByteBuffer;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+
+import org.crac.Context;
+import org.crac.Core;
+import org.crac.Resource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Time-ordered UUIDs (version 7, RFC 9562): 48 bits of Unix time in milliseconds, a 12-bit sequence and 62
+ * random bits. Ids therefore sort by creation time (at millisecond granularity across threads, strictly
+ * within a thread, even if the clock goes back).
+ * <p>
+ * Every thread has its own {@code SHA1PRNG} generator, so generating an id involves no shared state. Its
+ * output does not reveal its state, so ids cannot be predicted from earlier ones (which a fast mixing
+ * generator such as SplitMix64 would allow, as its output function can be inverted). The thread generators
+ * are seeded from a 256-bit process-wide seed plus the thread id, and never draw entropy themselves. The
+ * seed is drawn again in {@code afterRestore}: a thread notices the new seed on its next id and reseeds
+ * itself. Without that, every process restored from the same checkpoint image would continue from the same
+ * generator state and produce the same ids. The seed is read from {@code /dev/urandom}
+ * ({@code NativePRNGNonBlocking}), which does not block once the kernel has been seeded at boot.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "id.generator", havingValue = "uuidv7", matchIfMissing = true)
+public class UuidV7Generator implements CustomerIdGenerator, Resource {
+
+    private static final int SEED_BYTES = 32;
+
+    private final LongSupplier clock;
+    private final Supplier<byte[]> entropy;
+    private final ThreadLocal<ThreadState> threadState = ThreadLocal.withInitial(ThreadState::new);
+
+    private volatile byte[] seed;
+    private volatile int generation;
+
+    public UuidV7Generator() {
+        this(System::currentTimeMillis, UuidV7Generator::systemEntropy);
+    }
+
+    /**
+     * @param clock   current time in milliseconds
+     * @param entropy source of the process-wide seed
+     */
+    UuidV7Generator(LongSupplier clock, Supplier<byte[]> entropy) {
+        this.clock = clock;
+        this.entropy = entropy;
+        reseed();
+    }
+
+    @PostConstruct
+    public void init() {
+        Core.getGlobalContext().register(this);
+    }
+
+    @Override
+    public void beforeCheckpoint(Context<? extends Resource> context) {
+    }
+
+    @Override
+    public void afterRestore(Context<? extends Resource> context) {
+        log.info("Reseeding customer id generator after restore");
+        reseed();
+    }
+
+    @Override
+    public String newId() {
+        return next().toString();
+    }
+
+    UUID next() {
+        ThreadState state = threadState.get();
+        if (state.generation != generation) {
+            state.reseed();
+        }
+
+        long now = clock.getAsLong();
+        if (now > state.lastMillis) {
+            state.lastMillis = now;
+            state.sequence = (int) (state.nextRandom() & 0x7ff);
+        } else if (++state.sequence > 0xfff) {
+            // 4096 ids in one millisecond (or the clock went back): borrow from the next millisecond
+            state.lastMillis++;
+            state.sequence = (int) (state.nextRandom() & 0x7ff);
+        }
+
+        long mostSigBits = state.lastMillis << 16 | 0x7000L | state.sequence;
+        long leastSigBits = state.nextRandom() >>> 2 | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+
+    synchronized void reseed() {
+        seed = entropy.get();
+        generation++;
+    }
+
+    /**
+     * 256 bits from {@code /dev/urandom}, falling back to the default {@link SecureRandom} where that is not
+     * available.
+     */
+    static byte[] systemEntropy() {
+        byte[] bytes = new byte[SEED_BYTES];
+        try {
+            SecureRandom.getInstance("NativePRNGNonBlocking").nextBytes(bytes);
+        } catch (NoSuchAlgorithmException exc) {
+            log.warn("NativePRNGNonBlocking not available, seeding customer ids from the default SecureRandom");
+            new SecureRandom().nextBytes(bytes);
+        }
+        return bytes;
+    }
+
+    private final class ThreadState {
+
+        int generation;
+        SecureRandom random;
+        long lastMillis;
+        int sequence;
+
+        ThreadState() {
+            reseed();
+        }
+
+        void reseed() {
+            generation = UuidV7Generator.this.generation;
+            try {
+                // Seeded before its first use, SHA1PRNG is deterministic and does not read system entropy
+                random = SecureRandom.getInstance("SHA1PRNG");
+            } catch (NoSuchAlgorithmException exc) {
+                throw new IllegalStateException("SHA1PRNG not available", exc);
+            }
+            // Thread ids are unique within the process, so this needs no shared counter (and with virtual
+            // threads, which get their own state for every request, no contention on one)
+            random.setSeed(ByteBuffer.allocate(SEED_BYTES + Long.BYTES)
+                    .put(seed)
+                    .putLong(Thread.currentThread().threadId())
+                    .array());
+        }
+
+        long nextRandom() {
+            return random.nextLong();
+        }
+    }
+}
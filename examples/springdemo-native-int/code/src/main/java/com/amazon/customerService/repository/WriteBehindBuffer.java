@@ -0,0 +1,366 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.repository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+import com.amazon.customerService.exception.WriteBufferFullException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+/**
+ * Write-behind buffer for customer puts and deletes. Writes are keyed by customer id, so a newer write for
+ * an id that is still pending replaces the older one and only the latest version is sent. A background
+ * thread hands the pending writes to the writer (BatchWriteItem) once {@code flushSize} ids are pending or
+ * {@code flushInterval} has passed, one flush at a time so that writes for the same id stay in order.
+ * <p>
+ * At most {@code capacity} ids are pending, plus the batch currently being written. When the buffer is
+ * full, callers wait up to {@code offerTimeout} for a flush to make room and then get a
+ * {@link WriteBufferFullException}. Every write returns a future that completes once its latest version has
+ * been written.
+ * <p>
+ * A write that fails or stays unprocessed goes back into the buffer and is retried with the next flush, up
+ * to {@code maxAttempts} flushes in total, unless a newer write for the same id has arrived in the meantime:
+ * the newer version then supersedes it, and its future completes with the newer one. After the last attempt
+ * the write is dropped and its future completes exceptionally. The buffer is in memory only, so dropped
+ * writes, and writes that are still pending when the process dies, are lost although their callers were
+ * told they were accepted; callers that need to know wait for the future ({@code durable}).
+ * <p>
+ * Metrics: {@code customer.write-behind.pending} (gauge), {@code customer.write-behind.coalesced},
+ * {@code customer.write-behind.flushed} and {@code customer.write-behind.failed} (counters; failed counts
+ * the dropped writes).
+ */
+@Slf4j
+class WriteBehindBuffer implements AutoCloseable {
+
+    private final Function<List<WriteRequest>, List<WriteRequest>> writer;
+    private final int capacity;
+    private final int flushSize;
+    private final long flushIntervalNanos;
+    private final long offerTimeoutNanos;
+    private final int maxAttempts;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Condition flushNeeded = lock.newCondition();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Thread flusher;
+
+    private final Counter coalesced;
+    private final Counter flushed;
+    private final Counter failed;
+
+    private LinkedHashMap<String, Pending> pending = new LinkedHashMap<>();
+    private Map<String, Pending> inFlight = Map.of();
+    private boolean paused;
+    private boolean closed;
+
+    /**
+     * @param writer      writes the requests and returns those that remain unprocessed
+     * @param maxAttempts flushes that a write is part of before it is dropped
+     */
+    WriteBehindBuffer(Function<List<WriteRequest>, List<WriteRequest>> writer, int capacity, int flushSize,
+                      Duration flushInterval, Duration offerTimeout, int maxAttempts, MeterRegistry meterRegistry) {
+        this.writer = writer;
+        this.capacity = capacity;
+        this.flushSize = flushSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.offerTimeoutNanos = offerTimeout.toNanos();
+        this.maxAttempts = maxAttempts;
+
+        meterRegistry.gauge("customer.write-behind.pending", this, WriteBehindBuffer::size);
+        this.coalesced = meterRegistry.counter("customer.write-behind.coalesced");
+        this.flushed = meterRegistry.counter("customer.write-behind.flushed");
+        this.failed = meterRegistry.counter("customer.write-behind.failed");
+
+        this.flusher = new Thread(this::runFlusher, "customer-write-behind");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Buffers {@code request} as the latest write for {@code id}, waiting for room if the buffer is full.
+     *
+     * @return completes when the write, or a newer one for the same id, has been written
+     * @throws WriteBufferFullException if there was no room within the offer timeout
+     */
+    CompletableFuture<Void> enqueue(String id, WriteRequest request) {
+        lock.lock();
+        try {
+            long remaining = offerTimeoutNanos;
+            while (true) {
+                if (closed) {
+                    throw new IllegalStateException("Write-behind buffer is closed");
+                }
+
+                Pending existing = pending.get(id);
+                if (existing != null) {
+                    existing.request = request;
+                    coalesced.increment();
+                    return existing.ack;
+                }
+                if (pending.size() < capacity) {
+                    break;
+                }
+
+                flushNeeded.signal();
+                if (remaining <= 0) {
+                    throw new WriteBufferFullException(capacity);
+                }
+                remaining = notFull.awaitNanos(remaining);
+            }
+
+            Pending added = new Pending(request);
+            pending.put(id, added);
+            if (pending.size() >= flushSize) {
+                flushNeeded.signal();
+            }
+            return added.ack;
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for room in the write-behind buffer", exc);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the latest write for {@code id} that has not been written yet, or {@code null}
+     */
+    WriteRequest pending(String id) {
+        lock.lock();
+        try {
+            Pending write = pending.get(id);
+            if (write == null) {
+                write = inFlight.get(id);
+            }
+            return write != null ? write.request : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes everything that is pending and waits for it, regardless of thresholds. Writes that failed are
+     * pending again afterwards, unless they were dropped.
+     */
+    void flush() {
+        // A lock rather than a monitor: the write is blocking I/O and would pin a virtual thread
+        flushLock.lock();
+        try {
+            Map<String, Pending> batch;
+            lock.lock();
+            try {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                inFlight = batch;
+                pending = new LinkedHashMap<>();
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                write(batch);
+            } finally {
+                lock.lock();
+                try {
+                    inFlight = Map.of();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Flushes and stops the background flushes, e.g. before a checkpoint while the client is closed.
+     * Writes are still accepted (up to the capacity) and are written after {@link #resume()}.
+     */
+    void flushAndPause() {
+        lock.lock();
+        try {
+            paused = true;
+        } finally {
+            lock.unlock();
+        }
+        flush();
+    }
+
+    void resume() {
+        lock.lock();
+        try {
+            paused = false;
+            flushNeeded.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops accepting writes, then flushes until nothing is pending, i.e. until every write has been written
+     * or dropped.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            flushNeeded.signal();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            flusher.join();
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+        }
+        while (size() > 0) {
+            flush();
+        }
+    }
+
+    int size() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void runFlusher() {
+        while (true) {
+            lock.lock();
+            try {
+                if (!closed && (paused || pending.size() < flushSize)) {
+                    flushNeeded.awaitNanos(flushIntervalNanos);
+                }
+                if (closed) {
+                    return;
+                }
+                if (paused) {
+                    continue;
+                }
+            } catch (InterruptedException exc) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                flush();
+            } catch (RuntimeException exc) {
+                log.error("Write-behind flush failed: " + exc);
+            }
+        }
+    }
+
+    private void write(Map<String, Pending> batch) {
+        List<WriteRequest> requests = new ArrayList<>(batch.size());
+        for (Pending write : batch.values()) {
+            requests.add(write.request);
+        }
+
+        Set<String> unprocessed = new HashSet<>();
+        RuntimeException failure = null;
+        try {
+            for (WriteRequest request : writer.apply(requests)) {
+                unprocessed.add(BatchWriter.idOf(request));
+            }
+        } catch (RuntimeException exc) {
+            failure = exc;
+        }
+
+        int notWritten = failure != null ? batch.size() : unprocessed.size();
+        if (notWritten > 0) {
+            log.warn("Write-behind flush could not write " + notWritten + " of " + batch.size() + " customers"
+                    + (failure != null ? ": " + failure : ""));
+        }
+        flushed.increment(batch.size() - notWritten);
+
+        for (Map.Entry<String, Pending> entry : batch.entrySet()) {
+            Pending write = entry.getValue();
+            if (failure == null && !unprocessed.contains(entry.getKey())) {
+                write.ack.complete(null);
+            } else {
+                retryOrDrop(entry.getKey(), write, failure);
+            }
+        }
+    }
+
+    /**
+     * Puts a write that was not written back into the buffer, before it leaves {@code inFlight}, so that
+     * {@link #pending(String)} keeps returning it. Requeued writes may exceed the capacity for a while.
+     */
+    private void retryOrDrop(String id, Pending write, RuntimeException failure) {
+        lock.lock();
+        try {
+            Pending newer = pending.get(id);
+            if (newer != null) {
+                // Superseded: done once the newer version is written
+                newer.ack.whenComplete((result, exc) -> {
+                    if (exc != null) {
+                        write.ack.completeExceptionally(exc);
+                    } else {
+                        write.ack.complete(null);
+                    }
+                });
+                return;
+            }
+            if (++write.attempts < maxAttempts) {
+                pending.put(id, write);
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        failed.increment();
+        log.error("Write-behind dropped the write of customer " + id + " after " + maxAttempts + " attempts");
+        write.ack.completeExceptionally(failure != null ? failure
+                : new IllegalStateException("Customer " + id + " could not be written"));
+    }
+
+    private static final class Pending {
+        final CompletableFuture<Void> ack = new CompletableFuture<>();
+        WriteRequest request;
+        int attempts;
+
+        Pending(WriteRequest request) {
+            this.request = request;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import com.amazon.customerService.model.Customer;
+import com.amazon.customerService.model.LoadReport;
+import com.amazon.customerService.repository.CustomerStore;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Writes synthetic customers with {@code concurrency} workers (virtual threads with
+ * {@code spring.threads.virtual.enabled}), each taking the next {@code batchSize}
+ * customers, generating them with {@link ThreadLocalRandom} and writing them with one
+ * {@link CustomerStore#saveAll} call (or {@link CustomerStore#save} for a batch size of 1). The latency of
+ * every write call is recorded, and a progress report is passed on every {@code load.progress-interval}
+ * (default 1s) while the run lasts.
+ */
+@Slf4j
+@Service
+public class LoadGenerator {
+
+    public static final int MAX_BATCH_SIZE = 25;
+
+    private static final char[] LETTERS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
+
+    @Autowired
+    CustomerStore customerRepository;
+
+    @Autowired
+    Environment environment;
+
+    /**
+     * @return the largest number of customers a run may write, {@code load.max-count} (default 1,000,000)
+     */
+    public int getMaxCount() {
+        return environment.getProperty("load.max-count", Integer.class, 1_000_000);
+    }
+
+    /**
+     * @param valueSize length of the generated names (emails are 9 characters longer)
+     * @param progress  receives the intermediate reports, on the calling thread
+     * @return the final report, including the latency percentiles
+     */
+    public LoadReport run(int count, int concurrency, int batchSize, int valueSize, Consumer<LoadReport> progress) {
+
+        Duration progressInterval = environment.getProperty("load.progress-interval", Duration.class,
+                Duration.ofSeconds(1));
+
+        AtomicLong next = new AtomicLong();
+        AtomicLong written = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        long start = System.nanoTime();
+
+        ExecutorService executor = environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false)
+                ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("load-", 0).factory())
+                : Executors.newFixedThreadPool(concurrency, new CustomizableThreadFactory("load-"));
+        List<Future<long[]>> workers = new ArrayList<>(concurrency);
+        try {
+            for (int i = 0; i < concurrency; i++) {
+                workers.add(executor.submit(() -> write(count, batchSize, valueSize, next, written, failed)));
+            }
+            executor.shutdown();
+            while (!executor.awaitTermination(progressInterval.toMillis(), TimeUnit.MILLISECONDS)) {
+                progress.accept(new LoadReport(false, count, written.get(), failed.get(), elapsedMillis(start), null));
+            }
+        } catch (InterruptedException exc) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading customers", exc);
+        }
+
+        LoadReport report = new LoadReport(true, count, written.get(), failed.get(), elapsedMillis(start),
+                percentiles(latencies(workers)));
+        log.info("Loaded customers: " + report);
+
+        return report;
+    }
+
+    private long[] write(int count, int batchSize, int valueSize, AtomicLong next, AtomicLong written,
+                         AtomicLong failed) {
+        long[] latencies = new long[64];
+        int calls = 0;
+
+        // long, so that workers moving past count cannot overflow
+        for (long first = next.getAndAdd(batchSize); first < count; first = next.getAndAdd(batchSize)) {
+            int size = (int) Math.min(batchSize, count - first);
+            List<Customer> customers = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                customers.add(randomCustomer(valueSize));
+            }
+
+            long begin = System.nanoTime();
+            try {
+                if (size == 1) {
+                    customerRepository.save(customers.get(0));
+                } else {
+                    customerRepository.saveAll(customers);
+                }
+                written.addAndGet(size);
+            } catch (RuntimeException exc) {
+                if (failed.getAndAdd(size) == 0) {
+                    log.warn("Writing generated customers failed: " + exc);
+                }
+            }
+
+            if (calls == latencies.length) {
+                latencies = Arrays.copyOf(latencies, calls * 2);
+            }
+            latencies[calls++] = System.nanoTime() - begin;
+        }
+
+        return Arrays.copyOf(latencies, calls);
+    }
+
+    private static Customer randomCustomer(int valueSize) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        char[] chars = new char[valueSize];
+        for (int i = 0; i < valueSize; i++) {
+            chars[i] = LETTERS[random.nextInt(LETTERS.length)];
+        }
+        String name = new String(chars);
+        String accountNumber = Integer.toString(random.nextInt(1_000_000));
+
+        Customer customer = new Customer();
+        customer.setName(name);
+        customer.setEmail(name + "@test.com");
+        customer.setAccountNumber("000000".substring(accountNumber.length()) + accountNumber);
+        customer.setRegDate(new Date());
+        return customer;
+    }
+
+    private static long[] latencies(List<Future<long[]>> workers) {
+        List<long[]> perWorker = new ArrayList<>(workers.size());
+        for (Future<long[]> worker : workers) {
+            try {
+                perWorker.add(worker.get());
+            } catch (InterruptedException | ExecutionException exc) {
+                throw new IllegalStateException("Load worker failed", exc);
+            }
+        }
+        return perWorker.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+    }
+
+    private static Map<String, Double> percentiles(long[] sorted) {
+        Map<String, Double> percentiles = new LinkedHashMap<>();
+        if (sorted.length > 0) {
+            percentiles.put("p50", percentile(sorted, 0.5));
+            percentiles.put("p90", percentile(sorted, 0.9));
+            percentiles.put("p99", percentile(sorted, 0.99));
+            percentiles.put("p99.9", percentile(sorted, 0.999));
+            percentiles.put("max", sorted[sorted.length - 1] / 1e6);
+        }
+        return percentiles;
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        return sorted[Math.max(0, (int) Math.ceil(percentile * sorted.length) - 1)] / 1e6;
+    }
+
+    private static long elapsedMillis(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+}
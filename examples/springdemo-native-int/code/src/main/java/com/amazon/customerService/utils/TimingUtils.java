@@ -12,8 +12,6 @@ import com.amazon.customerService.model.metrics.MetricWrapper;
 import com.amazon.customerService.service.EcsMetaDataService;
 import com.amazon.customerService.service.EksMetricsService;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -38,11 +36,8 @@ public class TimingUtils {
             metricWrapper.setVersion(AppConfig.APPLICATION_VERSION);
             metricWrapper.setSpringBootStartDuration(springBootStartTime);
             metricWrapper.setSpringBootReadyTime(endTime);
-            ObjectMapper mapper = new ObjectMapper()
-                    .registerModule(new JavaTimeModule());
-
             try {
-                String metricsJson = mapper.writeValueAsString(metricWrapper);
+                String metricsJson = JsonMappers.WRITER.writeValueAsString(metricWrapper);
                 log.info("Metrics: " + StringEscapeUtils.unescapeJson(metricsJson));
             } catch (JsonProcessingException e) {
                 log.error(e.getMessage());
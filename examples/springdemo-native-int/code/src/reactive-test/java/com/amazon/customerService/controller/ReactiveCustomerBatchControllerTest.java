@@ -0,0 +1,215 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.controller;
+
+import com.amazon.customerService.model.BatchItemResult;
+import com.amazon.customerService.model.Customer;
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Drives the bulk endpoints of the reactive edition against the in-memory store ({@code mode=memory}), with
+ * chunks of 2 entries so that every request spans several chunks. Has its own application context, as the
+ * truncate empties the store. Runs with the Maven profile {@code reactive}.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"spring.main.web-application-type=reactive", "batch.bulk.chunk-size=2"})
+@ActiveProfiles({"memory", "reactive"})
+public class ReactiveCustomerBatchControllerTest {
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Test
+    public void testCreateAcrossChunks() {
+
+        // One entry short of, exactly at and one entry past a chunk boundary
+        for (int count = 3; count <= 5; count++) {
+            List<Customer> customers = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                customers.add(customer("Bulk " + i));
+            }
+            for (MediaType accept : new MediaType[]{MediaType.APPLICATION_JSON, MediaType.APPLICATION_NDJSON}) {
+                List<BatchItemResult> results = perform("/api/customers/batch", MediaType.APPLICATION_JSON,
+                        customers, accept);
+
+                Assert.assertEquals(count, results.size());
+                for (int i = 0; i < count; i++) {
+                    Assert.assertEquals(i, results.get(i).getIndex());
+                    Assert.assertEquals(BatchItemResult.Status.CREATED, results.get(i).getStatus());
+                    assertStored(results.get(i).getId(), "Bulk " + i);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testNullEntry() {
+
+        List<BatchItemResult> results = perform("/api/customers/batch", MediaType.APPLICATION_JSON,
+                "[{\"name\":\"a\"},null,{\"name\":\"c\"}]", MediaType.APPLICATION_NDJSON);
+
+        Assert.assertEquals(3, results.size());
+        Assert.assertEquals(BatchItemResult.Status.CREATED, results.get(0).getStatus());
+        Assert.assertEquals(BatchItemResult.Status.FAILED, results.get(1).getStatus());
+        Assert.assertEquals("Invalid entry", results.get(1).getError());
+        Assert.assertNull(results.get(1).getId());
+        Assert.assertEquals(2, results.get(2).getIndex());
+        assertStored(results.get(2).getId(), "c");
+    }
+
+    @Test
+    public void testNotAnArray() {
+
+        for (String body : new String[]{"{\"name\":\"a\"}", "", "x"}) {
+            for (String path : new String[]{"/api/customers/batch", "/api/customers/batch-delete"}) {
+                webTestClient.post().uri(path)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(body)
+                        .exchange()
+                        .expectStatus().isBadRequest();
+            }
+        }
+    }
+
+    @Test
+    public void testDuplicateIdsAcrossChunks() {
+
+        // Ids in the request are ignored, so every entry is a new customer
+        String body = "[{\"id\":\"same\",\"name\":\"a\"},{\"id\":\"same\",\"name\":\"b\"},"
+                + "{\"id\":\"same\",\"name\":\"c\"}]";
+        List<BatchItemResult> created = perform("/api/customers/batch", MediaType.APPLICATION_JSON, body,
+                MediaType.APPLICATION_JSON);
+        Assert.assertEquals(3, new HashSet<>(ids(created)).size());
+        Assert.assertFalse(ids(created).contains("same"));
+
+        // The first id is in both chunks, the second one twice in the second chunk
+        String first = created.get(0).getId();
+        String second = created.get(1).getId();
+        List<String> ids = List.of(first, second, second, first);
+        List<BatchItemResult> deleted = perform("/api/customers/batch-delete", MediaType.APPLICATION_JSON, ids,
+                MediaType.APPLICATION_JSON);
+
+        Assert.assertEquals(ids, ids(deleted));
+        for (int i = 0; i < ids.size(); i++) {
+            Assert.assertEquals(i, deleted.get(i).getIndex());
+            Assert.assertEquals(BatchItemResult.Status.DELETED, deleted.get(i).getStatus());
+        }
+        assertStored(first, null);
+        assertStored(second, null);
+        assertStored(created.get(2).getId(), "c");
+    }
+
+    @Test
+    public void testMalformedEntry() {
+
+        // Malformed at a chunk boundary, in the middle of a chunk, a value of the wrong type and a truncated body
+        String[] bodies = {
+                "[{\"name\":\"a\"},{\"name\":\"b\"},{\"name\":},{\"name\":\"d\"}]",
+                "[{\"name\":\"a\"},{\"name\":\"b\"},{\"name\":\"c\"},{\"name\" \"d\"},{\"name\":\"e\"}]",
+                "[{\"name\":\"a\"},{\"name\":\"b\"},{\"name\":\"c\"},{\"regDate\":\"not a date\"}]",
+                "[{\"name\":\"a\"},{\"name\":\"b\"},{\"name\":\"c\"}"};
+        int[] written = {2, 3, 3, 3};
+
+        for (int b = 0; b < bodies.length; b++) {
+            List<BatchItemResult> results = perform("/api/customers/batch", MediaType.APPLICATION_JSON, bodies[b],
+                    MediaType.APPLICATION_NDJSON);
+
+            Assert.assertEquals(bodies[b], written[b] + 1, results.size());
+            for (int i = 0; i < written[b]; i++) {
+                Assert.assertEquals(BatchItemResult.Status.CREATED, results.get(i).getStatus());
+                assertStored(results.get(i).getId(), String.valueOf((char) ('a' + i)));
+            }
+            BatchItemResult error = results.get(written[b]);
+            Assert.assertEquals(written[b], error.getIndex());
+            Assert.assertEquals(BatchItemResult.Status.FAILED, error.getStatus());
+            Assert.assertNull(error.getId());
+            Assert.assertTrue(error.getError(), error.getError().startsWith("Malformed request body: "));
+        }
+
+        List<BatchItemResult> results = perform("/api/customers/batch-delete", MediaType.APPLICATION_JSON,
+                "[\"x\",\"y\",[\"z\"]]", MediaType.APPLICATION_JSON);
+        Assert.assertEquals(List.of(BatchItemResult.Status.DELETED, BatchItemResult.Status.DELETED,
+                BatchItemResult.Status.FAILED), results.stream().map(BatchItemResult::getStatus).toList());
+    }
+
+    @Test
+    public void testDeleteAll() {
+
+        List<BatchItemResult> created = perform("/api/customers/batch", MediaType.APPLICATION_JSON,
+                "[{\"name\":\"a\"},{\"name\":\"b\"},{\"name\":\"c\"}]", MediaType.APPLICATION_JSON);
+
+        List<BatchItemResult> deleted = webTestClient.delete().uri("/api/customers?all=true")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(BatchItemResult.class).getResponseBody().collectList().block();
+        Assert.assertTrue(ids(deleted).containsAll(ids(created)));
+        for (int i = 0; i < deleted.size(); i++) {
+            Assert.assertEquals(i, deleted.get(i).getIndex());
+            Assert.assertEquals(BatchItemResult.Status.DELETED, deleted.get(i).getStatus());
+        }
+
+        webTestClient.get().uri("/api/customers")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().json("[]");
+    }
+
+    private List<BatchItemResult> perform(String path, MediaType contentType, Object body, MediaType accept) {
+        return webTestClient.post().uri(path)
+                .contentType(contentType)
+                .accept(accept)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(accept)
+                .returnResult(BatchItemResult.class).getResponseBody().collectList().block();
+    }
+
+    /**
+     * @param name {@code null} if the customer must not exist
+     */
+    private void assertStored(String id, String name) {
+        Customer customer = webTestClient.get().uri("/api/customers/" + id)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Customer.class).returnResult().getResponseBody();
+        Assert.assertEquals(name, customer != null ? customer.getName() : null);
+    }
+
+    private static List<String> ids(List<BatchItemResult> results) {
+        return results.stream().map(BatchItemResult::getId).toList();
+    }
+
+    private static Customer customer(String name) {
+        Customer customer = new Customer();
+        customer.setName(name);
+        return customer;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.benchmark;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.amazon.customerService.model.Customer;
+import com.amazon.customerService.repository.CustomerCodec;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * Compares {@link CustomerCodec} with the previous SimpleDateFormat based conversion (reproduced below).
+ * Run with {@code -prof gc} (the default in the benchmark profile) to see bytes allocated per operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CustomerCodecBenchmark {
+
+    private final SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSXXX");
+
+    private Customer customer;
+    private Map<String, AttributeValue> item;
+
+    @Setup
+    public void setup() {
+        customer = new Customer();
+        customer.setId("7f1b6c1e-36a4-4b0c-9a5e-2f3c1d2e4b5a");
+        customer.setName("John Doe");
+        customer.setEmail("john.doe@test.com");
+        customer.setAccountNumber("123456");
+        customer.setRegDate(new Date());
+
+        item = CustomerCodec.toItem(customer);
+    }
+
+    @Benchmark
+    public Map<String, AttributeValue> encodeLegacy() {
+        Map<String, AttributeValue> item = new HashMap<>();
+
+        item.put("Id", AttributeValue.builder().s(customer.getId()).build());
+        item.put("Name", AttributeValue.builder().s(customer.getName()).build());
+        item.put("Email", AttributeValue.builder().s(customer.getEmail()).build());
+        item.put("AccountNumber", AttributeValue.builder().s(customer.getAccountNumber()).build());
+        item.put("RegistrationDate", AttributeValue.builder().s(sdf.format(customer.getRegDate())).build());
+
+        return item;
+    }
+
+    @Benchmark
+    public Map<String, AttributeValue> encodeCodec() {
+        return CustomerCodec.toItem(customer);
+    }
+
+    @Benchmark
+    public Customer decodeLegacy() throws ParseException {
+        Customer customer = new Customer();
+
+        customer.setAccountNumber(item.get("AccountNumber").s());
+        customer.setEmail(item.get("Email").s());
+        customer.setAccountNumber(item.get("AccountNumber").s());
+        customer.setId(item.get("Id").s());
+        customer.setRegDate(sdf.parse(item.get("RegistrationDate").s()));
+
+        return customer;
+    }
+
+    @Benchmark
+    public Customer decodeCodec() {
+        return CustomerCodec.fromItem(item);
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.amazon.customerService.CustomerServiceApplication;
+import com.amazon.customerService.model.Customer;
+import com.amazon.customerService.repository.CustomerRepository;
+import com.amazon.customerService.repository.DynamoDbClientFactory;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+/**
+ * Latency of an email lookup through the {@value CustomerRepository#EMAIL_INDEX} index compared with a
+ * full scan that filters on the email, as the table grows to {@code tableSize} customers. The repository
+ * runs in the benchmark JVM in the {@code local} profile, which creates the table with its indexes, and
+ * expects a DynamoDB Local instance at {@code DYNAMODB_ENDPOINT} (default {@code http://localhost:8000/}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CustomerQueryLatencyBenchmark {
+
+    private static final String TABLE_NAME = "CustomerQueryLatencyBenchmark";
+    private static final String TARGET_EMAIL = "target@test.com";
+
+    @Param({"100", "1000", "5000"})
+    public int tableSize;
+
+    private ConfigurableApplicationContext context;
+    private CustomerRepository repository;
+
+    @Setup
+    public void setup() {
+        String endpoint = System.getenv().getOrDefault("DYNAMODB_ENDPOINT", "http://localhost:8000/");
+        context = new SpringApplicationBuilder(CustomerServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("local")
+                .properties("logging.level.root=WARN",
+                        "amazon.dynamodb.endpoint=" + endpoint,
+                        "table.name=" + TABLE_NAME)
+                .run();
+        repository = context.getBean(CustomerRepository.class);
+
+        try (Stream<String> ids = repository.streamAllIds()) {
+            repository.tryDeleteAll(ids.toList());
+        }
+        List<Customer> customers = new ArrayList<>(tableSize);
+        customers.add(createCustomer(TARGET_EMAIL));
+        for (int i = 1; i < tableSize; i++) {
+            customers.add(createCustomer("customer" + i + "@test.com"));
+        }
+        repository.saveAll(customers);
+    }
+
+    @TearDown
+    public void tearDown() {
+        try (DynamoDbClient client = context.getBean(DynamoDbClientFactory.class).createClient()) {
+            client.deleteTable(builder -> builder.tableName(TABLE_NAME));
+        }
+        context.close();
+    }
+
+    @Benchmark
+    public List<Customer> query() {
+        return repository.findByEmail(TARGET_EMAIL);
+    }
+
+    @Benchmark
+    public List<Customer> scan() {
+        try (Stream<Customer> customers = repository.streamAll()) {
+            return customers.filter(customer -> TARGET_EMAIL.equals(customer.getEmail()))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static Customer createCustomer(String email) {
+        Customer customer = new Customer();
+        customer.setAccountNumber("111111");
+        customer.setEmail(email);
+        customer.setName("John Doe");
+        return customer;
+    }
+}
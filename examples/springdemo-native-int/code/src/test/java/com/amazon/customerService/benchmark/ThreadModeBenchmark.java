@@ -0,0 +1,114 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Serves {@code concurrency} simultaneous requests that each block for 10 ms (a stand-in for a DynamoDB
+ * round trip), and reports the time until all of them are done:
+ * <ul>
+ * <li>{@code platform}: a pool of 200 platform threads, Tomcat's default {@code server.tomcat.threads.max}</li>
+ * <li>{@code virtual}: a virtual thread per request, as with {@code spring.threads.virtual.enabled}</li>
+ * <li>{@code virtual-pinned}: the same, but blocking inside a {@code synchronized} block, which pins the
+ * carrier thread (Java 23) and limits concurrency to the number of carriers</li>
+ * </ul>
+ * Throughput is {@code concurrency} divided by the reported time. Memory per concurrent request: with
+ * {@code -prof gc} (the default in the benchmark profile) {@code gc.alloc.rate.norm} divided by
+ * {@code concurrency} shows the heap used by a virtual thread; platform thread stacks are native memory, see
+ * {@code -jvmArgsAppend -XX:NativeMemoryTracking=summary} and {@code jcmd <pid> VM.native_memory}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ThreadModeBenchmark {
+
+    @Param({"platform", "virtual", "virtual-pinned"})
+    public String mode;
+
+    @Param({"200", "2000"})
+    public int concurrency;
+
+    // Shared so that the JIT cannot elide the locking (a local lock object would not escape)
+    private final Object[] locks = new Object[4096];
+
+    private ExecutorService executor;
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+        executor = "platform".equals(mode)
+                ? Executors.newFixedThreadPool(200)
+                : Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public int serveConcurrentRequests() throws InterruptedException, ExecutionException {
+        boolean pinned = "virtual-pinned".equals(mode);
+        List<Future<Integer>> requests = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            Object lock = locks[i % locks.length];
+            requests.add(executor.submit(() -> pinned ? blockPinned(lock) : block()));
+        }
+
+        int served = 0;
+        for (Future<Integer> request : requests) {
+            served += request.get();
+        }
+        return served;
+    }
+
+    private static int block() throws InterruptedException {
+        Thread.sleep(10);
+        return 1;
+    }
+
+    private static int blockPinned(Object lock) throws InterruptedException {
+        synchronized (lock) {
+            Thread.sleep(10);
+        }
+        return 1;
+    }
+}
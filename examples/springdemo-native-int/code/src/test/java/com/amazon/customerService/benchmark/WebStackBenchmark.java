@@ -0,0 +1,155 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.ClassUtils;
+
+import com.amazon.customerService.CustomerServiceApplication;
+
+/**
+ * Side-by-side load test of the servlet edition of the API (Tomcat) and the reactive edition (WebFlux on
+ * Reactor Netty): each invocation sends {@code connections} concurrent {@code GET /api/customers/{id}}
+ * requests, one per HTTP connection, and waits for all responses. Throughput is {@code connections} divided
+ * by the reported time. The application runs in the benchmark JVM in the {@code local} profile and expects a
+ * DynamoDB Local instance at {@code DYNAMODB_ENDPOINT} (default {@code http://localhost:8000/}); with
+ * {@code -p store=memory} it uses the in-memory store instead, which leaves only the web stacks to compare.
+ * The reactive stack needs the Maven profile {@code reactive}, e.g.
+ * {@code mvn -Pprod,reactive,benchmark test-compile exec:exec -Djmh.include=WebStackBenchmark}.
+ * <p>
+ * Memory per connection: after the first round, the setup prints the growth of the heap (after GC) and of
+ * the thread count divided by {@code connections}, with the connections still open. Client and server share
+ * the JVM, but the client's share is the same for both stacks. {@code -prof gc} adds the allocations per
+ * round.
+ * <p>
+ * Restore time is not measured here, as it needs a CRaC JDK and a checkpoint: build both images
+ * ({@code MAVEN_PROFILES=prod,reactive}), take checkpoints with {@code checkpoint.sh} with and without
+ * {@code REACTIVE=true}, and compare the "Restored CustomerServiceApplication in ..." line that Spring Boot
+ * logs when {@code run-service-crac.sh} restores them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WebStackBenchmark {
+
+    private static final String TABLE_NAME = "CustomerWebStackBenchmark";
+
+    @Param({"servlet", "reactive"})
+    public String stack;
+
+    @Param({"100", "1000"})
+    public int connections;
+
+    @Param({"dynamodb"})
+    public String store;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private HttpRequest getCustomer;
+
+    @Setup
+    public void setup() throws Exception {
+        boolean reactive = "reactive".equals(stack);
+        if (reactive && !ClassUtils.isPresent("org.springframework.web.reactive.DispatcherHandler", null)) {
+            throw new IllegalStateException("The reactive stack needs the Maven profile reactive");
+        }
+
+        String endpoint = System.getenv().getOrDefault("DYNAMODB_ENDPOINT", "http://localhost:8000/");
+        String profile = "memory".equals(store) ? "memory" : "local";
+        context = new SpringApplicationBuilder(CustomerServiceApplication.class)
+                .profiles(reactive ? new String[]{profile, "reactive"} : new String[]{profile})
+                .properties("server.port=0",
+                        "logging.level.root=WARN",
+                        "amazon.dynamodb.endpoint=" + endpoint,
+                        "table.name=" + TABLE_NAME,
+                        // Enough DynamoDB connections for every request in flight
+                        "dynamodb.http.max-connections=" + connections)
+                .run();
+        String port = context.getEnvironment().getProperty("local.server.port");
+        String baseUri = "http://localhost:" + port + "/api/customers";
+
+        // One connection per concurrent request
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        String created = client.send(HttpRequest.newBuilder(URI.create(baseUri))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(
+                                "{\"name\":\"John Doe\",\"email\":\"john.doe@test.com\",\"accountNumber\":\"123456\"}"))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString()).body();
+        String id = created.replaceAll(".*\"id\":\"([^\"]+)\".*", "$1");
+        getCustomer = HttpRequest.newBuilder(URI.create(baseUri + "/" + id)).GET().build();
+
+        long heap = usedHeapAfterGc();
+        int threads = ManagementFactory.getThreadMXBean().getThreadCount();
+        sendConcurrentRequests();
+        System.out.printf("%s, %d connections: %.1f KB heap and %.2f threads per connection%n", stack, connections,
+                (usedHeapAfterGc() - heap) / 1024.0 / connections,
+                (ManagementFactory.getThreadMXBean().getThreadCount() - threads) / (double) connections);
+    }
+
+    @TearDown
+    public void tearDown() {
+        client.close();
+        context.close();
+    }
+
+    @Benchmark
+    public int sendConcurrentRequests() {
+        List<CompletableFuture<HttpResponse<Void>>> responses = new ArrayList<>(connections);
+        for (int i = 0; i < connections; i++) {
+            responses.add(client.sendAsync(getCustomer, HttpResponse.BodyHandlers.discarding()));
+        }
+
+        int ok = 0;
+        for (CompletableFuture<HttpResponse<Void>> response : responses) {
+            if (response.join().statusCode() == 200) {
+                ok++;
+            }
+        }
+        return ok;
+    }
+
+    private static long usedHeapAfterGc() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.controller;
+
+import com.amazon.customerService.model.BatchItemResult;
+import com.amazon.customerService.model.Customer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Drives the bulk endpoints through MockMvc against the in-memory store ({@code mode=memory}), with chunks
+ * of 2 entries so that every request spans several chunks. Has its own application context, as the
+ * truncate empties the store.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("memory")
+@TestPropertySource(properties = "batch.bulk.chunk-size=2")
+public class CustomerBatchControllerTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Test
+    public void testCreateAcrossChunks() throws Exception {
+
+        // One entry short of, exactly at and one entry past a chunk boundary
+        for (int count = 3; count <= 5; count++) {
+            List<Customer> customers = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                customers.add(customer("Bulk " + i));
+            }
+            List<BatchItemResult> results = perform(post("/api/customers/batch")
+                    .content(objectMapper.writeValueAsString(customers)), false);
+
+            Assert.assertEquals(count, results.size());
+            for (int i = 0; i < count; i++) {
+                Assert.assertEquals(i, results.get(i).getIndex());
+                Assert.assertEquals(BatchItemResult.Status.CREATED, results.get(i).getStatus());
+                assertStored(results.get(i).getId(), "Bulk " + i);
+            }
+        }
+    }
+
+    @Test
+    public void testCreateNdjson() throws Exception {
+
+        List<BatchItemResult> results = perform(post("/api/customers/batch")
+                .content("[{\"name\":\"a\"},null,{\"name\":\"c\"}]"), true);
+
+        Assert.assertEquals(3, results.size());
+        Assert.assertEquals(BatchItemResult.Status.CREATED, results.get(0).getStatus());
+        Assert.assertEquals(BatchItemResult.Status.FAILED, results.get(1).getStatus());
+        Assert.assertEquals("Invalid entry", results.get(1).getError());
+        Assert.assertNull(results.get(1).getId());
+        Assert.assertEquals(2, results.get(2).getIndex());
+        assertStored(results.get(2).getId(), "c");
+    }
+
+    @Test
+    public void testDuplicateIdsAcrossChunks() throws Exception {
+
+        // Ids in the request are ignored, so every entry is a new customer
+        String body = "[{\"id\":\"same\",\"name\":\"a\"},{\"id\":\"same\",\"name\":\"b\"},"
+                + "{\"id\":\"same\",\"name\":\"c\"}]";
+        List<BatchItemResult> created = perform(post("/api/customers/batch").content(body), false);
+        Assert.assertEquals(3, new HashSet<>(ids(created)).size());
+        Assert.assertFalse(ids(created).contains("same"));
+
+        // The first id is in both chunks, the second one twice in the second chunk
+        String first = created.get(0).getId();
+        String second = created.get(1).getId();
+        List<String> ids = List.of(first, second, second, first);
+        List<BatchItemResult> deleted = perform(post("/api/customers/batch-delete")
+                .content(objectMapper.writeValueAsString(ids)), false);
+
+        Assert.assertEquals(ids, ids(deleted));
+        for (int i = 0; i < ids.size(); i++) {
+            Assert.assertEquals(i, deleted.get(i).getIndex());
+            Assert.assertEquals(BatchItemResult.Status.DELETED, deleted.get(i).getStatus());
+        }
+        assertStored(first, null);
+        assertStored(second, null);
+        assertStored(created.get(2).getId(), "c");
+    }
+
+    @Test
+    public void testMalformedEntry() throws Exception {
+
+        // Malformed at a chunk boundary, in the middle of a chunk, a value of the wrong type and a truncated body
+        String[] bodies = {
+                "[{\"name\":\"a\"},{\"name\":\"b\"},{\"name\":},{\"name\":\"d\"}]",
+                "[{\"name\":\"a\"},{\"name\":\"b\"},{\"name\":\"c\"},{\"name\" \"d\"},{\"name\":\"e\"}]",
+                "[{\"name\":\"a\"},{\"name\":\"b\"},{\"name\":\"c\"},{\"regDate\":\"not a date\"}]",
+                "[{\"name\":\"a\"},{\"name\":\"b\"},{\"name\":\"c\"}"};
+        int[] written = {2, 3, 3, 3};
+
+        for (int b = 0; b < bodies.length; b++) {
+            for (boolean ndjson : new boolean[]{false, true}) {
+                List<BatchItemResult> results = perform(post("/api/customers/batch").content(bodies[b]), ndjson);
+
+                Assert.assertEquals(bodies[b], written[b] + 1, results.size());
+                for (int i = 0; i < written[b]; i++) {
+                    Assert.assertEquals(BatchItemResult.Status.CREATED, results.get(i).getStatus());
+                    assertStored(results.get(i).getId(), String.valueOf((char) ('a' + i)));
+                }
+                BatchItemResult error = results.get(written[b]);
+                Assert.assertEquals(written[b], error.getIndex());
+                Assert.assertEquals(BatchItemResult.Status.FAILED, error.getStatus());
+                Assert.assertNull(error.getId());
+                Assert.assertTrue(error.getError(), error.getError().startsWith("Malformed request body: "));
+            }
+        }
+
+        List<BatchItemResult> results = perform(post("/api/customers/batch-delete")
+                .content("[\"x\",\"y\",[\"z\"]]"), false);
+        Assert.assertEquals(List.of(BatchItemResult.Status.DELETED, BatchItemResult.Status.DELETED,
+                BatchItemResult.Status.FAILED), results.stream().map(BatchItemResult::getStatus).toList());
+    }
+
+    @Test
+    public void testNotAnArray() throws Exception {
+
+        for (String body : new String[]{"{\"name\":\"a\"}", "", "x"}) {
+            for (String path : new String[]{"/api/customers/batch", "/api/customers/batch-delete"}) {
+                mockMvc.perform(post(path).contentType(MediaType.APPLICATION_JSON).content(body))
+                        .andExpect(status().isBadRequest());
+            }
+        }
+    }
+
+    @Test
+    public void testDeleteAll() throws Exception {
+
+        List<BatchItemResult> created = perform(post("/api/customers/batch")
+                .content("[{\"name\":\"a\"},{\"name\":\"b\"},{\"name\":\"c\"}]"), false);
+
+        List<BatchItemResult> deleted = perform(delete("/api/customers").param("all", "true"), true);
+        Assert.assertTrue(ids(deleted).containsAll(ids(created)));
+        for (int i = 0; i < deleted.size(); i++) {
+            Assert.assertEquals(i, deleted.get(i).getIndex());
+            Assert.assertEquals(BatchItemResult.Status.DELETED, deleted.get(i).getStatus());
+        }
+
+        mockMvc.perform(get("/api/customers"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[]"));
+    }
+
+    private List<BatchItemResult> perform(MockHttpServletRequestBuilder request, boolean ndjson) throws Exception {
+        String response = mockMvc.perform(request.contentType(MediaType.APPLICATION_JSON)
+                        .accept(ndjson ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(ndjson ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON))
+                .andReturn().getResponse().getContentAsString();
+
+        if (!ndjson) {
+            return List.of(objectMapper.readValue(response, BatchItemResult[].class));
+        }
+        List<BatchItemResult> results = new ArrayList<>();
+        for (String line : response.split("\n")) {
+            results.add(objectMapper.readValue(line, BatchItemResult.class));
+        }
+        return results;
+    }
+
+    /**
+     * @param name {@code null} if the customer must not exist
+     */
+    private void assertStored(String id, String name) throws Exception {
+        String response = mockMvc.perform(get("/api/customers/" + id))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        if (name == null) {
+            Assert.assertEquals("", response);
+        } else {
+            Assert.assertEquals(name, objectMapper.readValue(response, Customer.class).getName());
+        }
+    }
+
+    private static List<String> ids(List<BatchItemResult> results) {
+        return results.stream().map(BatchItemResult::getId).toList();
+    }
+
+    private static Customer customer(String name) {
+        Customer customer = new Customer();
+        customer.setName(name);
+        return customer;
+    }
+}
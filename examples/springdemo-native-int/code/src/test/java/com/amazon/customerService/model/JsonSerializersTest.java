@@ -0,0 +1,181 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.model;
+
+import com.amazon.customerService.model.metrics.ContainerMetric;
+import com.amazon.customerService.model.metrics.MetricWrapper;
+import com.amazon.customerService.model.metrics.PodMetric;
+import com.amazon.customerService.model.metrics.TaskMetric;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * Compares {@link CustomerSerializer} and {@code MetricWrapperSerializer} byte for byte with Jackson's
+ * reflective bean serializers, which a mix-in switches back on. Runs with a mapper configured like Spring
+ * Boot's (ISO dates) and a plain one (timestamps).
+ */
+public class JsonSerializersTest {
+
+    // StdDateFormat switches calendars and layout at these instants, see CustomerSerializer
+    private static final long GREGORIAN_CUTOVER_MILLIS = -12219292800000L;
+    private static final long YEAR_10000_MILLIS = 253402300800000L;
+
+    @JsonSerialize(using = JsonSerializer.None.class)
+    private interface Reflective {
+    }
+
+    @Test
+    public void testEveryPropertyIsWritten() throws IOException {
+
+        // A property added to the classes must also be added to the serializers
+        assertWritesAllProperties(fullCustomer(new Date()), Customer.class);
+        assertWritesAllProperties(fullMetrics(), MetricWrapper.class);
+    }
+
+    @Test
+    public void testCustomers() throws IOException {
+
+        for (ObjectMapper mapper : mappers()) {
+            ObjectMapper reflective = reflective(mapper);
+
+            assertSameJson(mapper, reflective, new Customer());
+            assertSameJson(mapper, reflective, fullCustomer(new Date()));
+            assertSameJson(mapper, reflective, List.of(fullCustomer(new Date(0)), new Customer()));
+
+            Customer special = fullCustomer(null);
+            special.setName("Quote \" backslash \\ control \u0001 unicode é中😀");
+            assertSameJson(mapper, reflective, special);
+        }
+    }
+
+    @Test
+    public void testDates() throws IOException {
+
+        List<Long> dates = new ArrayList<>(List.of(0L, -1L, 1L, Long.MIN_VALUE, Long.MAX_VALUE,
+                GREGORIAN_CUTOVER_MILLIS - 1, GREGORIAN_CUTOVER_MILLIS, GREGORIAN_CUTOVER_MILLIS + 1,
+                YEAR_10000_MILLIS - 1, YEAR_10000_MILLIS, YEAR_10000_MILLIS + 1));
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            // Mostly between the year 0 and 12000, some anywhere
+            dates.add(i % 10 == 0 ? random.nextLong() : random.nextLong(-62_167_219_200_000L, 316_539_561_600_000L));
+        }
+
+        for (ObjectMapper mapper : mappers()) {
+            ObjectMapper reflective = reflective(mapper);
+            for (long millis : dates) {
+                Customer customer = new Customer();
+                customer.setRegDate(new Date(millis));
+                Assert.assertEquals("Date " + millis, reflective.writeValueAsString(customer),
+                        mapper.writeValueAsString(customer));
+            }
+        }
+    }
+
+    @Test
+    public void testMetrics() throws IOException {
+
+        for (ObjectMapper mapper : mappers()) {
+            ObjectMapper reflective = reflective(mapper);
+
+            assertSameJson(mapper, reflective, new MetricWrapper());
+            assertSameJson(mapper, reflective, fullMetrics());
+            assertSameJson(mapper, reflective, new MetricWrapper(new ContainerMetric(), new TaskMetric(),
+                    new PodMetric(), null, null, null));
+        }
+    }
+
+    /**
+     * Boot's mapper, a plain one, and ones that take the fallback paths of {@link CustomerSerializer}.
+     */
+    private static List<ObjectMapper> mappers() {
+        ObjectMapper boot = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS,
+                        SerializationFeature.WRITE_DURATIONS_AS_TIMESTAMPS)
+                .build();
+        ObjectMapper plain = new ObjectMapper().registerModule(new JavaTimeModule());
+
+        ObjectMapper withTimeZone = boot.copy().setTimeZone(TimeZone.getTimeZone("Europe/Berlin"));
+        ObjectMapper withDateFormat = boot.copy().setDateFormat(new SimpleDateFormat("yyyy-MM-dd"));
+
+        return List.of(boot, plain, withTimeZone, withDateFormat);
+    }
+
+    private static ObjectMapper reflective(ObjectMapper mapper) {
+        return mapper.copy()
+                .addMixIn(Customer.class, Reflective.class)
+                .addMixIn(MetricWrapper.class, Reflective.class);
+    }
+
+    private static void assertSameJson(ObjectMapper mapper, ObjectMapper reflective, Object value)
+            throws IOException {
+        Assert.assertEquals(reflective.writeValueAsString(value), mapper.writeValueAsString(value));
+    }
+
+    private static void assertWritesAllProperties(Object value, Class<?> type) throws IOException {
+        ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        JavaType javaType = mapper.constructType(type);
+
+        List<String> properties = new ArrayList<>();
+        for (BeanPropertyDefinition property : mapper.getSerializationConfig().introspect(javaType).findProperties()) {
+            properties.add(property.getName());
+        }
+
+        List<String> written = new ArrayList<>();
+        for (Iterator<String> it = mapper.valueToTree(value).fieldNames(); it.hasNext(); ) {
+            written.add(it.next());
+        }
+
+        properties.sort(null);
+        written.sort(null);
+        Assert.assertEquals(type.getSimpleName(), properties, written);
+    }
+
+    private static Customer fullCustomer(Date regDate) {
+        Customer customer = new Customer();
+        customer.setId("0192f5e4-8a1b-7c3d-9e2f-123456789abc");
+        customer.setName("John Doe");
+        customer.setEmail("john.doe@test.com");
+        customer.setAccountNumber("111111");
+        customer.setRegDate(regDate != null ? regDate : new Date(1_700_000_000_123L));
+        return customer;
+    }
+
+    private static MetricWrapper fullMetrics() {
+        Instant now = Instant.ofEpochMilli(1_700_000_000_123L);
+        return new MetricWrapper(new ContainerMetric(now, now.plusMillis(1)),
+                new TaskMetric(now, now.plusSeconds(1), "arn:aws:ecs:task"), new PodMetric(now, now, "pod-1"),
+                Duration.ofMillis(1234), now, 2);
+    }
+}
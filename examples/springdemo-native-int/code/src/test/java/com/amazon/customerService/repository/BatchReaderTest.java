@@ -0,0 +1,111 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.repository;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Retries and chunking of BatchGetItem, against a stubbed DynamoDB client that finds every key.
+ */
+public class BatchReaderTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    // Returns the unprocessed keys of a batch
+    private Function<List<Map<String, AttributeValue>>, List<Map<String, AttributeValue>>> unprocessed = keys -> List.of();
+
+    private final StubDynamoDbClient client = new StubDynamoDbClient(request -> {
+        List<Map<String, AttributeValue>> keys = ((BatchGetItemRequest) request).requestItems().get("Customer").keys();
+        List<Map<String, AttributeValue>> left = unprocessed.apply(keys);
+        List<Map<String, AttributeValue>> found = keys.stream().filter(key -> !left.contains(key)).toList();
+        return BatchGetItemResponse.builder()
+                .responses(Map.of("Customer", found))
+                .unprocessedKeys(left.isEmpty() ? Map.of() : Map.of("Customer", KeysAndAttributes.builder().keys(left).build()))
+                .build();
+    });
+
+    private final BatchReader reader = new BatchReader(client, "Customer", executor, 3, 1);
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testRetriesUnprocessedKeys() {
+
+        List<Map<String, AttributeValue>> keys = keys(3);
+        // DynamoDB leaves the last key unprocessed the first time
+        unprocessed = batch -> batch.size() == 3 ? batch.subList(2, 3) : List.of();
+
+        Assert.assertEquals(Set.copyOf(keys), Set.copyOf(reader.read(keys)));
+
+        List<BatchGetItemRequest> sent = client.requests(BatchGetItemRequest.class);
+        Assert.assertEquals(2, sent.size());
+        Assert.assertEquals(keys.subList(2, 3), sent.get(1).requestItems().get("Customer").keys());
+    }
+
+    @Test
+    public void testFailsWhenKeysStayUnprocessed() {
+
+        unprocessed = batch -> batch.subList(0, 1);
+
+        IllegalStateException exc = Assertions.assertThrows(IllegalStateException.class, () -> reader.read(keys(3)));
+        Assert.assertEquals("1 keys could not be read after 3 attempts", exc.getMessage());
+        Assert.assertEquals(3, client.requests(BatchGetItemRequest.class).size());
+    }
+
+    @Test
+    public void testSplitsIntoChunksOf100() {
+
+        List<Map<String, AttributeValue>> keys = keys(250);
+
+        Assert.assertEquals(Set.copyOf(keys), Set.copyOf(reader.read(keys)));
+
+        List<Integer> sizes = client.requests(BatchGetItemRequest.class).stream()
+                .map(request -> request.requestItems().get("Customer").keys().size())
+                .sorted()
+                .toList();
+        Assert.assertEquals(List.of(50, 100, 100), sizes);
+        // Every key is requested exactly once
+        Assert.assertEquals(250, client.requests(BatchGetItemRequest.class).stream()
+                .flatMap(request -> request.requestItems().get("Customer").keys().stream())
+                .collect(Collectors.toSet())
+                .size());
+    }
+
+    private static List<Map<String, AttributeValue>> keys(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(id -> Map.of("Id", AttributeValue.fromS(String.valueOf(id))))
+                .toList();
+    }
+}
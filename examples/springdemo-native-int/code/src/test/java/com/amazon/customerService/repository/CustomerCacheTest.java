@@ -0,0 +1,128 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.repository;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+
+import java.util.Map;
+
+/**
+ * The customer cache in front of {@link CustomerRepository#findById}, counting the GetItem requests that
+ * reach a stubbed DynamoDB client. Only id {@code 1} exists.
+ */
+public class CustomerCacheTest {
+
+    private final StubDynamoDbClient client = new StubDynamoDbClient(request -> {
+        if (request instanceof GetItemRequest get) {
+            return "1".equals(get.key().get("Id").s())
+                    ? GetItemResponse.builder().item(Map.of("Id", AttributeValue.fromS("1"))).build()
+                    : GetItemResponse.builder().build();
+        }
+        return DeleteItemResponse.builder().build();
+    });
+
+    private CustomerRepository repository;
+
+    @AfterEach
+    public void tearDown() {
+        repository.destroy();
+    }
+
+    @Test
+    public void testCachesReadsUntilInvalidated() {
+
+        repository = repository(new MockEnvironment());
+
+        Assert.assertEquals("1", repository.findById("1").getId());
+        Assert.assertEquals("1", repository.findById("1").getId());
+        Assert.assertEquals(1, gets());
+
+        // A write invalidates the entry
+        repository.deleteById("1");
+        repository.findById("1");
+        Assert.assertEquals(2, gets());
+    }
+
+    @Test
+    public void testDoesNotCacheMissingCustomers() {
+
+        repository = repository(new MockEnvironment());
+
+        Assert.assertNull(repository.findById("2"));
+        Assert.assertNull(repository.findById("2"));
+        Assert.assertEquals(2, gets());
+    }
+
+    @Test
+    public void testExpiresAfterTtl() throws InterruptedException {
+
+        repository = repository(new MockEnvironment().withProperty("cache.customer.ttl", "50ms"));
+
+        repository.findById("1");
+        Thread.sleep(100);
+        repository.findById("1");
+        Assert.assertEquals(2, gets());
+    }
+
+    @Test
+    public void testFlushesOnCheckpointOnlyIfConfigured() {
+
+        repository = repository(new MockEnvironment());
+        repository.findById("1");
+        cache().beforeCheckpoint(null);
+        repository.findById("1");
+        Assert.assertEquals(1, gets());
+        repository.destroy();
+
+        client.clear();
+        repository = repository(new MockEnvironment().withProperty("cache.customer.checkpoint", "flush"));
+        repository.findById("1");
+        cache().beforeCheckpoint(null);
+        repository.findById("1");
+        Assert.assertEquals(2, gets());
+    }
+
+    @Test
+    public void testDisabled() {
+
+        repository = repository(new MockEnvironment().withProperty("cache.customer.enabled", "false"));
+
+        repository.findById("1");
+        repository.findById("1");
+        Assert.assertEquals(2, gets());
+    }
+
+    private CustomerRepository repository(MockEnvironment environment) {
+        environment.setProperty("cache.customer.enabled", environment.getProperty("cache.customer.enabled", "true"));
+        return client.repository(environment);
+    }
+
+    private CustomerCache cache() {
+        return (CustomerCache) ReflectionTestUtils.getField(repository, "customerCache");
+    }
+
+    private int gets() {
+        return client.requests(GetItemRequest.class).size();
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.repository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+public class CustomerIdFilterTest {
+
+    @Test
+    public void testFalsePositiveRate() {
+
+        CustomerIdFilter.Bloom bloom = new CustomerIdFilter.Bloom(10_000, 0.01);
+        List<String> ids = IntStream.range(0, 10_000).mapToObj(i -> UUID.randomUUID().toString()).toList();
+        ids.forEach(bloom::add);
+
+        // No false negatives
+        Assert.assertTrue(ids.stream().allMatch(bloom::mightContain));
+
+        long falsePositives = IntStream.range(0, 100_000)
+                .filter(i -> bloom.mightContain(UUID.randomUUID().toString()))
+                .count();
+        Assert.assertTrue("false positives: " + falsePositives, falsePositives < 2_000);
+    }
+
+    @Test
+    public void testPassesEverythingUntilBuilt() throws InterruptedException {
+
+        CustomerIdFilter filter = new CustomerIdFilter();
+        ReflectionTestUtils.setField(filter, "environment", new MockEnvironment()
+                .withProperty("id-filter.enabled", "true")
+                .withProperty("id-filter.expected-insertions", "1000"));
+        ReflectionTestUtils.setField(filter, "meterRegistry", new SimpleMeterRegistry());
+        filter.init();
+
+        Assert.assertTrue(filter.mightContain("unknown"));
+
+        filter.start(() -> 2, () -> List.of("1", "2").stream());
+        try {
+            while (ReflectionTestUtils.getField(filter, "current") == null) {
+                Thread.sleep(10);
+            }
+            Assert.assertTrue(filter.mightContain("1"));
+            Assert.assertFalse(filter.mightContain("unknown"));
+
+            filter.add("unknown");
+            Assert.assertTrue(filter.mightContain("unknown"));
+
+            filter.suspend();
+            Assert.assertTrue(filter.mightContain("3"));
+        } finally {
+            filter.destroy();
+        }
+    }
+}
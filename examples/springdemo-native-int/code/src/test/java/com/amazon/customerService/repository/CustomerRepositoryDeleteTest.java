@@ -0,0 +1,88 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.repository;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableResponse;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.model.TableDescription;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Deletes go to DynamoDB even for ids that the id filter rules out, as the customer may have been created
+ * by another process. Runs against a stubbed DynamoDB client whose table is empty when the filter is built.
+ */
+public class CustomerRepositoryDeleteTest {
+
+    private final StubDynamoDbClient client = new StubDynamoDbClient(request -> {
+        if (request instanceof DescribeTableRequest) {
+            return DescribeTableResponse.builder().table(TableDescription.builder().itemCount(0L).build()).build();
+        }
+        if (request instanceof DeleteItemRequest) {
+            return DeleteItemResponse.builder().build();
+        }
+        if (request instanceof BatchWriteItemRequest) {
+            return BatchWriteItemResponse.builder().build();
+        }
+        return ScanResponse.builder().build();
+    });
+
+    private final CustomerRepository repository = client.repository(new MockEnvironment()
+            .withProperty("id-filter.enabled", "true")
+            .withProperty("id-filter.expected-insertions", "1000"));
+
+    private final CustomerIdFilter idFilter = (CustomerIdFilter) ReflectionTestUtils.getField(repository, "idFilter");
+
+    @AfterEach
+    public void tearDown() {
+        repository.destroy();
+        idFilter.destroy();
+    }
+
+    @Test
+    public void testDeletesIdsUnknownToTheFilter() throws InterruptedException {
+
+        while (ReflectionTestUtils.getField(idFilter, "current") == null) {
+            Thread.sleep(10);
+        }
+        // Lookups are still answered by the filter
+        Assert.assertNull(repository.findById("created-elsewhere"));
+        Assert.assertTrue(client.requests(GetItemRequest.class).isEmpty());
+
+        repository.deleteById("created-elsewhere");
+        Assert.assertEquals(Map.of("Id", AttributeValue.fromS("created-elsewhere")),
+                client.requests(DeleteItemRequest.class).get(0).key());
+
+        Assert.assertTrue(repository.tryDeleteAll(List.of("a", "b")).isEmpty());
+        List<WriteRequest> deletes = client.requests(BatchWriteItemRequest.class).get(0).requestItems().get("Customer");
+        Assert.assertEquals(List.of("a", "b"), deletes.stream()
+                .map(delete -> delete.deleteRequest().key().get("Id").s()).toList());
+    }
+}
@@ -15,6 +15,8 @@
 
 package com.amazon.customerService.repository;
 
+import com.amazon.customerService.exception.CustomerNotFoundException;
+import com.amazon.customerService.exception.PreconditionFailedException;
 import com.amazon.customerService.model.Customer;
 import org.junit.Assert;
 import org.junit.jupiter.api.*;
@@ -25,13 +27,14 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.context.web.WebAppConfiguration;
-import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
-import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
-import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @ExtendWith(SpringExtension.class)
 @SpringBootTest
@@ -47,33 +50,19 @@ public class CustomerRepositoryTest {
     @Autowired
     CustomerRepository repository;
     @Autowired
-    private DynamoDbEnhancedClient dynamoDbEnhancedClient;
-    private DynamoDbTable table;
+    DynamoDbClientFactory clientFactory;
     private Customer testCustomer;
 
     @BeforeAll
     public void setup() throws Exception {
 
-        // Create the table locally
-
-        table = dynamoDbEnhancedClient.table("Customer",
-                TableSchema.fromBean(Customer.class));
-
+        // The table is created by the provisioning of the local profile
         testCustomer = createCustomer();
 
-        try {
-            table.describeTable();
-        } catch (software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException exc) {
-            // Table doesn't exist
-            table.createTable();
-        }
-
-        // Find and delete all customer entries
-        List<Customer> customerList = repository.findAll();
-        System.out.println("Customerlist: " + customerList);
-        for (Customer customer : customerList) {
-            System.out.println("Customer: " + customer);
-            repository.deleteById(customer.getId());
+        // Delete all customer entries in batches
+        try (Stream<String> ids = repository.streamAllIds()) {
+            Map<String, String> failures = repository.tryDeleteAll(ids.toList());
+            Assert.assertTrue(failures.isEmpty());
         }
     }
 
@@ -117,7 +106,7 @@ public class CustomerRepositoryTest {
     public void testUpdate() {
 
         testCustomer.setName("NewName");
-        repository.save(testCustomer);
+        repository.update(testCustomer);
 
         Customer tmpCustomer = repository.findById(testCustomer.getId());
         Assert.assertEquals(testCustomer.getName(), tmpCustomer.getName());
@@ -125,6 +114,61 @@ public class CustomerRepositoryTest {
 
     @Test
     @Order(4)
+    public void testConditionalUpdate() {
+
+        Customer changes = new Customer();
+        changes.setEmail("changed@test.com");
+
+        Customer updated = repository.patch(testCustomer.getId(), changes);
+        Assert.assertEquals("changed@test.com", updated.getEmail());
+        Assert.assertEquals(testCustomer.getName(), updated.getName());
+        testCustomer.setEmail(updated.getEmail());
+
+        Assertions.assertThrows(CustomerNotFoundException.class,
+                () -> repository.patch(UUID.randomUUID().toString(), changes));
+
+        // If-Match: only the current ETag passes the condition
+        String etag = repository.findTaggedById(testCustomer.getId()).getETag();
+        testCustomer.setName("IfMatchName");
+        Assertions.assertThrows(PreconditionFailedException.class,
+                () -> repository.update(testCustomer, false, List.of("\"outdated\"")));
+        Assert.assertEquals(testCustomer, repository.update(testCustomer, false, List.of(etag)));
+        Assertions.assertThrows(PreconditionFailedException.class,
+                () -> repository.update(testCustomer, false, List.of(etag)));
+    }
+
+    @Test
+    @Order(5)
+    public void testFindByIndex() {
+
+        List<Customer> byEmail = repository.findByEmail("changed@test.com");
+        Assert.assertEquals(List.of(testCustomer), byEmail);
+
+        List<Customer> byAccountNumber = repository.findByAccountNumber(testCustomer.getAccountNumber());
+        Assert.assertTrue(byAccountNumber.contains(testCustomer));
+
+        Assert.assertTrue(repository.findByEmail("nobody@test.com").isEmpty());
+
+        // The index returns what a full scan finds (the latency comparison is CustomerQueryLatencyBenchmark)
+        try (Stream<Customer> customers = repository.streamAll()) {
+            Assert.assertEquals(customers.filter(customer -> "changed@test.com".equals(customer.getEmail()))
+                    .collect(Collectors.toList()), byEmail);
+        }
+    }
+
+    @Test
+    @Order(6)
+    public void testFindAllParallel() {
+
+        List<Customer> sequential = repository.findAll();
+        List<Customer> parallel = repository.streamAllParallel(4).collect(Collectors.toList());
+
+        Assert.assertEquals(sequential.size(), parallel.size());
+        Assert.assertTrue(parallel.containsAll(sequential));
+    }
+
+    @Test
+    @Order(7)
     public void testDelete() {
 
         repository.deleteById(testCustomer.getId());
@@ -134,8 +178,10 @@ public class CustomerRepositoryTest {
     }
 
     @AfterAll
-    public void tearDown() throws Exception {
-        table.deleteTable();
+    public void tearDown() {
+        try (DynamoDbClient client = clientFactory.createClient()) {
+            client.deleteTable(builder -> builder.tableName("Customer"));
+        }
     }
 
 }
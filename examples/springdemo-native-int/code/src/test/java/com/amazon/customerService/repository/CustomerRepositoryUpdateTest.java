@@ -0,0 +1,172 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.repository;
+
+import com.amazon.customerService.exception.CustomerNotFoundException;
+import com.amazon.customerService.exception.PreconditionFailedException;
+import com.amazon.customerService.model.Customer;
+import org.junit.Assert;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks the UpdateItem requests that updates and patches send, against a stubbed DynamoDB client.
+ */
+public class CustomerRepositoryUpdateTest {
+
+    private static final Map<String, AttributeValue> STORED = Map.of(
+            "Id", AttributeValue.fromS("1"),
+            "Name", AttributeValue.fromS("John Doe"),
+            "Email", AttributeValue.fromS("john@test.com"));
+
+    private boolean conditionFails;
+
+    private final StubDynamoDbClient client = new StubDynamoDbClient(request -> {
+        if (request instanceof GetItemRequest) {
+            return GetItemResponse.builder().item(STORED).build();
+        }
+        if (conditionFails) {
+            throw ConditionalCheckFailedException.builder().message("The conditional request failed").build();
+        }
+        // ALL_NEW: the stored item with the new values
+        UpdateItemRequest update = (UpdateItemRequest) request;
+        Map<String, AttributeValue> item = new HashMap<>(STORED);
+        update.expressionAttributeNames().forEach((name, column) -> {
+            AttributeValue value = update.expressionAttributeValues().get(":" + column);
+            if (value != null) {
+                item.put(column, value);
+            }
+        });
+        return UpdateItemResponse.builder().attributes(item).build();
+    });
+
+    private final CustomerRepository repository = client.repository(new MockEnvironment());
+
+    @AfterEach
+    public void tearDown() {
+        repository.destroy();
+    }
+
+    @Test
+    public void testPatchSetsOnlyTheGivenAttributes() {
+
+        Customer changes = new Customer();
+        changes.setEmail("changed@test.com");
+
+        Customer patched = repository.patch("1", changes);
+        Assert.assertEquals("changed@test.com", patched.getEmail());
+        Assert.assertEquals("John Doe", patched.getName());
+
+        UpdateItemRequest request = single(client.requests(UpdateItemRequest.class));
+        Assert.assertEquals("Customer", request.tableName());
+        Assert.assertEquals(Map.of("Id", AttributeValue.fromS("1")), request.key());
+        Assert.assertEquals("SET #Email = :Email", request.updateExpression());
+        Assert.assertEquals("attribute_exists(#Id)", request.conditionExpression());
+        Assert.assertEquals(Map.of("#Email", "Email", "#Id", "Id"), request.expressionAttributeNames());
+        Assert.assertEquals(Map.of(":Email", AttributeValue.fromS("changed@test.com")),
+                request.expressionAttributeValues());
+        Assert.assertEquals(ReturnValue.ALL_NEW, request.returnValues());
+
+        // Nothing read first
+        Assert.assertTrue(client.requests(GetItemRequest.class).isEmpty());
+    }
+
+    @Test
+    public void testUpdateRemovesMissingAttributes() {
+
+        Customer customer = new Customer();
+        customer.setId("1");
+        customer.setName("Jane Doe");
+
+        repository.update(customer);
+
+        // The registration date is kept when not given
+        UpdateItemRequest request = single(client.requests(UpdateItemRequest.class));
+        Assert.assertEquals("SET #Name = :Name REMOVE #Email, #AccountNumber", request.updateExpression());
+        Assert.assertEquals("attribute_exists(#Id)", request.conditionExpression());
+        Assert.assertEquals(Map.of(":Name", AttributeValue.fromS("Jane Doe")), request.expressionAttributeValues());
+    }
+
+    @Test
+    public void testIfMatchConditionsOnTheCurrentItem() {
+
+        String etag = CustomerCodec.etag(CustomerCodec.fromItem(STORED));
+        Customer customer = new Customer();
+        customer.setId("1");
+        customer.setName("Jane Doe");
+
+        repository.update(customer, false, List.of(etag));
+
+        GetItemRequest read = single(client.requests(GetItemRequest.class));
+        Assert.assertTrue(read.consistentRead());
+
+        // The update only succeeds if the item is still exactly the one whose ETag was checked
+        UpdateItemRequest request = single(client.requests(UpdateItemRequest.class));
+        Assert.assertEquals("#Id = :expectedId AND #Name = :expectedName AND #Email = :expectedEmail"
+                        + " AND attribute_not_exists(#AccountNumber) AND attribute_not_exists(#RegistrationDate)",
+                request.conditionExpression());
+        Assert.assertEquals(AttributeValue.fromS("John Doe"), request.expressionAttributeValues().get(":expectedName"));
+        Assert.assertEquals(AttributeValue.fromS("Jane Doe"), request.expressionAttributeValues().get(":Name"));
+    }
+
+    @Test
+    public void testIfMatchWithAnotherETagSendsNoUpdate() {
+
+        Customer customer = new Customer();
+        customer.setId("1");
+        customer.setName("Jane Doe");
+
+        Assertions.assertThrows(PreconditionFailedException.class,
+                () -> repository.update(customer, false, List.of("\"outdated\"")));
+        Assert.assertTrue(client.requests(UpdateItemRequest.class).isEmpty());
+    }
+
+    @Test
+    public void testConditionalCheckFailed() {
+
+        conditionFails = true;
+        Customer changes = new Customer();
+        changes.setName("Jane Doe");
+        changes.setId("1");
+
+        // Without If-Match the condition is only that the customer exists
+        Assertions.assertThrows(CustomerNotFoundException.class, () -> repository.patch("1", changes));
+
+        // With If-Match the item changed between the read and the update
+        String etag = CustomerCodec.etag(CustomerCodec.fromItem(STORED));
+        Assertions.assertThrows(PreconditionFailedException.class,
+                () -> repository.update(changes, false, List.of(etag)));
+        Assert.assertEquals(2, client.requests(UpdateItemRequest.class).size());
+    }
+
+    private static <T> T single(List<T> requests) {
+        Assert.assertEquals(1, requests.size());
+        return requests.get(0);
+    }
+}
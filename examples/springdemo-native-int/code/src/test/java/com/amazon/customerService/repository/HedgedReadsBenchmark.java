@@ -0,0 +1,80 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.repository;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Tail latency of reads from a stand-in for DynamoDB where 2% of the reads take 100 ms instead of 1 ms,
+ * with and without {@link HedgedReads}. Sample time mode reports the p99 and p99.9. Lives next to
+ * {@link HedgedReads}, which is package-private.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HedgedReadsBenchmark {
+
+    @Param({"false", "true"})
+    public boolean hedge;
+
+    private HedgedReads hedgedReads;
+
+    @Setup
+    public void setup() {
+        hedgedReads = new HedgedReads(Executors.newCachedThreadPool(), new RetryBudget(0.1, 10), 0.95,
+                Duration.ofMillis(5), Duration.ofMillis(50), new SimpleMeterRegistry());
+    }
+
+    @TearDown
+    public void tearDown() {
+        hedgedReads.close();
+    }
+
+    @Benchmark
+    public String read() {
+        return hedge ? hedgedReads.execute(HedgedReadsBenchmark::backend) : backend();
+    }
+
+    private static String backend() {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextInt(50) == 0 ? 100 : 1);
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+        }
+        return "customer";
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.repository;
+
+import com.amazon.customerService.exception.CircuitOpenException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Exercises hedged reads, the retry budget and the circuit breaker against a stand-in for DynamoDB that
+ * injects latency and failures. The latency that hedging saves is measured by {@link HedgedReadsBenchmark}.
+ */
+public class ResilienceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    public void testHedgeWinsOverASlowRead() throws InterruptedException {
+
+        CountDownLatch cancelled = new CountDownLatch(1);
+        AtomicInteger attempts = new AtomicInteger();
+        try (HedgedReads hedgedReads = new HedgedReads(Executors.newCachedThreadPool(), new RetryBudget(0.1, 10), 0.95, Duration.ofMillis(1),
+                Duration.ofMillis(1), meterRegistry)) {
+            String result = hedgedReads.execute(() -> {
+                if (attempts.getAndIncrement() > 0) {
+                    return "hedge";
+                }
+                // The first attempt only returns when cancelled
+                try {
+                    new CountDownLatch(1).await();
+                } catch (InterruptedException exc) {
+                    cancelled.countDown();
+                }
+                return "first";
+            });
+
+            Assert.assertEquals("hedge", result);
+            Assert.assertTrue(cancelled.await(10, TimeUnit.SECONDS));
+            Assert.assertEquals(2, attempts.get());
+            Assert.assertEquals(1, (long) meterRegistry.counter("customer.hedge.sent").count());
+            Assert.assertEquals(1, (long) meterRegistry.counter("customer.hedge.wins").count());
+        }
+    }
+
+    @Test
+    public void testFastReadsAreNotHedged() {
+
+        try (HedgedReads hedgedReads = new HedgedReads(Executors.newCachedThreadPool(), new RetryBudget(0.1, 10), 0.95, Duration.ofSeconds(10),
+                Duration.ofSeconds(10), meterRegistry)) {
+            for (int i = 0; i < 50; i++) {
+                Assert.assertEquals("customer", hedgedReads.execute(() -> "customer"));
+            }
+        }
+        Assert.assertEquals(0, (long) meterRegistry.counter("customer.hedge.sent").count());
+    }
+
+    @Test
+    public void testBudgetLimitsHedgesWhenEverythingIsSlow() {
+
+        Counter sent = meterRegistry.counter("customer.hedge.sent");
+        Counter budgetExhausted = meterRegistry.counter("customer.hedge.budget-exhausted");
+        try (HedgedReads hedgedReads = new HedgedReads(Executors.newCachedThreadPool(), new RetryBudget(0.1, 2), 0.95, Duration.ofMillis(1),
+                Duration.ofMillis(1), meterRegistry)) {
+            for (int i = 0; i < 50; i++) {
+                // Every read outlasts the hedge delay: it waits until the hedge has been sent or refused
+                int decisions = i + 1;
+                Assert.assertEquals("customer", hedgedReads.execute(() -> {
+                    while (sent.count() + budgetExhausted.count() < decisions) {
+                        Thread.onSpinWait();
+                    }
+                    return "customer";
+                }));
+            }
+        }
+
+        // The 2 saved tokens, then one for every 10 reads (reads 11, 21, 31 and 41)
+        Assert.assertEquals(6, (long) sent.count());
+        Assert.assertEquals(44, (long) budgetExhausted.count());
+    }
+
+    @Test
+    public void testHedgeFailureFallsBackToTheOtherAttempt() {
+
+        try (HedgedReads hedgedReads = new HedgedReads(Executors.newCachedThreadPool(), new RetryBudget(0.1, 10), 0.95, Duration.ofMillis(1),
+                Duration.ofMillis(1), meterRegistry)) {
+            boolean[] first = {true};
+            String result = hedgedReads.execute(() -> {
+                synchronized (first) {
+                    if (!first[0]) {
+                        throw SdkClientException.create("hedge failed");
+                    }
+                    first[0] = false;
+                }
+                sleep(20);
+                return "customer";
+            });
+            Assert.assertEquals("customer", result);
+
+            Assertions.assertThrows(SdkClientException.class, () -> hedgedReads.execute(() -> {
+                throw SdkClientException.create("both failed");
+            }));
+        }
+    }
+
+    @Test
+    public void testCircuitBreakerOpensAndRecovers() {
+
+        CircuitBreaker breaker = new CircuitBreaker(10, 5, 0.5, Duration.ofMillis(50), 2, meterRegistry);
+
+        // Failed conditions are the caller's business, not a sign of an unhealthy dependency
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertThrows(ConditionalCheckFailedException.class, () -> breaker.execute(() -> {
+                throw ConditionalCheckFailedException.builder().statusCode(400).build();
+            }));
+        }
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+
+        for (int i = 0; i < 5; i++) {
+            Assertions.assertThrows(SdkClientException.class, () -> breaker.execute(() -> {
+                throw SdkClientException.create("timeout");
+            }));
+        }
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        Assertions.assertThrows(CircuitOpenException.class, () -> breaker.execute(() -> "customer"));
+
+        sleep(60);
+        Assert.assertEquals("customer", breaker.execute(() -> "customer"));
+        Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+        Assert.assertEquals("customer", breaker.execute(() -> "customer"));
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        Assert.assertEquals(1, (long) meterRegistry.counter("customer.circuit-breaker.rejected").count());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.repository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Merges the segments of a parallel scan from a stubbed DynamoDB client that returns two pages per segment.
+ */
+public class SegmentedScanTest {
+
+    private static final int SEGMENTS = 3;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testMergesAllSegments() {
+
+        StubDynamoDbClient client = new StubDynamoDbClient(request -> page((ScanRequest) request, false));
+
+        Set<String> ids;
+        try (Stream<Map<String, AttributeValue>> items = scan(client, 2).stream()) {
+            ids = items.map(item -> item.get("Id").s()).collect(Collectors.toSet());
+        }
+        Assert.assertEquals(Set.of("0-0", "0-1", "0-2", "1-0", "1-1", "1-2", "2-0", "2-1", "2-2"), ids);
+
+        // Two pages for every segment
+        List<ScanRequest> requests = client.requests(ScanRequest.class);
+        Assert.assertEquals(SEGMENTS * 2, requests.size());
+        Assert.assertEquals(Set.of(0, 1, 2), requests.stream().map(ScanRequest::segment).collect(Collectors.toSet()));
+        for (ScanRequest request : requests) {
+            Assert.assertEquals("Customer", request.tableName());
+            Assert.assertEquals(SEGMENTS, request.totalSegments().intValue());
+        }
+        Assert.assertEquals(SEGMENTS, meterRegistry.timer(SegmentedScan.SEGMENT_TIMER,
+                "totalSegments", String.valueOf(SEGMENTS)).count());
+    }
+
+    @Test
+    public void testFailedSegmentFailsTheStream() {
+
+        StubDynamoDbClient client = new StubDynamoDbClient(request -> {
+            if (((ScanRequest) request).segment() == 1) {
+                throw SdkClientException.create("segment failed");
+            }
+            return page((ScanRequest) request, false);
+        });
+
+        try (Stream<Map<String, AttributeValue>> items = scan(client, 10).stream()) {
+            Assertions.assertThrows(SdkClientException.class, items::count);
+        }
+    }
+
+    @Test
+    public void testCloseCancelsTheRemainingSegments() throws InterruptedException {
+
+        // Every segment has endless pages, so the segments only stop when cancelled
+        StubDynamoDbClient client = new StubDynamoDbClient(request -> page((ScanRequest) request, true));
+
+        try (Stream<Map<String, AttributeValue>> items = scan(client, 1).stream()) {
+            Iterator<Map<String, AttributeValue>> iterator = items.iterator();
+            for (int i = 0; i < 10; i++) {
+                Assert.assertNotNull(iterator.next());
+            }
+        }
+
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    private SegmentedScan scan(StubDynamoDbClient client, int bufferSize) {
+        return new SegmentedScan(client, "Customer", SEGMENTS, bufferSize, executor, meterRegistry);
+    }
+
+    /**
+     * Items {@code <segment>-0} and {@code <segment>-1} on the first page and {@code <segment>-2} on the
+     * second, or the first page over and over if {@code endless}.
+     */
+    private static ScanResponse page(ScanRequest request, boolean endless) {
+        String prefix = request.segment() + "-";
+        if (request.exclusiveStartKey().isEmpty() || endless) {
+            return ScanResponse.builder()
+                    .items(item(prefix + 0), item(prefix + 1))
+                    .lastEvaluatedKey(item(prefix + 1))
+                    .build();
+        }
+        return ScanResponse.builder().items(item(prefix + 2)).build();
+    }
+
+    private static Map<String, AttributeValue> item(String id) {
+        return Map.of("Id", AttributeValue.fromS(id));
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.repository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Checks which callers share a call. The latency under a skewed load is measured by
+ * {@link SingleFlightBenchmark}.
+ */
+public class SingleFlightTest {
+
+    private static final int CALLERS = 8;
+
+    private final Counter coalesced = new SimpleMeterRegistry().counter("customer.coalesced");
+
+    @Test
+    public void testSharesResultAndException() throws Exception {
+
+        SingleFlight<String, String> flight = new SingleFlight<>(coalesced);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> flight.execute("1", key -> {
+            calls.incrementAndGet();
+            started.countDown();
+            await(release);
+            return "value";
+        }));
+        started.await();
+        CompletableFuture<String> follower = CompletableFuture.supplyAsync(() -> flight.execute("1", key -> {
+            calls.incrementAndGet();
+            return "other";
+        }));
+        while (coalesced.count() < 1) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+
+        Assert.assertEquals("value", leader.get());
+        Assert.assertEquals("value", follower.get());
+        Assert.assertEquals(1, calls.get());
+
+        // Finished calls are not cached
+        Assert.assertEquals("next", flight.execute("1", key -> "next"));
+
+        Assertions.assertThrows(IllegalStateException.class, () -> flight.execute("1", key -> {
+            throw new IllegalStateException();
+        }));
+    }
+
+    @Test
+    public void testCoalescesOnlyCallsForTheSameKey() throws Exception {
+
+        SingleFlight<String, String> flight = new SingleFlight<>(coalesced);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        Function<String, String> backend = key -> {
+            calls.incrementAndGet();
+            await(release);
+            return "customer-" + key;
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            String key = String.valueOf(i % 2);
+            results.add(executor.submit(() -> flight.execute(key, backend)));
+        }
+        // Everyone but the two leaders joined a call in flight
+        while (coalesced.count() < CALLERS - 2) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+
+        for (int i = 0; i < CALLERS; i++) {
+            Assert.assertEquals("customer-" + i % 2, results.get(i).get());
+        }
+        Assert.assertEquals(2, calls.get());
+        Assert.assertEquals(CALLERS - 2, (long) coalesced.count());
+        executor.shutdown();
+    }
+
+    @Test
+    public void testForgetDetachesTheCallInFlight() throws Exception {
+
+        SingleFlight<String, String> flight = new SingleFlight<>(coalesced);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> before = CompletableFuture.supplyAsync(() -> flight.execute("1", key -> {
+            started.countDown();
+            await(release);
+            return "before";
+        }));
+        started.await();
+
+        // A caller after a write does not join the read that started before it
+        flight.forget("1");
+        Assert.assertEquals("after", flight.execute("1", key -> "after"));
+        release.countDown();
+        Assert.assertEquals("before", before.get());
+        Assert.assertEquals(0, (long) coalesced.count());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException exc) {
+            throw new IllegalStateException(exc);
+        }
+    }
+}
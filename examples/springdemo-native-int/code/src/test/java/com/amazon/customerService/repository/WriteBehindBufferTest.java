@@ -0,0 +1,199 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.repository;
+
+import com.amazon.customerService.exception.WriteBufferFullException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+public class WriteBehindBufferTest {
+
+    private final List<List<WriteRequest>> batches = Collections.synchronizedList(new ArrayList<>());
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    // Returns the unprocessed requests of a batch, or throws
+    private Function<List<WriteRequest>, List<WriteRequest>> outcome = requests -> List.of();
+
+    @Test
+    public void testCoalescesWritesForTheSameId() {
+
+        // Thresholds high enough that only the explicit flush writes
+        try (WriteBehindBuffer buffer = buffer(100, 100, Duration.ofHours(1))) {
+            CompletableFuture<Void> first = buffer.enqueue("1", put("1", "First"));
+            CompletableFuture<Void> second = buffer.enqueue("1", put("1", "Second"));
+            buffer.enqueue("2", put("2", "Other"));
+
+            Assert.assertEquals("Second", buffer.pending("1").putRequest().item().get("Name").s());
+
+            buffer.flush();
+
+            Assert.assertEquals(1, batches.size());
+            Assert.assertEquals(2, batches.get(0).size());
+            Assert.assertEquals("Second", batches.get(0).get(0).putRequest().item().get("Name").s());
+            Assert.assertSame(first, second);
+            Assert.assertTrue(first.isDone());
+            Assert.assertNull(buffer.pending("1"));
+        }
+    }
+
+    @Test
+    public void testFlushesOnSizeThreshold() {
+
+        try (WriteBehindBuffer buffer = buffer(100, 2, Duration.ofHours(1))) {
+            buffer.enqueue("1", put("1", "First"));
+            buffer.enqueue("2", put("2", "Second")).join();
+
+            Assert.assertEquals(1, batches.size());
+        }
+    }
+
+    @Test
+    public void testRejectsWhenFull() {
+
+        try (WriteBehindBuffer buffer = buffer(1, 100, Duration.ofHours(1))) {
+            buffer.flushAndPause();
+            buffer.enqueue("1", put("1", "First"));
+
+            Assertions.assertThrows(WriteBufferFullException.class, () -> buffer.enqueue("2", put("2", "Second")));
+        }
+    }
+
+    @Test
+    public void testCloseFlushesPendingWrites() {
+
+        CompletableFuture<Void> ack;
+        try (WriteBehindBuffer buffer = buffer(100, 100, Duration.ofHours(1))) {
+            ack = buffer.enqueue("1", put("1", "First"));
+        }
+
+        Assert.assertTrue(ack.isDone());
+        Assert.assertEquals(1, batches.size());
+    }
+
+    @Test
+    public void testRetriesUnprocessedWrites() {
+
+        try (WriteBehindBuffer buffer = buffer(100, 100, Duration.ofHours(1))) {
+            outcome = requests -> batches.size() == 1 ? requests : List.of();
+            CompletableFuture<Void> ack = buffer.enqueue("1", put("1", "First"));
+
+            // Still readable while it waits for the next flush
+            buffer.flush();
+            Assert.assertFalse(ack.isDone());
+            Assert.assertEquals("First", buffer.pending("1").putRequest().item().get("Name").s());
+
+            buffer.flush();
+            Assert.assertEquals(2, batches.size());
+            Assert.assertTrue(ack.isDone() && !ack.isCompletedExceptionally());
+            Assert.assertNull(buffer.pending("1"));
+        }
+    }
+
+    @Test
+    public void testDropsAfterMaxAttempts() {
+
+        try (WriteBehindBuffer buffer = buffer(100, 100, Duration.ofHours(1))) {
+            outcome = requests -> {
+                throw new IllegalStateException("Unavailable");
+            };
+            CompletableFuture<Void> ack = buffer.enqueue("1", put("1", "First"));
+
+            buffer.flush();
+            buffer.flush();
+            Assert.assertFalse(ack.isDone());
+            buffer.flush();
+
+            Assert.assertEquals(3, batches.size());
+            Assert.assertTrue(ack.isCompletedExceptionally());
+            Assert.assertNull(buffer.pending("1"));
+            Assert.assertEquals(1, meterRegistry.counter("customer.write-behind.failed").count(), 0);
+
+            // Nothing left to retry
+            buffer.flush();
+            Assert.assertEquals(3, batches.size());
+        }
+    }
+
+    @Test
+    public void testNewerWriteSupersedesFailedWrite() {
+
+        try (WriteBehindBuffer buffer = buffer(100, 100, Duration.ofHours(1))) {
+            CompletableFuture<CompletableFuture<Void>> newer = new CompletableFuture<>();
+            outcome = requests -> {
+                if (batches.size() == 1) {
+                    // Arrives while the first version is being written
+                    newer.complete(buffer.enqueue("1", put("1", "Second")));
+                    return requests;
+                }
+                return List.of();
+            };
+            CompletableFuture<Void> first = buffer.enqueue("1", put("1", "First"));
+
+            buffer.flush();
+            Assert.assertFalse(first.isDone());
+            Assert.assertEquals("Second", buffer.pending("1").putRequest().item().get("Name").s());
+
+            buffer.flush();
+            Assert.assertEquals(2, batches.size());
+            Assert.assertEquals(1, batches.get(1).size());
+            Assert.assertEquals("Second", batches.get(1).get(0).putRequest().item().get("Name").s());
+            Assert.assertTrue(newer.join().isDone());
+            Assert.assertTrue(first.isDone() && !first.isCompletedExceptionally());
+        }
+    }
+
+    @Test
+    public void testCloseRetriesUntilEmpty() {
+
+        outcome = requests -> batches.size() == 1 ? requests : List.of();
+        CompletableFuture<Void> ack;
+        try (WriteBehindBuffer buffer = buffer(100, 100, Duration.ofHours(1))) {
+            ack = buffer.enqueue("1", put("1", "First"));
+        }
+
+        Assert.assertEquals(2, batches.size());
+        Assert.assertTrue(ack.isDone() && !ack.isCompletedExceptionally());
+    }
+
+    private WriteBehindBuffer buffer(int capacity, int flushSize, Duration flushInterval) {
+        return new WriteBehindBuffer(requests -> {
+            batches.add(requests);
+            return outcome.apply(requests);
+        }, capacity, flushSize, flushInterval, Duration.ofMillis(50), 3, meterRegistry);
+    }
+
+    private static WriteRequest put(String id, String name) {
+        return WriteRequest.builder()
+                .putRequest(PutRequest.builder()
+                        .item(Map.of(CustomerRepository.ID_COLUMN, AttributeValue.fromS(id),
+                                CustomerRepository.NAME_COLUMN, AttributeValue.fromS(name)))
+                        .build())
+                .build();
+    }
+}
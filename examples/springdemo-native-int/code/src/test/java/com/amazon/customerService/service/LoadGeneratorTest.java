@@ -0,0 +1,74 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.service;
+
+import com.amazon.customerService.model.Customer;
+import com.amazon.customerService.model.LoadReport;
+import com.amazon.customerService.repository.CustomerStore;
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.context.web.WebAppConfiguration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads into the in-memory store ({@code mode=memory}), with write latency so that progress is reported.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@WebAppConfiguration
+@ActiveProfiles("memory")
+@TestPropertySource(properties = {
+        "memory.latency.write=20ms",
+        "load.progress-interval=50ms"})
+public class LoadGeneratorTest {
+
+    @Autowired
+    LoadGenerator loadGenerator;
+
+    @Autowired
+    CustomerStore store;
+
+    @Test
+    public void testLoad() {
+
+        // 40 full batches and one of 10, about 200 ms with 4 workers
+        List<LoadReport> progress = new ArrayList<>();
+        LoadReport report = loadGenerator.run(1010, 4, 25, 12, progress::add);
+
+        Assert.assertTrue(report.isDone());
+        Assert.assertEquals(1010, report.getWritten());
+        Assert.assertEquals(0, report.getFailed());
+        Assert.assertTrue(report.getThroughput() > 0);
+        Assert.assertEquals(List.of("p50", "p90", "p99", "p99.9", "max"), List.copyOf(report.getLatencyMillis().keySet()));
+
+        Assert.assertFalse(progress.isEmpty());
+        Assert.assertFalse(progress.get(0).isDone());
+        Assert.assertNull(progress.get(0).getLatencyMillis());
+
+        List<Customer> customers = store.findAll();
+        Assert.assertTrue(customers.size() >= 1010);
+        Assert.assertTrue(customers.stream().anyMatch(customer -> customer.getName().length() == 12
+                && customer.getEmail().equals(customer.getName() + "@test.com")));
+    }
+}
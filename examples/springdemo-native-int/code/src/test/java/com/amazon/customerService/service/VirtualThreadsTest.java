@@ -0,0 +1,88 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.service;
+
+import com.amazon.customerService.model.LoadReport;
+import org.crac.Resource;
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.context.web.WebAppConfiguration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Runs the in-memory store ({@code mode=memory}) in the virtual-thread mode, across a simulated
+ * checkpoint/restore: the CRaC resources of the context are notified as they would be by a checkpoint.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@WebAppConfiguration
+@ActiveProfiles({"memory", "virtual"})
+@TestPropertySource(properties = "memory.latency.write=10ms")
+public class VirtualThreadsTest {
+
+    @Autowired
+    @Qualifier("repositoryExecutor")
+    ExecutorService repositoryExecutor;
+
+    @Autowired
+    LoadGenerator loadGenerator;
+
+    @Autowired
+    ApplicationContext applicationContext;
+
+    @Test
+    public void testSurvivesCheckpointAndRestore() throws Exception {
+
+        Assert.assertTrue(repositoryExecutor.submit(() -> Thread.currentThread().isVirtual()).get());
+        assertLoads();
+
+        List<Resource> resources = new ArrayList<>(applicationContext.getBeansOfType(Resource.class).values());
+        Collections.reverse(resources);
+        for (Resource resource : resources) {
+            resource.beforeCheckpoint(null);
+        }
+        Collections.reverse(resources);
+        for (Resource resource : resources) {
+            resource.afterRestore(null);
+        }
+
+        Assert.assertTrue(repositoryExecutor.submit(() -> Thread.currentThread().isVirtual()).get());
+        assertLoads();
+    }
+
+    /**
+     * 1000 concurrent writers, far more than a platform thread pool would get.
+     */
+    private void assertLoads() {
+        LoadReport report = loadGenerator.run(1000, 1000, 1, 8, progress -> {
+        });
+        Assert.assertEquals(1000, report.getWritten());
+        // 10 ms per write, all of them concurrent
+        Assert.assertTrue("elapsed: " + report.getElapsedMillis(), report.getElapsedMillis() < 5000);
+    }
+}
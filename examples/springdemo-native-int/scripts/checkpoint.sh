@@ -8,7 +8,12 @@ rm -rf /opt/crac-files/*
 echo Starting the application...
 ( echo 128 > /proc/sys/kernel/ns_last_pid ) 2>/dev/null || while [ $(cat /proc/sys/kernel/ns_last_pid) -lt 128 ]; do :; done;
 TABLE_NAME=springdemo-native-int-staging-customer
-java -Dspring.context.checkpoint=onRefresh -Dtable.name=${TABLE_NAME} -Dspring.profiles.active=prod -Dmode=${MODE} -Damazon.dynamodb.endpoint=${AMAZON_DYNAMO_DB_ENDPOINT} -Djdk.crac.collect-fd-stacktraces=true -XX:CRaCEngine=warp -XX:CRaCCheckpointTo=/opt/crac-files/ -jar /${SRVC_JAR_FILE_NAME}
+# VIRTUAL_THREADS=true serves requests and repository work on virtual threads, REACTIVE=true serves the
+# reactive edition (the image has to be built with MAVEN_PROFILES=prod,reactive); both are part of the checkpoint
+PROFILES=prod
+if [ "${VIRTUAL_THREADS}" = "true" ]; then PROFILES=${PROFILES},virtual; fi
+if [ "${REACTIVE}" = "true" ]; then PROFILES=${PROFILES},reactive; fi
+java -Dspring.context.checkpoint=onRefresh -Dtable.name=${TABLE_NAME} -Dspring.profiles.active=${PROFILES} -Dmode=${MODE} -Damazon.dynamodb.endpoint=${AMAZON_DYNAMO_DB_ENDPOINT} -Djdk.crac.collect-fd-stacktraces=true -XX:CRaCEngine=warp -XX:CRaCCheckpointTo=/opt/crac-files/ -jar /${SRVC_JAR_FILE_NAME}
 
 EXIT_CODE=$?
 
@@ -21,6 +26,7 @@ then
       echo "Directory is empty, exiting with -1"
       exit -1
     fi
+    du -sh /opt/crac-files/
 fi
 
 exit 0
\ No newline at end of file
@@ -15,65 +15,434 @@
 
 package com.amazon.customerService.controller;
 
-import com.amazon.customerService.exception.CustomerNotFoundException;
+import com.amazon.customerService.model.BatchItemResult;
 import com.amazon.customerService.model.Customer;
+import com.amazon.customerService.model.CustomerPage;
+import com.amazon.customerService.model.TaggedCustomer;
+import com.amazon.customerService.model.LoadReport;
 import com.amazon.customerService.service.CustomerService;
+import com.amazon.customerService.service.LoadGenerator;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+/**
+ * Customer API on the servlet stack. The reactive edition, {@code ReactiveCustomerController}, is built with
+ * the Maven profile {@code reactive} and replaces this controller in the Spring profile {@code reactive}.
+ */
 @Slf4j
 @RestController
 @RequestMapping("/api")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class CustomerController {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     @Autowired
     CustomerService customerService;
 
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    LoadGenerator loadGenerator;
+
+    /**
+     * All customers, or one page of them if {@code limit} or {@code cursor} is given. The cursor of the next
+     * page is returned in the {@value #NEXT_CURSOR_HEADER} header, which is missing on the last page. The
+     * page size is capped at {@code pagination.max-limit}, also the default. A page can hold fewer customers
+     * than requested, even none, and still have a next cursor.
+     * <p>
+     * Pages come in a stable but unspecified order. A customer that exists during the whole iteration is
+     * returned exactly once; customers created or deleted meanwhile may or may not be returned.
+     * <p>
+     * The response has a weak ETag over the returned customers. With a matching {@code If-None-Match} it is
+     * 304 without a body: the customers are still read, but not serialized or transferred.
+     */
     @GetMapping("/customers")
-    List<Customer> getCustomers() {
-        return customerService.findAll();
+    ResponseEntity<List<Customer>> getCustomers(@RequestParam(required = false) Integer limit,
+                                                @RequestParam(required = false) String cursor) {
+        if (limit == null && cursor == null) {
+            List<Customer> customers = customerService.findAll();
+            return ResponseEntity.ok().eTag(customerService.etag(customers)).body(customers);
+        }
+        validatePage(limit);
+        CustomerPage page = customerService.findPage(cursor, limit);
+        return withNextCursor(page.getNextCursor())
+                .eTag(customerService.etag(page.getCustomers()))
+                .body(page.getCustomers());
+    }
+
+    @GetMapping(value = "/customers", params = "email")
+    List<Customer> getCustomersByEmail(@RequestParam String email) {
+        return customerService.findByEmail(email);
+    }
+
+    @GetMapping(value = "/customers", params = "accountNumber")
+    List<Customer> getCustomersByAccountNumber(@RequestParam String accountNumber) {
+        return customerService.findByAccountNumber(accountNumber);
+    }
+
+    @GetMapping(value = "/customers", params = "stream=true", produces = MediaType.APPLICATION_JSON_VALUE)
+    StreamingResponseBody streamCustomers(@RequestParam(required = false) Integer segments) {
+        validateSegments(segments, customerService.getMaxScanSegments());
+        return out -> writeCustomers(out, false, segments);
+    }
+
+    /**
+     * All customers as newline-delimited JSON, or one page of them if {@code limit} or {@code cursor} is
+     * given, with the cursor of the next page in the {@value #NEXT_CURSOR_HEADER} header as for
+     * {@link #getCustomers}.
+     */
+    @GetMapping(value = "/customers", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    ResponseEntity<StreamingResponseBody> streamCustomersNdjson(@RequestParam(required = false) Integer segments,
+                                                                @RequestParam(required = false) Integer limit,
+                                                                @RequestParam(required = false) String cursor) {
+        if (limit == null && cursor == null) {
+            validateSegments(segments, customerService.getMaxScanSegments());
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_NDJSON)
+                    .body(out -> writeCustomers(out, true, segments));
+        }
+        validatePage(limit);
+        CustomerPage page = customerService.findPage(cursor, limit);
+        return withNextCursor(page.getNextCursor())
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(out -> writeCustomers(out, true, page.getCustomers().iterator()));
     }
 
+    /**
+     * Writes {@code count} generated customers with {@code concurrency} workers in batches of
+     * {@code batchSize}, with names of {@code valueSize} characters, and returns throughput and latencies.
+     * {@code count} is limited to {@code load.max-count}.
+     */
     @GetMapping("/customers/load")
-    List<Customer> loadCustomers() {
-        customerService.loadCustomerData(100);
-        return customerService.findAll();
+    LoadReport loadCustomers(@RequestParam(defaultValue = "100") int count,
+                             @RequestParam(defaultValue = "4") int concurrency,
+                             @RequestParam(defaultValue = "25") int batchSize,
+                             @RequestParam(defaultValue = "10") int valueSize) {
+        validateLoad(count, loadGenerator.getMaxCount(), concurrency, batchSize, valueSize);
+        return loadGenerator.run(count, concurrency, batchSize, valueSize, progress -> {
+        });
+    }
+
+    /**
+     * Same as {@link #loadCustomers}, but streams a progress report per line while loading, followed by the
+     * final report.
+     */
+    @GetMapping(value = "/customers/load", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    StreamingResponseBody loadCustomersWithProgress(@RequestParam(defaultValue = "100") int count,
+                                                    @RequestParam(defaultValue = "4") int concurrency,
+                                                    @RequestParam(defaultValue = "25") int batchSize,
+                                                    @RequestParam(defaultValue = "10") int valueSize) {
+        validateLoad(count, loadGenerator.getMaxCount(), concurrency, batchSize, valueSize);
+        return out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.setRootValueSeparator(null);
+                Consumer<LoadReport> writeLine = report -> {
+                    try {
+                        generator.writeObject(report);
+                        generator.writeRaw('\n');
+                        generator.flush();
+                    } catch (IOException exc) {
+                        throw new UncheckedIOException(exc);
+                    }
+                };
+                writeLine.accept(loadGenerator.run(count, concurrency, batchSize, valueSize, writeLine));
+            }
+        };
+    }
+
+    @GetMapping("/customers/batch")
+    List<Customer> getCustomersByIds(@RequestParam List<String> ids) {
+        validateIds(ids, customerService.getMaxBatchGetIds());
+        return customerService.findAllById(ids);
+    }
+
+    @PostMapping("/customers/batch-get")
+    List<Customer> getCustomersByIdsPost(@RequestBody List<String> ids) {
+        validateIds(ids, customerService.getMaxBatchGetIds());
+        return customerService.findAllById(ids);
+    }
+
+    /**
+     * Creates customers in bulk, each with a new id as with {@code POST /customers}. The body is a JSON array
+     * of customers. It is parsed as it is read, and the customers are written in chunks of
+     * {@code batch.bulk.chunk-size}, each chunk with concurrent BatchWriteItem calls, so a batch is never held
+     * in memory as a whole. The response has one {@link BatchItemResult} per entry in request order, as a
+     * JSON array or, with {@code Accept: application/x-ndjson}, one per line. It is written chunk by chunk.
+     * <p>
+     * A body that is not a JSON array is rejected with 400. If an entry turns out to be malformed, the entries
+     * before it are still processed, and a last FAILED result without id describes the error. The status is
+     * 200 in that case, as the response has already started.
+     */
+    @PostMapping(value = "/customers/batch",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    void createCustomersBatch(InputStream body,
+                              @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                              HttpServletResponse response) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            ArrayElements<Customer> customers = new ArrayElements<>(parser, Customer.class);
+            writeBatchResults(customers, customers::getError, acceptsNdjson(accept), response,
+                    customerService::createAll);
+        }
+    }
+
+    /**
+     * Deletes customers in bulk. The body is a JSON array of ids, processed like
+     * {@link #createCustomersBatch}. Ids that do not exist are reported as deleted.
+     */
+    @PostMapping(value = "/customers/batch-delete",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    void deleteCustomersBatch(InputStream body,
+                              @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                              HttpServletResponse response) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            ArrayElements<String> ids = new ArrayElements<>(parser, String.class);
+            writeBatchResults(ids, ids::getError, acceptsNdjson(accept), response, customerService::deleteAll);
+        }
+    }
+
+    /**
+     * Deletes all customers: the ids are scanned and deleted in chunks like {@link #deleteCustomersBatch},
+     * and the index of a result is the position of the customer in the scan. Customers created during the
+     * truncate may or may not be deleted.
+     */
+    @DeleteMapping(value = "/customers", params = "all=true",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    void deleteAllCustomers(@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                            HttpServletResponse response) throws IOException {
+        try (Stream<String> ids = customerService.streamAllIds()) {
+            writeBatchResults(ids.iterator(), () -> null, acceptsNdjson(accept), response,
+                    customerService::deleteAll);
+        }
     }
 
     @PostMapping("/customers")
-    Customer createCustomer(@RequestBody Customer customer) {
-        return customerService.create(customer);
+    Customer createCustomer(@RequestBody Customer customer, @RequestParam(defaultValue = "false") boolean durable) {
+        return customerService.create(customer, durable);
     }
 
+    /**
+     * The response has the customer's strong ETag. With a matching {@code If-None-Match} it is 304 without
+     * a body; if the customer is cached, that costs neither a DynamoDB call nor serialization.
+     */
     @GetMapping("/customers/{id}")
-    Customer getCustomerbyId(@PathVariable String id) {
-        return customerService.findById(id);
+    ResponseEntity<Customer> getCustomerbyId(@PathVariable String id) {
+        TaggedCustomer tagged = customerService.findTaggedById(id);
+        if (tagged == null) {
+            return ResponseEntity.ok(null);
+        }
+        return ResponseEntity.ok().eTag(tagged.getETag()).body(tagged.getCustomer());
     }
 
+    /**
+     * With {@code If-Match}, the customer is only replaced if its current ETag matches, otherwise the
+     * response is 412. The response has the new ETag.
+     */
     @PutMapping("/customers/{id}")
-    Customer replaceCustomer(@RequestBody Customer newCustomer, @PathVariable String id) {
-        Customer customer = customerService.findById(id);
+    ResponseEntity<Customer> replaceCustomer(@RequestBody Customer newCustomer, @PathVariable String id,
+                                             @RequestParam(defaultValue = "false") boolean durable,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                             List<String> ifMatch) {
+        newCustomer.setId(id);
+        Customer updated = customerService.update(newCustomer, durable, expectedETags(ifMatch));
+        return ResponseEntity.ok().eTag(customerService.etag(updated)).body(updated);
+    }
+
+    @PatchMapping("/customers/{id}")
+    Customer updateCustomer(@RequestBody Customer changes, @PathVariable String id,
+                            @RequestParam(defaultValue = "false") boolean durable) {
+        return customerService.patch(id, changes, durable);
+    }
 
-        if (null == customer) {
-            throw new CustomerNotFoundException(newCustomer.getId());
+    /**
+     * With {@code If-Match}, the customer is only deleted if its current ETag matches, otherwise the
+     * response is 412.
+     */
+    @DeleteMapping("/customers/{id}")
+    void deleteCustomerById(@PathVariable String id,
+                            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) List<String> ifMatch) {
+        customerService.deleteById(id, expectedETags(ifMatch));
+    }
+
+    @GetMapping("/async/customers")
+    CompletableFuture<List<Customer>> getCustomersAsync() {
+        return customerService.findAllAsync();
+    }
+
+    @PostMapping("/async/customers")
+    CompletableFuture<Customer> createCustomerAsync(@RequestBody Customer customer) {
+        return customerService.createAsync(customer);
+    }
+
+    @GetMapping("/async/customers/{id}")
+    CompletableFuture<Customer> getCustomerByIdAsync(@PathVariable String id) {
+        return customerService.findByIdAsync(id);
+    }
+
+    @DeleteMapping("/async/customers/{id}")
+    CompletableFuture<Void> deleteCustomerByIdAsync(@PathVariable String id) {
+        return customerService.deleteByIdAsync(id);
+    }
+
+    /**
+     * @return the ETags of an {@code If-Match} header, or {@code null} without one. Weak ETags are dropped,
+     * as {@code If-Match} uses the strong comparison.
+     */
+    static List<String> expectedETags(List<String> ifMatch) {
+        if (ifMatch == null) {
+            return null;
         }
+        return ifMatch.stream()
+                .map(String::trim)
+                .filter(etag -> !etag.startsWith("W/"))
+                .collect(Collectors.toList());
+    }
 
-        customer.setId(newCustomer.getId());
-        customer.setRegDate(newCustomer.getRegDate());
-        customer.setEmail(newCustomer.getEmail());
-        customer.setAccountNumber(newCustomer.getAccountNumber());
-        customer.setName(newCustomer.getName());
+    static boolean acceptsNdjson(String accept) {
+        return accept != null && MediaType.parseMediaTypes(accept).stream()
+                .anyMatch(MediaType.APPLICATION_NDJSON::equalsTypeAndSubtype);
+    }
 
-        customerService.update(customer);
+    static void validatePage(Integer limit) {
+        if (limit != null && limit < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Expected limit >= 1");
+        }
+    }
 
-        return customer;
+    static void validateSegments(Integer segments, int maxSegments) {
+        if (segments != null && (segments < 1 || segments > maxSegments)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Expected segments 1-" + maxSegments);
+        }
     }
 
-    @DeleteMapping("/customers/{id}")
-    void deleteCustomerById(@PathVariable String id) {
-        customerService.deleteById(id);
+    static void validateIds(List<String> ids, int maxIds) {
+        if (ids.size() > maxIds) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Expected at most " + maxIds + " ids");
+        }
+    }
+
+    static ResponseEntity.BodyBuilder withNextCursor(String nextCursor) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (nextCursor != null) {
+            response.header(NEXT_CURSOR_HEADER, nextCursor);
+        }
+        return response;
+    }
+
+    static void validateLoad(int count, int maxCount, int concurrency, int batchSize, int valueSize) {
+        if (count < 0 || count > maxCount || concurrency < 1 || concurrency > 256 || batchSize < 1
+                || batchSize > LoadGenerator.MAX_BATCH_SIZE || valueSize < 1 || valueSize > 1024) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Expected count 0-" + maxCount + ", concurrency 1-256, "
+                    + "batchSize 1-" + LoadGenerator.MAX_BATCH_SIZE + " and valueSize 1-1024");
+        }
+    }
+
+    /**
+     * Writes customers to the response as they are read from the table scan, either as a single
+     * JSON array or as newline-delimited JSON, without holding the full result in memory.
+     * If {@code segments} is given, the table is read with a parallel scan of that many segments.
+     */
+    private void writeCustomers(OutputStream out, boolean ndjson, Integer segments) throws IOException {
+        try (Stream<Customer> customers = segments != null ? customerService.streamAll(segments) : customerService.streamAll()) {
+            writeCustomers(out, ndjson, customers.iterator());
+        }
+    }
+
+    private void writeCustomers(OutputStream out, boolean ndjson, Iterator<Customer> customers) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+
+            if (ndjson) {
+                generator.setRootValueSeparator(null);
+            } else {
+                generator.writeStartArray();
+            }
+
+            while (customers.hasNext()) {
+                generator.writeObject(customers.next());
+                if (ndjson) {
+                    generator.writeRaw('\n');
+                }
+            }
+
+            if (!ndjson) {
+                generator.writeEndArray();
+            }
+        }
+    }
+
+    /**
+     * Hands {@code items} to {@code process} in chunks of {@code batch.bulk.chunk-size} and writes the
+     * results of each chunk as soon as it is done, followed by a FAILED result if {@code error} has one.
+     */
+    private <T> void writeBatchResults(Iterator<T> items, Supplier<String> error, boolean ndjson,
+                                       HttpServletResponse response,
+                                       BiFunction<List<T>, Integer, List<BatchItemResult>> process) throws IOException {
+        int chunkSize = customerService.getBulkChunkSize();
+        response.setContentType(ndjson ? MediaType.APPLICATION_NDJSON_VALUE : MediaType.APPLICATION_JSON_VALUE);
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            if (ndjson) {
+                generator.setRootValueSeparator(null);
+            } else {
+                generator.writeStartArray();
+            }
+
+            int index = 0;
+            List<T> chunk = new ArrayList<>(chunkSize);
+            while (items.hasNext()) {
+                chunk.add(items.next());
+                if (chunk.size() == chunkSize || !items.hasNext()) {
+                    writeResults(generator, ndjson, process.apply(chunk, index));
+                    index += chunk.size();
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+
+            if (error.get() != null) {
+                writeResults(generator, ndjson, List.of(new BatchItemResult(index, null,
+                        BatchItemResult.Status.FAILED, "Malformed request body: " + error.get())));
+            }
+            if (!ndjson) {
+                generator.writeEndArray();
+            }
+        }
+    }
+
+    private static void writeResults(JsonGenerator generator, boolean ndjson, List<BatchItemResult> results)
+            throws IOException {
+        for (BatchItemResult result : results) {
+            generator.writeObject(result);
+            if (ndjson) {
+                generator.writeRaw('\n');
+            }
+        }
+        generator.flush();
     }
 }
@@ -15,6 +15,10 @@
 
 package com.amazon.customerService.exception;
 
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.NOT_FOUND)
 public class CustomerNotFoundException extends RuntimeException {
 
     public CustomerNotFoundException(String id) {
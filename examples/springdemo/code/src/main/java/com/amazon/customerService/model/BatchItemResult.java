@@ -0,0 +1,103 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Result for one entry of a bulk create or delete. {@code index} is the position of the entry in the
+ * request (or in the table scan, for a truncate). {@code id} is missing if the entry was not a valid
+ * customer or id, and {@code error} is only set for {@link Status#FAILED}.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchItemResult {
+
+    public enum Status {
+        CREATED, DELETED, FAILED
+    }
+
+    private int index;
+    private String id;
+    private Status status;
+    private String error;
+
+    public BatchItemResult() {
+    }
+
+    public BatchItemResult(int index, String id, Status status, String error) {
+        this.index = index;
+        this.id = id;
+        this.status = status;
+        this.error = error;
+    }
+
+    /**
+     * @param ids      the ids of a chunk of entries in request order, {@code null} for invalid entries
+     * @param failures the error per id of the entries that could not be written
+     * @param success  the status of the entries that were written
+     */
+    public static List<BatchItemResult> of(int firstIndex, List<String> ids, Map<String, String> failures,
+                                           Status success) {
+        List<BatchItemResult> results = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            String id = ids.get(i);
+            if (id == null) {
+                results.add(new BatchItemResult(firstIndex + i, null, Status.FAILED, "Invalid entry"));
+            } else if (failures.containsKey(id)) {
+                results.add(new BatchItemResult(firstIndex + i, id, Status.FAILED, failures.get(id)));
+            } else {
+                results.add(new BatchItemResult(firstIndex + i, id, success, null));
+            }
+        }
+        return results;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.model;
+
+import java.util.List;
+
+/**
+ * One page of customers, with the opaque cursor of the next page; the cursor is {@code null} on the last page.
+ */
+public class CustomerPage {
+
+    private final List<Customer> customers;
+    private final String nextCursor;
+
+    public CustomerPage(List<Customer> customers, String nextCursor) {
+        this.customers = customers;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Customer> getCustomers() {
+        return customers;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.model;
+
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Progress or result of a load run. Latency percentiles (per write call, in milliseconds) are only set in the
+ * final report.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class LoadReport {
+
+    private boolean done;
+    private int requested;
+    private long written;
+    private long failed;
+    private long elapsedMillis;
+    private double throughput;
+    private Map<String, Double> latencyMillis;
+
+    public LoadReport() {
+    }
+
+    public LoadReport(boolean done, int requested, long written, long failed, long elapsedMillis,
+                      Map<String, Double> latencyMillis) {
+        this.done = done;
+        this.requested = requested;
+        this.written = written;
+        this.failed = failed;
+        this.elapsedMillis = elapsedMillis;
+        this.throughput = elapsedMillis > 0 ? written * 1000.0 / elapsedMillis : 0;
+        this.latencyMillis = latencyMillis;
+    }
+
+    public boolean isDone() {
+        return done;
+    }
+
+    public void setDone(boolean done) {
+        this.done = done;
+    }
+
+    public int getRequested() {
+        return requested;
+    }
+
+    public void setRequested(int requested) {
+        this.requested = requested;
+    }
+
+    public long getWritten() {
+        return written;
+    }
+
+    public void setWritten(long written) {
+        this.written = written;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public void setFailed(long failed) {
+        this.failed = failed;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * @return customers written per second
+     */
+    public double getThroughput() {
+        return throughput;
+    }
+
+    public void setThroughput(double throughput) {
+        this.throughput = throughput;
+    }
+
+    public Map<String, Double> getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    public void setLatencyMillis(Map<String, Double> latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "LoadReport{" +
+                "done=" + done +
+                ", requested=" + requested +
+                ", written=" + written +
+                ", failed=" + failed +
+                ", elapsedMillis=" + elapsedMillis +
+                ", throughput=" + throughput +
+                ", latencyMillis=" + latencyMillis +
+                '}';
+    }
+}
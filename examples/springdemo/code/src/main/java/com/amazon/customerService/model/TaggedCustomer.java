@@ -0,0 +1,50 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.model;
+
+import java.util.Collection;
+
+/**
+ * A customer together with the strong ETag (quoted) of its representation.
+ */
+public class TaggedCustomer {
+
+    public static final String ANY = "*";
+
+    private final Customer customer;
+    private final String etag;
+
+    public TaggedCustomer(Customer customer, String etag) {
+        this.customer = customer;
+        this.etag = etag;
+    }
+
+    public Customer getCustomer() {
+        return customer;
+    }
+
+    public String getETag() {
+        return etag;
+    }
+
+    /**
+     * Strong comparison as for {@code If-Match}: {@code true} if {@code etags} contains this ETag or
+     * {@value #ANY}.
+     */
+    public boolean matchesAny(Collection<String> etags) {
+        return etags.contains(ANY) || etags.contains(etag);
+    }
+}
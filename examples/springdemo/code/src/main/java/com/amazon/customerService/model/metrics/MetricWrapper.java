@@ -18,6 +18,9 @@ package com.amazon.customerService.model.metrics;
 import java.time.Duration;
 import java.time.Instant;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+@JsonSerialize(using = MetricWrapperSerializer.class)
 public class MetricWrapper {
 
     private ContainerMetric containerMetric;
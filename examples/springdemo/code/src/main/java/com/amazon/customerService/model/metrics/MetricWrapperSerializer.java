@@ -0,0 +1,113 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.model.metrics;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+/**
+ * Hand-written Jackson serializer for {@link MetricWrapper} and the metrics it contains, registered on the
+ * class. It writes the same JSON as the reflective bean serializers, including {@code null} fields. Instants
+ * and durations are written by the mapper's serializers for them (JavaTimeModule), so they follow the
+ * mapper's timestamp settings.
+ */
+public class MetricWrapperSerializer extends StdSerializer<MetricWrapper> {
+
+    private static final SerializableString CONTAINER_METRIC = new SerializedString("containerMetric");
+    private static final SerializableString TASK_METRIC = new SerializedString("taskMetric");
+    private static final SerializableString POD_METRIC = new SerializedString("podMetric");
+    private static final SerializableString SPRING_BOOT_START_DURATION = new SerializedString("springBootStartDuration");
+    private static final SerializableString SPRING_BOOT_READY_TIME = new SerializedString("springBootReadyTime");
+    private static final SerializableString VERSION = new SerializedString("version");
+
+    private static final SerializableString CREATED_AT = new SerializedString("createdAt");
+    private static final SerializableString STARTED_AT = new SerializedString("startedAt");
+    private static final SerializableString PULL_STARTED_AT = new SerializedString("pullStartedAt");
+    private static final SerializableString PULL_STOPPED_AT = new SerializedString("pullStoppedAt");
+    private static final SerializableString TASK_ARN = new SerializedString("taskArn");
+    private static final SerializableString POD_SCHEDULED = new SerializedString("podScheduled");
+    private static final SerializableString POD_READY = new SerializedString("podReady");
+    private static final SerializableString POD_ID = new SerializedString("podId");
+
+    public MetricWrapperSerializer() {
+        super(MetricWrapper.class);
+    }
+
+    @Override
+    public void serialize(MetricWrapper metrics, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject(metrics);
+
+        gen.writeFieldName(CONTAINER_METRIC);
+        ContainerMetric containerMetric = metrics.getContainerMetric();
+        if (containerMetric != null) {
+            gen.writeStartObject(containerMetric);
+            writeValue(gen, provider, CREATED_AT, containerMetric.getCreatedAt());
+            writeValue(gen, provider, STARTED_AT, containerMetric.getStartedAt());
+            gen.writeEndObject();
+        } else {
+            gen.writeNull();
+        }
+
+        gen.writeFieldName(TASK_METRIC);
+        TaskMetric taskMetric = metrics.getTaskMetric();
+        if (taskMetric != null) {
+            gen.writeStartObject(taskMetric);
+            writeValue(gen, provider, PULL_STARTED_AT, taskMetric.getPullStartedAt());
+            writeValue(gen, provider, PULL_STOPPED_AT, taskMetric.getPullStoppedAt());
+            gen.writeFieldName(TASK_ARN);
+            gen.writeString(taskMetric.getTaskArn());
+            gen.writeEndObject();
+        } else {
+            gen.writeNull();
+        }
+
+        gen.writeFieldName(POD_METRIC);
+        PodMetric podMetric = metrics.getPodMetric();
+        if (podMetric != null) {
+            gen.writeStartObject(podMetric);
+            writeValue(gen, provider, POD_SCHEDULED, podMetric.getPodScheduled());
+            writeValue(gen, provider, POD_READY, podMetric.getPodReady());
+            gen.writeFieldName(POD_ID);
+            gen.writeString(podMetric.getPodId());
+            gen.writeEndObject();
+        } else {
+            gen.writeNull();
+        }
+
+        writeValue(gen, provider, SPRING_BOOT_START_DURATION, metrics.getSpringBootStartDuration());
+        writeValue(gen, provider, SPRING_BOOT_READY_TIME, metrics.getSpringBootReadyTime());
+
+        gen.writeFieldName(VERSION);
+        if (metrics.getVersion() != null) {
+            gen.writeNumber(metrics.getVersion());
+        } else {
+            gen.writeNull();
+        }
+
+        gen.writeEndObject();
+    }
+
+    private static void writeValue(JsonGenerator gen, SerializerProvider provider, SerializableString name,
+                                   Object value) throws IOException {
+        gen.writeFieldName(name);
+        provider.defaultSerializeValue(value, gen);
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+
+/**
+ * Reads items by key through BatchGetItem. Keys are split into chunks of {@value #MAX_BATCH_SIZE},
+ * the chunks are sent concurrently on the given executor, and UnprocessedKeys are retried with
+ * exponential backoff and jitter.
+ */
+@Slf4j
+class BatchReader {
+
+    static final int MAX_BATCH_SIZE = 100;
+
+    private final DynamoDbClient client;
+    private final String tableName;
+    private final ExecutorService executor;
+    private final int maxAttempts;
+    private final long baseBackoffMillis;
+
+    BatchReader(DynamoDbClient client, String tableName, ExecutorService executor, int maxAttempts, long baseBackoffMillis) {
+        this.client = client;
+        this.tableName = tableName;
+        this.executor = executor;
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffMillis = baseBackoffMillis;
+    }
+
+    /**
+     * @param keys distinct primary keys; BatchGetItem rejects duplicates
+     * @return the items that were found, in no particular order
+     * @throws IllegalStateException if some keys were still unprocessed after the last attempt
+     */
+    List<Map<String, AttributeValue>> read(List<Map<String, AttributeValue>> keys) {
+        if (keys.size() <= MAX_BATCH_SIZE) {
+            return readChunk(keys);
+        }
+
+        List<CompletableFuture<List<Map<String, AttributeValue>>>> chunks = new ArrayList<>();
+        for (int from = 0; from < keys.size(); from += MAX_BATCH_SIZE) {
+            List<Map<String, AttributeValue>> chunk = keys.subList(from, Math.min(from + MAX_BATCH_SIZE, keys.size()));
+            chunks.add(CompletableFuture.supplyAsync(() -> readChunk(chunk), executor));
+        }
+
+        List<Map<String, AttributeValue>> items = new ArrayList<>(keys.size());
+        for (CompletableFuture<List<Map<String, AttributeValue>>> chunk : chunks) {
+            items.addAll(chunk.join());
+        }
+        return items;
+    }
+
+    private List<Map<String, AttributeValue>> readChunk(List<Map<String, AttributeValue>> chunk) {
+        List<Map<String, AttributeValue>> items = new ArrayList<>(chunk.size());
+        List<Map<String, AttributeValue>> pending = chunk;
+
+        for (int attempt = 0; attempt < maxAttempts && !pending.isEmpty(); attempt++) {
+            if (attempt > 0) {
+                backoff(attempt);
+            }
+
+            BatchGetItemResponse response = client.batchGetItem(BatchGetItemRequest.builder()
+                    .requestItems(Map.of(tableName, KeysAndAttributes.builder().keys(pending).build()))
+                    .build());
+
+            items.addAll(response.responses().getOrDefault(tableName, List.of()));
+
+            KeysAndAttributes unprocessed = response.hasUnprocessedKeys()
+                    ? response.unprocessedKeys().get(tableName)
+                    : null;
+            pending = unprocessed != null ? unprocessed.keys() : List.of();
+
+            if (!pending.isEmpty()) {
+                log.debug("BatchGetItem attempt " + (attempt + 1) + " left " + pending.size() + " unprocessed keys");
+            }
+        }
+
+        if (!pending.isEmpty()) {
+            throw new IllegalStateException(pending.size() + " keys could not be read after " + maxAttempts + " attempts");
+        }
+
+        return items;
+    }
+
+    private void backoff(int attempt) {
+        long ceiling = baseBackoffMillis << Math.min(attempt, 10);
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1));
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while retrying unprocessed keys", exc);
+        }
+    }
+}
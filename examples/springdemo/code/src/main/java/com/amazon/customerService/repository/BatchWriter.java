@@ -0,0 +1,148 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.repository;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+/**
+ * Writes put/delete requests through BatchWriteItem. Requests are split into chunks of
+ * {@value #MAX_BATCH_SIZE}, the chunks are sent concurrently on the given executor, and
+ * UnprocessedItems are retried with exponential backoff and jitter.
+ */
+@Slf4j
+class BatchWriter {
+
+    static final int MAX_BATCH_SIZE = 25;
+
+    private final DynamoDbClient client;
+    private final String tableName;
+    private final ExecutorService executor;
+    private final int maxAttempts;
+    private final long baseBackoffMillis;
+
+    BatchWriter(DynamoDbClient client, String tableName, ExecutorService executor, int maxAttempts, long baseBackoffMillis) {
+        this.client = client;
+        this.tableName = tableName;
+        this.executor = executor;
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffMillis = baseBackoffMillis;
+    }
+
+    /**
+     * @return the requests that were still unprocessed after the last attempt, empty if everything was written
+     */
+    List<WriteRequest> write(List<WriteRequest> requests) {
+        if (requests.size() <= MAX_BATCH_SIZE) {
+            return writeChunk(requests);
+        }
+
+        List<CompletableFuture<List<WriteRequest>>> chunks = new ArrayList<>();
+        for (int from = 0; from < requests.size(); from += MAX_BATCH_SIZE) {
+            List<WriteRequest> chunk = requests.subList(from, Math.min(from + MAX_BATCH_SIZE, requests.size()));
+            chunks.add(CompletableFuture.supplyAsync(() -> writeChunk(chunk), executor));
+        }
+
+        List<WriteRequest> unprocessed = new ArrayList<>();
+        for (CompletableFuture<List<WriteRequest>> chunk : chunks) {
+            unprocessed.addAll(chunk.join());
+        }
+        return unprocessed;
+    }
+
+    /**
+     * Like {@link #write}, but a chunk that fails (e.g. throttled beyond the SDK's retries) only fails its
+     * own requests; the other chunks are still written.
+     *
+     * @return the error per customer id of the requests that were not written, empty if everything was written
+     */
+    Map<String, String> writeAll(List<WriteRequest> requests) {
+        List<List<WriteRequest>> chunks = new ArrayList<>();
+        List<CompletableFuture<List<WriteRequest>>> results = new ArrayList<>();
+        for (int from = 0; from < requests.size(); from += MAX_BATCH_SIZE) {
+            List<WriteRequest> chunk = requests.subList(from, Math.min(from + MAX_BATCH_SIZE, requests.size()));
+            chunks.add(chunk);
+            results.add(CompletableFuture.supplyAsync(() -> writeChunk(chunk), executor));
+        }
+
+        Map<String, String> failures = new LinkedHashMap<>();
+        for (int i = 0; i < chunks.size(); i++) {
+            try {
+                for (WriteRequest request : results.get(i).join()) {
+                    failures.put(idOf(request), "Still unprocessed after " + maxAttempts + " attempts");
+                }
+            } catch (CompletionException exc) {
+                log.warn("BatchWriteItem chunk of " + chunks.get(i).size() + " requests failed: " + exc.getCause());
+                for (WriteRequest request : chunks.get(i)) {
+                    failures.put(idOf(request), String.valueOf(exc.getCause()));
+                }
+            }
+        }
+        return failures;
+    }
+
+    static String idOf(WriteRequest request) {
+        return request.putRequest() != null
+                ? request.putRequest().item().get(CustomerRepository.ID_COLUMN).s()
+                : request.deleteRequest().key().get(CustomerRepository.ID_COLUMN).s();
+    }
+
+    private List<WriteRequest> writeChunk(List<WriteRequest> chunk) {
+        List<WriteRequest> pending = chunk;
+
+        for (int attempt = 0; attempt < maxAttempts && !pending.isEmpty(); attempt++) {
+            if (attempt > 0) {
+                backoff(attempt);
+            }
+
+            BatchWriteItemResponse response = client.batchWriteItem(BatchWriteItemRequest.builder()
+                    .requestItems(Map.of(tableName, pending))
+                    .build());
+
+            pending = response.hasUnprocessedItems()
+                    ? response.unprocessedItems().getOrDefault(tableName, List.of())
+                    : List.of();
+
+            if (!pending.isEmpty()) {
+                log.debug("BatchWriteItem attempt " + (attempt + 1) + " left " + pending.size() + " unprocessed items");
+            }
+        }
+
+        return pending;
+    }
+
+    private void backoff(int attempt) {
+        long ceiling = baseBackoffMillis << Math.min(attempt, 10);
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1));
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while retrying unprocessed items", exc);
+        }
+    }
+}
@@ -0,0 +1,306 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.repository;
+
+import static com.amazon.customerService.repository.CustomerRepository.ACCOUNT_NUMBER_COLUMN;
+import static com.amazon.customerService.repository.CustomerRepository.ACCOUNT_NUMBER_INDEX;
+import static com.amazon.customerService.repository.CustomerRepository.EMAIL_COLUMN;
+import static com.amazon.customerService.repository.CustomerRepository.EMAIL_INDEX;
+import static com.amazon.customerService.repository.CustomerRepository.ID_COLUMN;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+
+import org.crac.Context;
+import org.crac.Core;
+import org.crac.Resource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Repository;
+
+import com.amazon.customerService.model.Customer;
+import com.amazon.customerService.model.CustomerPage;
+
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.core.async.SdkPublisher;
+import software.amazon.awssdk.http.async.SdkAsyncHttpClient;
+import software.amazon.awssdk.http.nio.netty.SdkEventLoopGroup;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+/**
+ * Non-blocking counterpart of {@link CustomerRepository} built on {@link DynamoDbAsyncClient}.
+ * With the Netty transport, the event loop group is owned by this repository so that its threads can be
+ * stopped before a checkpoint and recreated after restore. Not available with {@code mode=memory}.
+ * <p>
+ * With {@code write-behind.enabled}, puts and deletes go through the write-behind buffer of
+ * {@link CustomerRepository}, so that they are ordered with the buffered writes, and reads see the pending
+ * writes first.
+ */
+@Slf4j
+@Repository
+@ConditionalOnExpression("'${mode:}' != 'memory'")
+public class CustomerAsyncRepository implements Resource {
+
+    private SdkEventLoopGroup eventLoopGroup;
+    private SdkAsyncHttpClient httpClient;
+    private DynamoDbAsyncClient client;
+    private String tableName;
+    private Integer eventLoopThreads;
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private CustomerIdGenerator idGenerator;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private CustomerIdFilter idFilter;
+
+    @Autowired
+    private DynamoDbClientFactory clientFactory;
+
+    @PostConstruct
+    public void init() {
+        loadConfig();
+        this.client = createDynamoDbAsyncClient();
+        Core.getGlobalContext().register(this);
+    }
+
+    @Override
+    public void beforeCheckpoint(Context<? extends Resource> context) {
+        log.info("Executing beforeCheckpoint...");
+        this.client.close();
+        this.httpClient.close();
+        // The event loop group is passed in by us, so the HTTP client leaves it running on close
+        if (this.eventLoopGroup != null) {
+            this.eventLoopGroup.eventLoopGroup().shutdownGracefully(0, 5, TimeUnit.SECONDS).awaitUninterruptibly();
+        }
+    }
+
+    @Override
+    public void afterRestore(Context<? extends Resource> context) {
+        log.info("Executing afterRestore ...");
+        loadConfig();
+        this.client = createDynamoDbAsyncClient();
+    }
+
+    public CompletableFuture<Customer> save(final Customer customer) {
+
+        customer.setId(idGenerator.newId());
+
+        if (customer.getRegDate() == null) {
+            customer.setRegDate(new Date());
+        }
+
+        idFilter.add(customer.getId());
+
+        WriteBehindBuffer writeBehind = customerRepository.writeBehind();
+        if (writeBehind != null) {
+            CompletableFuture<Void> ack = writeBehind.enqueue(customer.getId(), WriteRequest.builder()
+                    .putRequest(PutRequest.builder().item(CustomerCodec.toItem(customer)).build())
+                    .build());
+            customerRepository.invalidate(customer.getId());
+            return ack.thenApply(written -> customer);
+        }
+
+        PutItemRequest putItemRequest = PutItemRequest.builder()
+                .tableName(this.tableName)
+                .item(CustomerCodec.toItem(customer))
+                .build();
+
+        return client.putItem(putItemRequest).thenApply(response -> {
+            customerRepository.invalidate(customer.getId());
+            return customer;
+        });
+    }
+
+    public CompletableFuture<Customer> findById(final String id) {
+
+        log.debug("Find customer with id (async): " + id);
+
+        WriteBehindBuffer writeBehind = customerRepository.writeBehind();
+        if (writeBehind != null) {
+            WriteRequest pending = writeBehind.pending(id);
+            if (pending != null) {
+                // Read our own buffered write
+                return CompletableFuture.completedFuture(pending.putRequest() != null
+                        ? CustomerCodec.fromItem(pending.putRequest().item()) : null);
+            }
+        }
+
+        if (!idFilter.mightContain(id)) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put(ID_COLUMN, AttributeValue.builder().s(id).build());
+
+        GetItemRequest getItemRequest = GetItemRequest.builder()
+                .tableName(this.tableName)
+                .key(key)
+                .build();
+
+        return client.getItem(getItemRequest)
+                .thenApply(item -> item.hasItem() ? CustomerCodec.fromItem(item.item()) : null);
+    }
+
+    public CompletableFuture<List<Customer>> findAll() {
+
+        log.debug("Find all customers (async)");
+        List<Customer> customerList = new ArrayList<>();
+
+        // The publisher signals items serially, so the list needs no extra synchronization
+        return scan().subscribe(customerList::add).thenApply(done -> customerList);
+    }
+
+    /**
+     * Reads one page with a single Scan call, see {@link CustomerRepository#findPage}.
+     */
+    public CompletableFuture<CustomerPage> findPage(final String cursor, final int limit) {
+
+        log.debug("Find customers page of " + limit + " after cursor (async): " + cursor);
+
+        ScanRequest.Builder scanRequest = ScanRequest.builder()
+                .tableName(this.tableName)
+                .limit(limit);
+        if (cursor != null) {
+            scanRequest.exclusiveStartKey(Map.of(ID_COLUMN, AttributeValue.fromS(PageCursor.decode(cursor))));
+        }
+
+        return client.scan(scanRequest.build()).thenApply(response -> {
+            List<Customer> customerList = new ArrayList<>(response.items().size());
+            for (Map<String, AttributeValue> item : response.items()) {
+                customerList.add(CustomerCodec.fromItem(item));
+            }
+            String nextCursor = response.hasLastEvaluatedKey() && !response.lastEvaluatedKey().isEmpty()
+                    ? PageCursor.encode(response.lastEvaluatedKey().get(ID_COLUMN).s())
+                    : null;
+            return new CustomerPage(customerList, nextCursor);
+        });
+    }
+
+    /**
+     * Scans all customers. The next page is only requested from DynamoDB once the subscriber has asked for
+     * more items than are buffered, so a slow subscriber slows down the scan instead of filling the heap.
+     */
+    public SdkPublisher<Customer> scan() {
+
+        log.debug("Scan all customers (async)");
+
+        ScanRequest scanRequest = ScanRequest.builder()
+                .tableName(this.tableName)
+                .build();
+
+        return client.scanPaginator(scanRequest).items().map(CustomerCodec::fromItem);
+    }
+
+    /**
+     * Queries the {@value CustomerRepository#EMAIL_INDEX} global secondary index, see
+     * {@link CustomerRepository#findByEmail}.
+     */
+    public SdkPublisher<Customer> findByEmail(final String email) {
+
+        log.debug("Find customers with email (async): " + email);
+
+        return queryIndex(EMAIL_INDEX, EMAIL_COLUMN, email);
+    }
+
+    /**
+     * Queries the {@value CustomerRepository#ACCOUNT_NUMBER_INDEX} global secondary index, see
+     * {@link CustomerRepository#findByAccountNumber}.
+     */
+    public SdkPublisher<Customer> findByAccountNumber(final String accountNumber) {
+
+        log.debug("Find customers with account number (async): " + accountNumber);
+
+        return queryIndex(ACCOUNT_NUMBER_INDEX, ACCOUNT_NUMBER_COLUMN, accountNumber);
+    }
+
+    public CompletableFuture<Void> deleteById(String id) {
+
+        log.debug("Delete customer with id (async): " + id);
+
+        // Not short-circuited by the id filter, see CustomerRepository#deleteById
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put(ID_COLUMN, AttributeValue.builder().s(id).build());
+
+        WriteBehindBuffer writeBehind = customerRepository.writeBehind();
+        if (writeBehind != null) {
+            CompletableFuture<Void> ack = writeBehind.enqueue(id, WriteRequest.builder()
+                    .deleteRequest(DeleteRequest.builder().key(key).build())
+                    .build());
+            customerRepository.invalidate(id);
+            return ack;
+        }
+
+        DeleteItemRequest deleteItemRequest = DeleteItemRequest.builder()
+                .tableName(this.tableName)
+                .key(key)
+                .build();
+
+        return client.deleteItem(deleteItemRequest).thenApply(response -> {
+            customerRepository.invalidate(id);
+            return null;
+        });
+    }
+
+    private SdkPublisher<Customer> queryIndex(final String indexName, final String column, final String value) {
+
+        QueryRequest queryRequest = QueryRequest.builder()
+                .tableName(this.tableName)
+                .indexName(indexName)
+                .keyConditionExpression("#key = :value")
+                .expressionAttributeNames(Map.of("#key", column))
+                .expressionAttributeValues(Map.of(":value", AttributeValue.fromS(value)))
+                .build();
+
+        return client.queryPaginator(queryRequest).items().map(CustomerCodec::fromItem);
+    }
+
+    private DynamoDbAsyncClient createDynamoDbAsyncClient() {
+        this.eventLoopGroup = clientFactory.isNettyAsyncClient()
+                ? SdkEventLoopGroup.builder().numberOfThreads(this.eventLoopThreads).build()
+                : null;
+        this.httpClient = clientFactory.createAsyncHttpClient(this.eventLoopGroup);
+
+        return clientFactory.createAsyncClient(this.httpClient);
+    }
+
+    private void loadConfig() {
+        this.tableName = environment.getProperty("table.name");
+        this.eventLoopThreads = environment.getProperty("async.event-loop.threads", Integer.class);
+    }
+}
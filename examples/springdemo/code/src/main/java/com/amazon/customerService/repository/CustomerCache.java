@@ -0,0 +1,134 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.repository;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Function;
+
+import javax.annotation.PostConstruct;
+
+import org.crac.Context;
+import org.crac.Core;
+import org.crac.Resource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * Bounded read-through cache (Caffeine, W-TinyLFU eviction) in front of {@link CustomerRepository#findById}.
+ * It holds the raw DynamoDB items, which are immutable, so callers that modify the returned
+ * {@code Customer} cannot corrupt cached entries. Each item is cached with its ETag, so a conditional GET
+ * that hits the cache needs neither a DynamoDB call nor hashing. Hit, miss and eviction counts are published as
+ * {@code cache.*} metrics with the tag {@code cache=customers}.
+ * <p>
+ * With {@code cache.customer.checkpoint=flush} the cache is emptied in {@code beforeCheckpoint} so that
+ * no customer data ends up in the checkpoint image; with {@code keep} (the default) it is carried over
+ * warm. Note that entries carried over keep their original write time, which may be long before the restore.
+ */
+@Slf4j
+@Component
+public class CustomerCache implements Resource {
+
+    private Cache<String, Entry> cache;
+    private boolean enabled;
+    private boolean flushOnCheckpoint;
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @PostConstruct
+    public void init() {
+        loadConfig();
+
+        long maximumSize = environment.getProperty("cache.customer.maximum-size", Long.class, 10_000L);
+        Duration ttl = environment.getProperty("cache.customer.ttl", Duration.class, Duration.ofMinutes(5));
+
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "customers");
+
+        Core.getGlobalContext().register(this);
+    }
+
+    @Override
+    public void beforeCheckpoint(Context<? extends Resource> context) {
+        if (flushOnCheckpoint) {
+            log.info("Flushing customer cache before checkpoint (" + cache.estimatedSize() + " entries)");
+            cache.invalidateAll();
+        }
+    }
+
+    @Override
+    public void afterRestore(Context<? extends Resource> context) {
+        loadConfig();
+    }
+
+    /**
+     * Returns the cached item for {@code id}, loading it with {@code loader} on a miss. Concurrent misses
+     * for the same id share one load. Missing items ({@code null}) are not cached.
+     */
+    Entry get(String id, Function<String, Map<String, AttributeValue>> loader) {
+        Function<String, Entry> load = key -> Entry.of(loader.apply(key));
+        return enabled ? cache.get(id, load) : load.apply(id);
+    }
+
+    void invalidate(String id) {
+        cache.invalidate(id);
+    }
+
+    void invalidateAll(Collection<String> ids) {
+        cache.invalidateAll(ids);
+    }
+
+    private void loadConfig() {
+        this.enabled = environment.getProperty("cache.customer.enabled", Boolean.class, false);
+        this.flushOnCheckpoint = "flush".equals(environment.getProperty("cache.customer.checkpoint", "keep"));
+    }
+
+    /**
+     * An item and the ETag of the customer it holds.
+     */
+    static final class Entry {
+
+        final Map<String, AttributeValue> item;
+        final String etag;
+
+        private Entry(Map<String, AttributeValue> item, String etag) {
+            this.item = item;
+            this.etag = etag;
+        }
+
+        static Entry of(Map<String, AttributeValue> item) {
+            return item != null ? new Entry(item, CustomerCodec.etag(CustomerCodec.fromItem(item))) : null;
+        }
+    }
+}
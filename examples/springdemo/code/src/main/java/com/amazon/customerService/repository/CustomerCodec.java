@@ -0,0 +1,181 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.repository;
+
+import static com.amazon.customerService.repository.CustomerRepository.ACCOUNT_NUMBER_COLUMN;
+import static com.amazon.customerService.repository.CustomerRepository.EMAIL_COLUMN;
+import static com.amazon.customerService.repository.CustomerRepository.ID_COLUMN;
+import static com.amazon.customerService.repository.CustomerRepository.NAME_COLUMN;
+import static com.amazon.customerService.repository.CustomerRepository.REGISTRATION_DATE_COLUMN;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+
+import com.amazon.customerService.model.Customer;
+
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * Thread-safe conversion between {@link Customer} and DynamoDB items. The registration date keeps the
+ * {@code yyyy-MM-dd'T'HH:mm:ss.SSSXXX} string format used so far, written in UTC, so existing items stay
+ * readable in both directions. Attributes with a {@code null} value are left out of the item.
+ */
+@Slf4j
+public final class CustomerCodec {
+
+    private static final DateTimeFormatter REGISTRATION_DATE_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSXXX").withZone(ZoneOffset.UTC);
+
+    private CustomerCodec() {
+    }
+
+    public static Map<String, AttributeValue> toItem(final Customer customer) {
+        Map<String, AttributeValue> item = new HashMap<>(8);
+
+        putString(item, ID_COLUMN, customer.getId());
+        putString(item, NAME_COLUMN, customer.getName());
+        putString(item, EMAIL_COLUMN, customer.getEmail());
+        putString(item, ACCOUNT_NUMBER_COLUMN, customer.getAccountNumber());
+        if (customer.getRegDate() != null) {
+            putString(item, REGISTRATION_DATE_COLUMN, formatDate(customer.getRegDate()));
+        }
+
+        return item;
+    }
+
+    public static Customer fromItem(final Map<String, AttributeValue> item) {
+        Customer customer = new Customer();
+
+        customer.setId(getString(item, ID_COLUMN));
+        customer.setName(getString(item, NAME_COLUMN));
+        customer.setEmail(getString(item, EMAIL_COLUMN));
+        customer.setAccountNumber(getString(item, ACCOUNT_NUMBER_COLUMN));
+        customer.setRegDate(parseDate(getString(item, REGISTRATION_DATE_COLUMN)));
+
+        return customer;
+    }
+
+    /**
+     * @return a copy of {@code customer} that shares no mutable state with it
+     */
+    static Customer copy(final Customer customer) {
+        Customer copy = new Customer();
+
+        copy.setId(customer.getId());
+        copy.setName(customer.getName());
+        copy.setEmail(customer.getEmail());
+        copy.setAccountNumber(customer.getAccountNumber());
+        copy.setRegDate(customer.getRegDate() != null ? new Date(customer.getRegDate().getTime()) : null);
+
+        return copy;
+    }
+
+    /**
+     * @return the strong ETag (quoted) of the representation of {@code customer}: SHA-256 over all its
+     * attributes, truncated to 128 bits
+     */
+    public static String etag(final Customer customer) {
+        MessageDigest digest = sha256();
+        update(digest, customer);
+        return toETag(digest);
+    }
+
+    /**
+     * @return the weak ETag of a list of customers; it changes when any customer or the order changes. It is
+     * weak so that the list can still be compressed: Tomcat does not compress responses with a strong ETag.
+     */
+    public static String etag(final Collection<Customer> customers) {
+        MessageDigest digest = sha256();
+        for (Customer customer : customers) {
+            update(digest, customer);
+        }
+        return "W/" + toETag(digest);
+    }
+
+    public static String formatDate(final Date date) {
+        return REGISTRATION_DATE_FORMAT.format(date.toInstant());
+    }
+
+    static Date parseDate(final String value) {
+        if (value == null) {
+            return null;
+        }
+
+        try {
+            return Date.from(OffsetDateTime.parse(value, REGISTRATION_DATE_FORMAT).toInstant());
+        } catch (DateTimeParseException exc) {
+            log.error(exc.toString());
+            return null;
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException exc) {
+            // Every JDK has to provide SHA-256
+            throw new IllegalStateException(exc);
+        }
+    }
+
+    private static void update(MessageDigest digest, Customer customer) {
+        update(digest, customer.getId());
+        update(digest, customer.getName());
+        update(digest, customer.getEmail());
+        update(digest, customer.getAccountNumber());
+        update(digest, customer.getRegDate() != null ? String.valueOf(customer.getRegDate().getTime()) : null);
+    }
+
+    /**
+     * Length-prefixed, so that moving characters between attributes changes the hash.
+     */
+    private static void update(MessageDigest digest, String value) {
+        if (value == null) {
+            digest.update(new byte[]{-1, -1, -1, -1});
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        digest.update(new byte[]{(byte) (bytes.length >>> 24), (byte) (bytes.length >>> 16),
+                (byte) (bytes.length >>> 8), (byte) bytes.length});
+        digest.update(bytes);
+    }
+
+    private static String toETag(MessageDigest digest) {
+        return '"' + HexFormat.of().formatHex(digest.digest(), 0, 16) + '"';
+    }
+
+    private static void putString(Map<String, AttributeValue> item, String name, String value) {
+        if (value != null) {
+            item.put(name, AttributeValue.fromS(value));
+        }
+    }
+
+    private static String getString(Map<String, AttributeValue> item, String name) {
+        AttributeValue value = item.get(name);
+        return value != null ? value.s() : null;
+    }
+}
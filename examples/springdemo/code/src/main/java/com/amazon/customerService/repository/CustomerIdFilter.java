@@ -0,0 +1,306 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.repository;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bloom filter over all customer ids, so that lookups of ids that do not exist can be answered without
+ * a DynamoDB call. Enabled with {@code id-filter.enabled}.
+ * <p>
+ * The filter is built from a scan that reads only the ids. It is sized for twice the table's item
+ * count (at least {@code id-filter.expected-insertions}) at a false-positive rate of
+ * {@code id-filter.fpp}, and it is rebuilt every {@code id-filter.rebuild-interval}. Ids are added
+ * before they are written, so the filter never reports a stored id as missing. Ids added while a rebuild
+ * is running also go into the new filter. Deleted ids stay in the filter until the next rebuild.
+ * <p>
+ * The filter only knows about ids written by this process or seen by the last scan. If other processes
+ * create customers, lookups can get a wrong "not found" until the next rebuild, so keep the rebuild
+ * interval within the staleness you can accept. Deletes are never skipped: a skipped delete of a customer
+ * that another process created would leave it in the table for good, not just until the next rebuild. Until the first build has finished, and from a checkpoint until
+ * the rebuild after restore, every id is passed through to DynamoDB.
+ * <p>
+ * Metrics: {@code customer.id-filter.avoided} (DynamoDB calls answered locally),
+ * {@code customer.id-filter.false-positives}, {@code customer.id-filter.rebuild} (timer).
+ */
+@Slf4j
+@Component
+public class CustomerIdFilter {
+
+    private volatile Bloom current;
+    private volatile Bloom building;
+    private final AtomicReference<Set<String>> journal = new AtomicReference<>(ConcurrentHashMap.newKeySet());
+
+    private boolean enabled;
+    private double fpp;
+    private long expectedInsertions;
+    private Duration rebuildInterval;
+
+    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> rebuilds;
+    private LongSupplier approximateCount;
+    private Supplier<Stream<String>> ids;
+
+    private Counter avoided;
+    private Counter falsePositives;
+    private Timer rebuildTimer;
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @PostConstruct
+    public void init() {
+        loadConfig();
+
+        this.avoided = meterRegistry.counter("customer.id-filter.avoided");
+        this.falsePositives = meterRegistry.counter("customer.id-filter.false-positives");
+        this.rebuildTimer = meterRegistry.timer("customer.id-filter.rebuild");
+    }
+
+    /**
+     * Starts the periodic rebuilds, beginning with one right away.
+     *
+     * @param approximateCount approximate number of customers, used for sizing
+     * @param ids              scans all customer ids; the stream is closed after use
+     */
+    synchronized void start(LongSupplier approximateCount, Supplier<Stream<String>> ids) {
+        if (!enabled) {
+            return;
+        }
+        this.approximateCount = approximateCount;
+        this.ids = ids;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(daemonThreadFactory());
+        scheduleRebuilds();
+    }
+
+    /**
+     * Stops answering and rebuilding, e.g. before a checkpoint: the table can change while the process is
+     * not running, so the filter is not trusted again before it has been rebuilt.
+     */
+    synchronized void suspend() {
+        current = null;
+        if (rebuilds != null) {
+            rebuilds.cancel(false);
+            rebuilds = null;
+        }
+    }
+
+    /**
+     * Restarts the periodic rebuilds after {@link #suspend()}, beginning with one right away.
+     */
+    synchronized void resume() {
+        loadConfig();
+        if (scheduler != null && enabled) {
+            scheduleRebuilds();
+        }
+    }
+
+    @PreDestroy
+    public synchronized void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * @return {@code false} if {@code id} does not exist for sure, {@code true} if it may exist or the
+     * filter is not ready
+     */
+    boolean mightContain(String id) {
+        Bloom filter = current;
+        if (filter == null || filter.mightContain(id)) {
+            return true;
+        }
+        avoided.increment();
+        return false;
+    }
+
+    /**
+     * Records that an id passed by {@link #mightContain} did not exist after all.
+     */
+    void recordFalsePositive() {
+        if (current != null) {
+            falsePositives.increment();
+        }
+    }
+
+    /**
+     * Adds {@code id}; has to be called before the customer is written.
+     */
+    void add(String id) {
+        if (!enabled) {
+            return;
+        }
+        // Order matters, see rebuild()
+        journal.get().add(id);
+        Bloom next = building;
+        if (next != null) {
+            next.add(id);
+        }
+        Bloom filter = current;
+        if (filter != null) {
+            filter.add(id);
+        }
+    }
+
+    private void scheduleRebuilds() {
+        rebuilds = scheduler.scheduleWithFixedDelay(this::rebuild, 0, rebuildInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void rebuild() {
+        long start = System.nanoTime();
+        try {
+            long expected = Math.max(expectedInsertions, 2 * approximateCount.getAsLong());
+            Bloom next = new Bloom(expected, fpp);
+
+            // Ids added from here on go into the new filter directly; those added before are in the
+            // previous journal, even if their write is not visible to the scan yet
+            building = next;
+            Set<String> previous = journal.getAndSet(ConcurrentHashMap.newKeySet());
+
+            long count = 0;
+            try (Stream<String> scanned = ids.get()) {
+                for (Iterator<String> it = scanned.iterator(); it.hasNext(); count++) {
+                    next.add(it.next());
+                }
+            }
+            for (String id : previous) {
+                next.add(id);
+            }
+
+            current = next;
+            building = null;
+
+            if (count > expected) {
+                log.warn("Customer id filter holds " + count + " ids but was sized for " + expected
+                        + ", the false-positive rate will be higher than " + fpp);
+            }
+            log.info("Rebuilt customer id filter with " + count + " ids in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        } catch (RuntimeException exc) {
+            building = null;
+            log.error("Customer id filter rebuild failed, keeping the previous filter: " + exc);
+        } finally {
+            rebuildTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static CustomizableThreadFactory daemonThreadFactory() {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("customer-id-filter-");
+        threadFactory.setDaemon(true);
+        return threadFactory;
+    }
+
+    private void loadConfig() {
+        this.enabled = environment.getProperty("id-filter.enabled", Boolean.class, false);
+        this.fpp = environment.getProperty("id-filter.fpp", Double.class, 0.01);
+        this.expectedInsertions = environment.getProperty("id-filter.expected-insertions", Long.class, 100_000L);
+        this.rebuildInterval = environment.getProperty("id-filter.rebuild-interval", Duration.class,
+                Duration.ofMinutes(15));
+    }
+
+    /**
+     * Lock-free Bloom filter with {@code k} bit positions derived from one 64-bit hash by double hashing.
+     */
+    static final class Bloom {
+
+        private final AtomicLongArray words;
+        private final long bitCount;
+        private final int hashCount;
+
+        Bloom(long expectedInsertions, double fpp) {
+            long n = Math.max(1, expectedInsertions);
+            long bits = Math.max(64, (long) Math.ceil(-n * Math.log(fpp) / (Math.log(2) * Math.log(2))));
+            this.words = new AtomicLongArray((int) Math.min(Integer.MAX_VALUE, (bits + 63) >>> 6));
+            this.bitCount = words.length() * 64L;
+            this.hashCount = Math.max(1, (int) Math.round((double) bits / n * Math.log(2)));
+        }
+
+        void add(String id) {
+            long h1 = hash(id);
+            long h2 = mix(h1 + 0x9e3779b97f4a7c15L);
+            for (int i = 0; i < hashCount; i++) {
+                long bit = ((h1 + i * h2) & Long.MAX_VALUE) % bitCount;
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                if ((words.get(word) & mask) == 0) {
+                    words.accumulateAndGet(word, mask, (value, m) -> value | m);
+                }
+            }
+        }
+
+        boolean mightContain(String id) {
+            long h1 = hash(id);
+            long h2 = mix(h1 + 0x9e3779b97f4a7c15L);
+            for (int i = 0; i < hashCount; i++) {
+                long bit = ((h1 + i * h2) & Long.MAX_VALUE) % bitCount;
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * FNV-1a over the characters, finished with the MurmurHash3 mixer.
+         */
+        private static long hash(String id) {
+            long h = 0xcbf29ce484222325L;
+            for (int i = 0; i < id.length(); i++) {
+                h ^= id.charAt(i);
+                h *= 0x100000001b3L;
+            }
+            return mix(h);
+        }
+
+        private static long mix(long h) {
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+            return h;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import com.amazon.customerService.exception.CustomerNotFoundException;
+import com.amazon.customerService.exception.InvalidCursorException;
+import com.amazon.customerService.exception.PreconditionFailedException;
+import com.amazon.customerService.model.Customer;
+import com.amazon.customerService.model.CustomerPage;
+import com.amazon.customerService.model.TaggedCustomer;
+
+/**
+ * Storage engine for customers. {@link CustomerRepository} stores them in DynamoDB;
+ * {@link InMemoryCustomerStore} keeps them on the heap and is selected with {@code mode=memory}.
+ * <p>
+ * Returned customers are copies: modifying them does not change what is stored.
+ */
+public interface CustomerStore {
+
+    default Customer save(Customer customer) {
+        return save(customer, false);
+    }
+
+    /**
+     * Stores {@code customer} under a newly generated id, which is set on {@code customer}.
+     *
+     * @param durable if the engine acknowledges writes before they are stored, wait until this one is
+     */
+    Customer save(Customer customer, boolean durable);
+
+    /**
+     * Stores all customers. Customers without an id get a generated one.
+     */
+    List<Customer> saveAll(List<Customer> customers);
+
+    /**
+     * Like {@link #saveAll}, but does not fail as a whole when some customers cannot be stored.
+     *
+     * @return the error per id of the customers that were not stored, empty if all were
+     */
+    Map<String, String> trySaveAll(List<Customer> customers);
+
+    default Customer update(Customer customer) {
+        return update(customer, false);
+    }
+
+    default Customer update(Customer customer, boolean durable) {
+        return update(customer, durable, null);
+    }
+
+    /**
+     * Replaces the attributes of an existing customer. Attributes that are {@code null} on {@code customer}
+     * are removed, except the registration date, which is kept.
+     *
+     * @param expectedETags if not {@code null}, only update if the customer's current ETag is one of these
+     *                      ({@link TaggedCustomer#ANY} matches any existing customer)
+     * @return the customer as stored after the update
+     * @throws CustomerNotFoundException   if there is no customer with the given id
+     * @throws PreconditionFailedException if there is none or its ETag does not match, with {@code expectedETags}
+     */
+    Customer update(Customer customer, boolean durable, Collection<String> expectedETags);
+
+    default Customer patch(String id, Customer changes) {
+        return patch(id, changes, false);
+    }
+
+    /**
+     * Writes only the non-null attributes of {@code changes} to an existing customer.
+     *
+     * @return the customer as stored after the update
+     * @throws CustomerNotFoundException if there is no customer with the given id
+     */
+    Customer patch(String id, Customer changes, boolean durable);
+
+    /**
+     * @return the customer, or {@code null} if there is none with the given id
+     */
+    Customer findById(String id);
+
+    /**
+     * @return the customer with its ETag, or {@code null} if there is none with the given id
+     */
+    default TaggedCustomer findTaggedById(String id) {
+        Customer customer = findById(id);
+        return customer != null ? new TaggedCustomer(customer, CustomerCodec.etag(customer)) : null;
+    }
+
+    /**
+     * Duplicate ids are collapsed; ids that do not exist are omitted from the result.
+     */
+    List<Customer> findAllById(Collection<String> ids);
+
+    List<Customer> findByEmail(String email);
+
+    List<Customer> findByAccountNumber(String accountNumber);
+
+    List<Customer> findAll();
+
+    /**
+     * Reads up to {@code limit} customers, starting after the page whose next cursor is {@code cursor}, or
+     * from the beginning if it is {@code null}. Pages come in a stable order per engine. A customer that
+     * exists and is not deleted during the whole iteration is returned exactly once; customers created or
+     * deleted meanwhile may or may not be. A page can hold fewer than {@code limit} customers, even none,
+     * without being the last one: the iteration has ended when the next cursor is {@code null}.
+     *
+     * @throws InvalidCursorException if {@code cursor} was not returned by this method
+     */
+    CustomerPage findPage(String cursor, int limit);
+
+    /**
+     * Streams all customers in constant memory. The stream has to be closed.
+     */
+    Stream<Customer> streamAll();
+
+    /**
+     * Streams all customers, reading with up to {@code totalSegments} workers in parallel. Item order is
+     * not defined. The stream has to be closed.
+     */
+    Stream<Customer> streamAllParallel(int totalSegments);
+
+    /**
+     * Streams all customers using the configured scan mode. The stream has to be closed.
+     */
+    Stream<Customer> streamAllConfigured();
+
+    /**
+     * Streams the ids of all customers, without reading the other attributes. The stream has to be closed.
+     */
+    Stream<String> streamAllIds();
+
+    default void deleteById(String id) {
+        deleteById(id, null);
+    }
+
+    /**
+     * Deletes the customer; deleting one that does not exist is not an error, unless {@code expectedETags}
+     * is given.
+     *
+     * @param expectedETags if not {@code null}, only delete if the customer's current ETag is one of these
+     * @throws PreconditionFailedException if there is none or its ETag does not match, with {@code expectedETags}
+     */
+    void deleteById(String id, Collection<String> expectedETags);
+
+    /**
+     * Deletes all customers with the given ids. Ids that do not exist count as deleted, as with
+     * {@link #deleteById(String)}.
+     *
+     * @return the error per id of the customers that were not deleted, empty if all were
+     */
+    Map<String, String> tryDeleteAll(Collection<String> ids);
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.repository;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.EnvironmentVariableCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.WebIdentityTokenFileCredentialsProvider;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.core.retry.RetryMode;
+import software.amazon.awssdk.core.retry.RetryPolicy;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.http.async.SdkAsyncHttpClient;
+import software.amazon.awssdk.http.crt.AwsCrtAsyncHttpClient;
+import software.amazon.awssdk.http.crt.AwsCrtHttpClient;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.http.nio.netty.SdkEventLoopGroup;
+import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClientBuilder;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClientBuilder;
+
+/**
+ * Builds the DynamoDB clients used by the repositories. The HTTP transport and its pool are configured
+ * through properties, which are read on every call so that clients recreated in {@code afterRestore}
+ * pick up the configuration of the restore environment:
+ * <ul>
+ * <li>{@code dynamodb.http.client}: {@code apache} (default), {@code url-connection} or {@code crt}</li>
+ * <li>{@code dynamodb.http.async-client}: {@code netty} (default) or {@code crt}</li>
+ * <li>{@code dynamodb.http.max-connections}, {@code dynamodb.http.connection-ttl},
+ * {@code dynamodb.http.connection-acquisition-timeout}, {@code dynamodb.http.connection-timeout},
+ * {@code dynamodb.http.socket-timeout}, {@code dynamodb.http.tcp-keep-alive}</li>
+ * <li>{@code dynamodb.timeout.attempt} and {@code dynamodb.timeout.call}: deadline per HTTP attempt and for
+ * the whole call including retries</li>
+ * <li>{@code dynamodb.retry.mode}: {@code legacy}, {@code standard} or {@code adaptive} (retry quota plus
+ * client-side rate limiting when throttled), and {@code dynamodb.retry.max-retries}</li>
+ * <li>{@code amazon.dynamodb.endpoint} and {@code amazon.dynamodb.region}: optional overrides</li>
+ * </ul>
+ * Settings that a transport does not support are ignored. Credentials depend on {@code mode}: environment
+ * variables for {@code ci}, static dummy credentials for {@code local} (DynamoDB Local), and the web
+ * identity token file (IRSA) otherwise.
+ */
+@Slf4j
+@Component
+public class DynamoDbClientFactory {
+
+    private final Environment environment;
+
+    public DynamoDbClientFactory(Environment environment) {
+        this.environment = environment;
+    }
+
+    public DynamoDbClient createClient() {
+        return createClient(credentialsProvider());
+    }
+
+    /**
+     * @param credentialsProvider from {@link #credentialsProvider()}; passing it in lets callers resolve
+     *                            (and thereby warm up) the exact provider instance used by the client
+     */
+    public DynamoDbClient createClient(AwsCredentialsProvider credentialsProvider) {
+        String transport = environment.getProperty("dynamodb.http.client", "apache");
+        log.info("Mode (through Environment Abstraction):" + mode() + ", HTTP client: " + transport);
+
+        DynamoDbClientBuilder builder = DynamoDbClient.builder()
+                .httpClientBuilder(httpClientBuilder(transport))
+                .credentialsProvider(credentialsProvider)
+                .overrideConfiguration(overrideConfiguration());
+
+        URI endpoint = endpoint();
+        if (endpoint != null) {
+            builder.endpointOverride(endpoint);
+        }
+        Region region = region();
+        if (region != null) {
+            builder.region(region);
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * @param httpClient created by {@link #createAsyncHttpClient}; the client does not close it
+     */
+    public DynamoDbAsyncClient createAsyncClient(SdkAsyncHttpClient httpClient) {
+        log.info("Mode (through Environment Abstraction):" + mode() + ", async HTTP client: "
+                + (isNettyAsyncClient() ? "netty" : "crt"));
+
+        DynamoDbAsyncClientBuilder builder = DynamoDbAsyncClient.builder()
+                .httpClient(httpClient)
+                .credentialsProvider(credentialsProvider())
+                .overrideConfiguration(overrideConfiguration());
+
+        URI endpoint = endpoint();
+        if (endpoint != null) {
+            builder.endpointOverride(endpoint);
+        }
+        Region region = region();
+        if (region != null) {
+            builder.region(region);
+        }
+
+        return builder.build();
+    }
+
+    public boolean isNettyAsyncClient() {
+        return "netty".equals(environment.getProperty("dynamodb.http.async-client", "netty"));
+    }
+
+    /**
+     * Creates the async HTTP client. The caller owns it, as well as the event loop group, and has to close both.
+     *
+     * @param eventLoopGroup event loop for the Netty transport; ignored for CRT
+     */
+    public SdkAsyncHttpClient createAsyncHttpClient(SdkEventLoopGroup eventLoopGroup) {
+        HttpSettings settings = new HttpSettings();
+
+        if (!isNettyAsyncClient()) {
+            AwsCrtAsyncHttpClient.Builder crt = AwsCrtAsyncHttpClient.builder();
+            ifSet(settings.maxConnections, crt::maxConcurrency);
+            ifSet(settings.connectionTimeout, crt::connectionTimeout);
+            ifSet(settings.connectionTtl, crt::connectionMaxIdleTime);
+            return crt.build();
+        }
+
+        NettyNioAsyncHttpClient.Builder netty = NettyNioAsyncHttpClient.builder()
+                .eventLoopGroup(eventLoopGroup);
+        ifSet(settings.maxConnections, netty::maxConcurrency);
+        ifSet(settings.connectionTimeout, netty::connectionTimeout);
+        ifSet(settings.connectionTtl, netty::connectionTimeToLive);
+        ifSet(settings.acquisitionTimeout, netty::connectionAcquisitionTimeout);
+        ifSet(settings.socketTimeout, netty::readTimeout);
+        ifSet(settings.tcpKeepAlive, netty::tcpKeepAlive);
+        return netty.build();
+    }
+
+    /**
+     * Returns a builder rather than a client so that the SDK owns the HTTP client and closes it
+     * together with the DynamoDB client (e.g. in {@code beforeCheckpoint}).
+     */
+    SdkHttpClient.Builder<?> httpClientBuilder(String transport) {
+        HttpSettings settings = new HttpSettings();
+
+        switch (transport) {
+            case "apache":
+                ApacheHttpClient.Builder apache = ApacheHttpClient.builder();
+                ifSet(settings.maxConnections, apache::maxConnections);
+                ifSet(settings.connectionTimeout, apache::connectionTimeout);
+                ifSet(settings.connectionTtl, apache::connectionTimeToLive);
+                ifSet(settings.acquisitionTimeout, apache::connectionAcquisitionTimeout);
+                ifSet(settings.socketTimeout, apache::socketTimeout);
+                ifSet(settings.tcpKeepAlive, apache::tcpKeepAlive);
+                return apache;
+            case "url-connection":
+                // No pool of its own; connection reuse is governed by the JDK (http.maxConnections)
+                UrlConnectionHttpClient.Builder urlConnection = UrlConnectionHttpClient.builder();
+                ifSet(settings.connectionTimeout, urlConnection::connectionTimeout);
+                ifSet(settings.socketTimeout, urlConnection::socketTimeout);
+                return urlConnection;
+            case "crt":
+                AwsCrtHttpClient.Builder crt = AwsCrtHttpClient.builder();
+                ifSet(settings.maxConnections, crt::maxConcurrency);
+                ifSet(settings.connectionTimeout, crt::connectionTimeout);
+                ifSet(settings.connectionTtl, crt::connectionMaxIdleTime);
+                return crt;
+            default:
+                throw new IllegalArgumentException("Unknown dynamodb.http.client: " + transport);
+        }
+    }
+
+    /**
+     * Timeouts and retry policy; unset properties leave the SDK defaults in place.
+     */
+    ClientOverrideConfiguration overrideConfiguration() {
+        ClientOverrideConfiguration.Builder builder = ClientOverrideConfiguration.builder();
+        ifSet(environment.getProperty("dynamodb.timeout.attempt", Duration.class), builder::apiCallAttemptTimeout);
+        ifSet(environment.getProperty("dynamodb.timeout.call", Duration.class), builder::apiCallTimeout);
+
+        String retryMode = environment.getProperty("dynamodb.retry.mode");
+        Integer maxRetries = environment.getProperty("dynamodb.retry.max-retries", Integer.class);
+        if (StringUtils.hasText(retryMode) || maxRetries != null) {
+            RetryPolicy.Builder retryPolicy = StringUtils.hasText(retryMode)
+                    ? RetryPolicy.builder(RetryMode.valueOf(retryMode.toUpperCase(Locale.ROOT)))
+                    : RetryPolicy.builder();
+            ifSet(maxRetries, retryPolicy::numRetries);
+            builder.retryPolicy(retryPolicy.build());
+        }
+
+        return builder.build();
+    }
+
+    private static <T> void ifSet(T value, Consumer<T> setter) {
+        if (value != null) {
+            setter.accept(value);
+        }
+    }
+
+    public AwsCredentialsProvider credentialsProvider() {
+        String mode = mode();
+        if ("ci".equals(mode)) {
+            return EnvironmentVariableCredentialsProvider.create();
+        }
+        if ("local".equals(mode)) {
+            return StaticCredentialsProvider.create(AwsBasicCredentials.create("local", "local"));
+        }
+        return WebIdentityTokenFileCredentialsProvider.create();
+    }
+
+    private String mode() {
+        return environment.getProperty("mode");
+    }
+
+    private URI endpoint() {
+        String endpoint = environment.getProperty("amazon.dynamodb.endpoint");
+        return StringUtils.hasText(endpoint) ? URI.create(endpoint) : null;
+    }
+
+    private Region region() {
+        String region = environment.getProperty("amazon.dynamodb.region");
+        return StringUtils.hasText(region) ? Region.of(region) : null;
+    }
+
+    /**
+     * Snapshot of the transport settings. Unset ({@code null}) values leave the SDK defaults in place.
+     */
+    private class HttpSettings {
+        final Integer maxConnections = environment.getProperty("dynamodb.http.max-connections", Integer.class);
+        final Duration connectionTtl = environment.getProperty("dynamodb.http.connection-ttl", Duration.class);
+        final Duration acquisitionTimeout =
+                environment.getProperty("dynamodb.http.connection-acquisition-timeout", Duration.class);
+        final Duration connectionTimeout = environment.getProperty("dynamodb.http.connection-timeout", Duration.class);
+        final Duration socketTimeout = environment.getProperty("dynamodb.http.socket-timeout", Duration.class);
+        final Boolean tcpKeepAlive = environment.getProperty("dynamodb.http.tcp-keep-alive", Boolean.class);
+    }
+}
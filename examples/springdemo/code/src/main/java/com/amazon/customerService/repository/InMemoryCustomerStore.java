@@ -0,0 +1,360 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.repository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.annotation.PostConstruct;
+
+import org.crac.Context;
+import org.crac.Core;
+import org.crac.Resource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Repository;
+
+import com.amazon.customerService.exception.CustomerNotFoundException;
+import com.amazon.customerService.exception.PreconditionFailedException;
+import com.amazon.customerService.model.Customer;
+import com.amazon.customerService.model.CustomerPage;
+import com.amazon.customerService.model.TaggedCustomer;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Heap-only {@link CustomerStore}, selected with {@code mode=memory}. It lets the web, serialization and
+ * CRaC layers be tested and benchmarked without DynamoDB. Customers live in a {@link ConcurrentHashMap}
+ * keyed by id, which locks per hash bin on writes and does not lock on reads. Updates are atomic per id.
+ * <p>
+ * To stand in for DynamoDB in load tests, every call can be delayed:
+ * <ul>
+ * <li>{@code memory.latency.read}: added to each read call (a whole stream counts as one call)</li>
+ * <li>{@code memory.latency.write}: added to each write call (a whole {@code saveAll} counts as one call)</li>
+ * <li>{@code memory.latency.jitter}: random extra delay between zero and this value</li>
+ * </ul>
+ * The settings are read again after a restore, so one checkpoint can be restored with different latencies.
+ * Email and account number lookups scan all customers.
+ */
+@Slf4j
+@Repository
+@ConditionalOnProperty(name = "mode", havingValue = "memory")
+public class InMemoryCustomerStore implements Resource, CustomerStore {
+
+    private final ConcurrentHashMap<String, Customer> customers = new ConcurrentHashMap<>();
+
+    private long readLatencyNanos;
+    private long writeLatencyNanos;
+    private long jitterNanos;
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private CustomerIdGenerator idGenerator;
+
+    @PostConstruct
+    public void init() {
+        loadConfig();
+        Core.getGlobalContext().register(this);
+    }
+
+    @Override
+    public void beforeCheckpoint(Context<? extends Resource> context) {
+        log.info("Executing beforeCheckpoint (" + customers.size() + " customers in memory)");
+    }
+
+    @Override
+    public void afterRestore(Context<? extends Resource> context) {
+        log.info("Executing afterRestore ...");
+        loadConfig();
+    }
+
+    @Override
+    public Customer save(final Customer customer, final boolean durable) {
+
+        customer.setId(idGenerator.newId());
+        if (customer.getRegDate() == null) {
+            customer.setRegDate(new Date());
+        }
+
+        simulateLatency(writeLatencyNanos);
+        customers.put(customer.getId(), CustomerCodec.copy(customer));
+
+        return customer;
+    }
+
+    @Override
+    public List<Customer> saveAll(final List<Customer> customerList) {
+
+        simulateLatency(writeLatencyNanos);
+        for (Customer customer : customerList) {
+            if (customer.getId() == null) {
+                customer.setId(idGenerator.newId());
+            }
+            if (customer.getRegDate() == null) {
+                customer.setRegDate(new Date());
+            }
+            customers.put(customer.getId(), CustomerCodec.copy(customer));
+        }
+
+        return customerList;
+    }
+
+    /**
+     * Never fails: there is no partial failure in memory.
+     */
+    @Override
+    public Map<String, String> trySaveAll(final List<Customer> customerList) {
+        saveAll(customerList);
+        return Map.of();
+    }
+
+    /**
+     * The ETag check and the update are atomic.
+     */
+    @Override
+    public Customer update(final Customer customer, final boolean durable, final Collection<String> expectedETags) {
+
+        simulateLatency(writeLatencyNanos);
+        Customer updated = customers.computeIfPresent(customer.getId(), (id, existing) -> {
+            checkETag(existing, expectedETags);
+            Customer replacement = CustomerCodec.copy(customer);
+            if (replacement.getRegDate() == null) {
+                replacement.setRegDate(existing.getRegDate());
+            }
+            return replacement;
+        });
+
+        if (updated == null) {
+            if (expectedETags != null) {
+                throw new PreconditionFailedException(customer.getId());
+            }
+            throw new CustomerNotFoundException(customer.getId());
+        }
+        return CustomerCodec.copy(updated);
+    }
+
+    @Override
+    public Customer patch(final String id, final Customer changes, final boolean durable) {
+
+        simulateLatency(writeLatencyNanos);
+        Customer updated = customers.computeIfPresent(id, (key, existing) -> {
+            Customer patched = CustomerCodec.copy(existing);
+            if (changes.getName() != null) {
+                patched.setName(changes.getName());
+            }
+            if (changes.getEmail() != null) {
+                patched.setEmail(changes.getEmail());
+            }
+            if (changes.getAccountNumber() != null) {
+                patched.setAccountNumber(changes.getAccountNumber());
+            }
+            if (changes.getRegDate() != null) {
+                patched.setRegDate(changes.getRegDate());
+            }
+            return patched;
+        });
+
+        if (updated == null) {
+            throw new CustomerNotFoundException(id);
+        }
+        return CustomerCodec.copy(updated);
+    }
+
+    @Override
+    public Customer findById(final String id) {
+
+        simulateLatency(readLatencyNanos);
+        Customer customer = customers.get(id);
+
+        return customer != null ? CustomerCodec.copy(customer) : null;
+    }
+
+    @Override
+    public List<Customer> findAllById(final Collection<String> ids) {
+
+        simulateLatency(readLatencyNanos);
+        List<Customer> customerList = new ArrayList<>(ids.size());
+        for (String id : new LinkedHashSet<>(ids)) {
+            Customer customer = customers.get(id);
+            if (customer != null) {
+                customerList.add(CustomerCodec.copy(customer));
+            }
+        }
+
+        return customerList;
+    }
+
+    @Override
+    public List<Customer> findByEmail(final String email) {
+        return findMatching(customer -> email.equals(customer.getEmail()));
+    }
+
+    @Override
+    public List<Customer> findByAccountNumber(final String accountNumber) {
+        return findMatching(customer -> accountNumber.equals(customer.getAccountNumber()));
+    }
+
+    @Override
+    public List<Customer> findAll() {
+        return findMatching(customer -> true);
+    }
+
+    /**
+     * Pages are in ascending id order. Each call filters and sorts the ids after the cursor, which is fine
+     * for the sizes this store is meant for. Unlike DynamoDB, the last page never has a next cursor.
+     */
+    @Override
+    public CustomerPage findPage(final String cursor, final int limit) {
+
+        simulateLatency(readLatencyNanos);
+        String after = cursor != null ? PageCursor.decode(cursor) : null;
+
+        // One more than requested, to tell whether this is the last page
+        List<Customer> customerList = customers.values().stream()
+                .filter(customer -> after == null || customer.getId().compareTo(after) > 0)
+                .sorted(Comparator.comparing(Customer::getId))
+                .limit(limit + 1L)
+                .map(CustomerCodec::copy)
+                .collect(Collectors.toList());
+
+        if (customerList.size() <= limit) {
+            return new CustomerPage(customerList, null);
+        }
+        customerList.remove(limit);
+        return new CustomerPage(customerList, PageCursor.encode(customerList.get(limit - 1).getId()));
+    }
+
+    /**
+     * Iterates over the live map: customers changed while the stream is consumed may or may not be seen.
+     */
+    @Override
+    public Stream<Customer> streamAll() {
+
+        simulateLatency(readLatencyNanos);
+
+        return customers.values().stream().map(CustomerCodec::copy);
+    }
+
+    /**
+     * Same as {@link #streamAll()}; there is nothing to gain from reading memory in segments.
+     */
+    @Override
+    public Stream<Customer> streamAllParallel(final int totalSegments) {
+        return streamAll();
+    }
+
+    @Override
+    public Stream<Customer> streamAllConfigured() {
+        return streamAll();
+    }
+
+    @Override
+    public Stream<String> streamAllIds() {
+
+        simulateLatency(readLatencyNanos);
+
+        return customers.keySet().stream();
+    }
+
+    /**
+     * The ETag check and the delete are atomic.
+     */
+    @Override
+    public void deleteById(final String id, final Collection<String> expectedETags) {
+
+        simulateLatency(writeLatencyNanos);
+        if (expectedETags == null) {
+            customers.remove(id);
+            return;
+        }
+
+        boolean[] deleted = new boolean[1];
+        customers.computeIfPresent(id, (key, existing) -> {
+            checkETag(existing, expectedETags);
+            deleted[0] = true;
+            return null;
+        });
+        if (!deleted[0]) {
+            throw new PreconditionFailedException(id);
+        }
+    }
+
+    /**
+     * Never fails, like {@link #trySaveAll}; the whole call is delayed once.
+     */
+    @Override
+    public Map<String, String> tryDeleteAll(final Collection<String> ids) {
+
+        simulateLatency(writeLatencyNanos);
+        ids.forEach(customers::remove);
+
+        return Map.of();
+    }
+
+    private static void checkETag(final Customer existing, final Collection<String> expectedETags) {
+        if (expectedETags != null
+                && !new TaggedCustomer(existing, CustomerCodec.etag(existing)).matchesAny(expectedETags)) {
+            throw new PreconditionFailedException(existing.getId());
+        }
+    }
+
+    private List<Customer> findMatching(final Predicate<Customer> filter) {
+
+        simulateLatency(readLatencyNanos);
+
+        return customers.values().stream()
+                .filter(filter)
+                .map(CustomerCodec::copy)
+                .collect(Collectors.toList());
+    }
+
+    private void simulateLatency(final long latencyNanos) {
+        long nanos = latencyNanos;
+        if (jitterNanos > 0) {
+            nanos += ThreadLocalRandom.current().nextLong(jitterNanos + 1);
+        }
+        if (nanos == 0) {
+            return;
+        }
+
+        try {
+            Thread.sleep(Duration.ofNanos(nanos));
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during simulated latency", exc);
+        }
+    }
+
+    private void loadConfig() {
+        this.readLatencyNanos = environment.getProperty("memory.latency.read", Duration.class, Duration.ZERO).toNanos();
+        this.writeLatencyNanos = environment.getProperty("memory.latency.write", Duration.class, Duration.ZERO).toNanos();
+        this.jitterNanos = environment.getProperty("memory.latency.jitter", Duration.class, Duration.ZERO).toNanos();
+    }
+}
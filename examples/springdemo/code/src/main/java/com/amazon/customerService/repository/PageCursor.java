@@ -0,0 +1,56 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import com.amazon.customerService.exception.InvalidCursorException;
+
+/**
+ * Encodes the id of the last customer on a page as the opaque cursor of the next page. For DynamoDB the id is
+ * the whole primary key, so it is all that is needed for the {@code ExclusiveStartKey}. Clients must not
+ * depend on the format.
+ */
+final class PageCursor {
+
+    private static final String VERSION = "1:";
+
+    private PageCursor() {
+    }
+
+    static String encode(String lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((VERSION + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the id of the last customer of the previous page
+     * @throws InvalidCursorException if {@code cursor} was not created by {@link #encode}
+     */
+    static String decode(String cursor) {
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException exc) {
+            throw new InvalidCursorException(cursor);
+        }
+        if (!decoded.startsWith(VERSION) || decoded.length() == VERSION.length()) {
+            throw new InvalidCursorException(cursor);
+        }
+        return decoded.substring(VERSION.length());
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.repository;
+
+import java.util.UUID;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Random (version 4) UUIDs from {@link UUID#randomUUID()}, as used before {@link UuidV7Generator}. Its
+ * {@code SecureRandom} is part of the checkpoint image, so prefer {@code uuidv7} when restoring many
+ * processes from one image.
+ */
+@Component
+@ConditionalOnProperty(name = "id.generator", havingValue = "random")
+public class RandomUuidGenerator implements CustomerIdGenerator {
+
+    @Override
+    public String newId() {
+        return UUID.randomUUID().toString();
+    }
+}
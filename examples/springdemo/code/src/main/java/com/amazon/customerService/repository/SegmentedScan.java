@@ -0,0 +1,167 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+
+/**
+ * Parallel scan using DynamoDB Segment/TotalSegments. Each segment is paginated on the given executor
+ * and pushes its items into a bounded queue, which is drained by a single merged stream. Closing the
+ * stream before it is exhausted cancels the remaining segments.
+ */
+@Slf4j
+class SegmentedScan {
+
+    static final String SEGMENT_TIMER = "customer.scan.segment";
+
+    // Marks the end of one segment; compared by identity
+    private static final Map<String, AttributeValue> SEGMENT_DONE = Collections.unmodifiableMap(new HashMap<>());
+
+    private final DynamoDbClient client;
+    private final String tableName;
+    private final int totalSegments;
+    private final ExecutorService executor;
+    private final MeterRegistry meterRegistry;
+    private final BlockingQueue<Map<String, AttributeValue>> queue;
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+    SegmentedScan(DynamoDbClient client, String tableName, int totalSegments, int bufferSize,
+                  ExecutorService executor, MeterRegistry meterRegistry) {
+        this.client = client;
+        this.tableName = tableName;
+        this.totalSegments = totalSegments;
+        this.executor = executor;
+        this.meterRegistry = meterRegistry;
+        this.queue = new ArrayBlockingQueue<>(bufferSize);
+    }
+
+    Stream<Map<String, AttributeValue>> stream() {
+        List<Future<?>> segments = new ArrayList<>(totalSegments);
+        for (int segment = 0; segment < totalSegments; segment++) {
+            final int current = segment;
+            segments.add(executor.submit(() -> scanSegment(current)));
+        }
+
+        Iterator<Map<String, AttributeValue>> iterator = new Iterator<>() {
+            private int remaining = totalSegments;
+            private Map<String, AttributeValue> next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && remaining > 0) {
+                    Map<String, AttributeValue> item = take();
+                    if (item == SEGMENT_DONE) {
+                        remaining--;
+                        RuntimeException exc = failure.get();
+                        if (exc != null) {
+                            throw exc;
+                        }
+                    } else {
+                        next = item;
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public Map<String, AttributeValue> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Map<String, AttributeValue> item = next;
+                next = null;
+                return item;
+            }
+        };
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.NONNULL), false)
+                .onClose(() -> segments.forEach(future -> future.cancel(true)));
+    }
+
+    private void scanSegment(int segment) {
+        long start = System.nanoTime();
+        int pages = 0, items = 0;
+
+        try {
+            ScanRequest scanRequest = ScanRequest.builder()
+                    .tableName(this.tableName)
+                    .segment(segment)
+                    .totalSegments(this.totalSegments)
+                    .build();
+
+            for (ScanResponse page : client.scanPaginator(scanRequest)) {
+                pages++;
+                for (Map<String, AttributeValue> item : page.items()) {
+                    queue.put(item);
+                    items++;
+                }
+            }
+        } catch (InterruptedException exc) {
+            // Consumer closed the stream, nobody is waiting for the remaining items
+            Thread.currentThread().interrupt();
+            return;
+        } catch (RuntimeException exc) {
+            failure.compareAndSet(null, exc);
+        }
+
+        long duration = System.nanoTime() - start;
+        Timer.builder(SEGMENT_TIMER)
+                .tag("totalSegments", String.valueOf(totalSegments))
+                .register(meterRegistry)
+                .record(duration, TimeUnit.NANOSECONDS);
+        log.debug("Scan segment " + segment + "/" + totalSegments + " finished: " + pages + " pages, " + items
+                + " items in " + TimeUnit.NANOSECONDS.toMillis(duration) + " ms");
+
+        try {
+            queue.put(SEGMENT_DONE);
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Map<String, AttributeValue> take() {
+        try {
+            return queue.take();
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for scan segments", exc);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.repository;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import io.micrometer.core.instrument.Counter;
+
+/**
+ * Coalesces concurrent calls for the same key: the first caller runs the call, callers arriving while it
+ * is in flight wait for it and get the same result or exception. Nothing is cached; once the call has
+ * finished, the next caller starts a new one. The shared result must therefore not be modified by callers.
+ * <p>
+ * {@link #forget} detaches the in-flight call for a key, so that callers arriving after a write do not
+ * join a read that started before it.
+ */
+class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> flights = new ConcurrentHashMap<>();
+    private final Counter coalesced;
+
+    /**
+     * @param coalesced counts the callers that joined a call in flight
+     */
+    SingleFlight(Counter coalesced) {
+        this.coalesced = coalesced;
+    }
+
+    V execute(K key, Function<? super K, ? extends V> call) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = flights.putIfAbsent(key, flight);
+        if (inFlight != null) {
+            coalesced.increment();
+            return await(inFlight);
+        }
+
+        try {
+            V value = call.apply(key);
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error exc) {
+            flight.completeExceptionally(exc);
+            throw exc;
+        } finally {
+            flights.remove(key, flight);
+        }
+    }
+
+    void forget(K key) {
+        flights.remove(key);
+    }
+
+    private static <V> V await(CompletableFuture<V> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException exc) {
+            if (exc.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (exc.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw exc;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.repository;
+
+import static com.amazon.customerService.repository.CustomerRepository.ACCOUNT_NUMBER_COLUMN;
+import static com.amazon.customerService.repository.CustomerRepository.ACCOUNT_NUMBER_INDEX;
+import static com.amazon.customerService.repository.CustomerRepository.EMAIL_COLUMN;
+import static com.amazon.customerService.repository.CustomerRepository.EMAIL_INDEX;
+import static com.amazon.customerService.repository.CustomerRepository.ID_COLUMN;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeDefinition;
+import software.amazon.awssdk.services.dynamodb.model.BillingMode;
+import software.amazon.awssdk.services.dynamodb.model.CreateGlobalSecondaryIndexAction;
+import software.amazon.awssdk.services.dynamodb.model.GlobalSecondaryIndex;
+import software.amazon.awssdk.services.dynamodb.model.GlobalSecondaryIndexDescription;
+import software.amazon.awssdk.services.dynamodb.model.IndexStatus;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.Projection;
+import software.amazon.awssdk.services.dynamodb.model.ProjectionType;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughput;
+import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
+import software.amazon.awssdk.services.dynamodb.model.ScalarAttributeType;
+import software.amazon.awssdk.services.dynamodb.model.TableDescription;
+
+/**
+ * Creates the customer table with its global secondary indexes, or adds the indexes that are missing on an
+ * existing table. Meant for DynamoDB Local ({@code table.provision.enabled} in the local profile); deployed
+ * tables are defined in CloudFormation.
+ */
+@Slf4j
+class TableProvisioner {
+
+    private static final Map<String, String> INDEXES = Map.of(
+            EMAIL_INDEX, EMAIL_COLUMN,
+            ACCOUNT_NUMBER_INDEX, ACCOUNT_NUMBER_COLUMN);
+
+    private static final long INDEX_POLL_MILLIS = 500;
+    private static final int INDEX_POLL_ATTEMPTS = 120;
+
+    private final DynamoDbClient client;
+
+    TableProvisioner(DynamoDbClient client) {
+        this.client = client;
+    }
+
+    void ensureTable(String tableName) {
+        TableDescription table;
+        try {
+            table = client.describeTable(builder -> builder.tableName(tableName)).table();
+        } catch (ResourceNotFoundException exc) {
+            createTable(tableName);
+            return;
+        }
+
+        Set<String> existing = table.hasGlobalSecondaryIndexes()
+                ? table.globalSecondaryIndexes().stream()
+                        .map(GlobalSecondaryIndexDescription::indexName)
+                        .collect(Collectors.toSet())
+                : Set.of();
+        boolean provisioned = table.billingModeSummary() == null
+                || table.billingModeSummary().billingMode() != BillingMode.PAY_PER_REQUEST;
+
+        for (Map.Entry<String, String> index : INDEXES.entrySet()) {
+            if (!existing.contains(index.getKey())) {
+                addIndex(tableName, index.getKey(), index.getValue(), provisioned);
+            }
+        }
+    }
+
+    private void createTable(String tableName) {
+        log.info("Creating table " + tableName + " with indexes " + INDEXES.keySet());
+
+        client.createTable(builder -> builder
+                .tableName(tableName)
+                .billingMode(BillingMode.PAY_PER_REQUEST)
+                .attributeDefinitions(
+                        stringAttribute(ID_COLUMN), stringAttribute(EMAIL_COLUMN), stringAttribute(ACCOUNT_NUMBER_COLUMN))
+                .keySchema(hashKey(ID_COLUMN))
+                .globalSecondaryIndexes(INDEXES.entrySet().stream()
+                        .map(index -> GlobalSecondaryIndex.builder()
+                                .indexName(index.getKey())
+                                .keySchema(hashKey(index.getValue()))
+                                .projection(Projection.builder().projectionType(ProjectionType.ALL).build())
+                                .build())
+                        .collect(Collectors.toList())));
+
+        client.waiter().waitUntilTableExists(builder -> builder.tableName(tableName));
+    }
+
+    private void addIndex(String tableName, String indexName, String column, boolean provisioned) {
+        log.info("Adding index " + indexName + " to table " + tableName);
+
+        CreateGlobalSecondaryIndexAction.Builder create = CreateGlobalSecondaryIndexAction.builder()
+                .indexName(indexName)
+                .keySchema(hashKey(column))
+                .projection(Projection.builder().projectionType(ProjectionType.ALL).build());
+        if (provisioned) {
+            create.provisionedThroughput(ProvisionedThroughput.builder()
+                    .readCapacityUnits(5L)
+                    .writeCapacityUnits(5L)
+                    .build());
+        }
+
+        client.updateTable(builder -> builder
+                .tableName(tableName)
+                .attributeDefinitions(stringAttribute(column))
+                .globalSecondaryIndexUpdates(update -> update.create(create.build())));
+
+        awaitIndex(tableName, indexName);
+    }
+
+    private void awaitIndex(String tableName, String indexName) {
+        for (int attempt = 0; attempt < INDEX_POLL_ATTEMPTS; attempt++) {
+            List<GlobalSecondaryIndexDescription> indexes =
+                    client.describeTable(builder -> builder.tableName(tableName)).table().globalSecondaryIndexes();
+            boolean active = indexes.stream()
+                    .anyMatch(index -> indexName.equals(index.indexName())
+                            && index.indexStatus() == IndexStatus.ACTIVE);
+            if (active) {
+                return;
+            }
+
+            try {
+                Thread.sleep(INDEX_POLL_MILLIS);
+            } catch (InterruptedException exc) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for index " + indexName, exc);
+            }
+        }
+
+        throw new IllegalStateException("Index " + indexName + " on table " + tableName + " did not become active");
+    }
+
+    private static AttributeDefinition stringAttribute(String name) {
+        return AttributeDefinition.builder().attributeName(name).attributeType(ScalarAttributeType.S).build();
+    }
+
+    private static KeySchemaElement hashKey(String name) {
+        return KeySchemaElement.builder().attributeName(name).keyType(KeyType.HASH).build();
+    }
+}
@@ -15,61 +15,213 @@
 
 package com.amazon.customerService.service;
 
+import com.amazon.customerService.model.BatchItemResult;
 import com.amazon.customerService.model.Customer;
-import com.amazon.customerService.repository.CustomerRepository;
-import org.apache.commons.lang3.RandomStringUtils;
+import com.amazon.customerService.model.CustomerPage;
+import com.amazon.customerService.model.TaggedCustomer;
+import com.amazon.customerService.repository.CustomerAsyncRepository;
+import com.amazon.customerService.repository.CustomerCodec;
+import com.amazon.customerService.repository.CustomerStore;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.sql.Date;
-import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.Random;
-import java.util.UUID;
+import java.util.Objects;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+@Slf4j
 @Service
 public class CustomerService {
 
     @Autowired
-    CustomerRepository customerRepository;
+    CustomerStore customerRepository;
+
+    // Absent with mode=memory, the async methods then complete synchronously on the store
+    @Autowired(required = false)
+    CustomerAsyncRepository customerAsyncRepository;
+
+    @Value("${pagination.max-limit:100}")
+    int maxPageSize;
+
+    @Value("${scan.parallel.max-segments:16}")
+    int maxScanSegments;
+
+    @Value("${batch.bulk.chunk-size:1000}")
+    int bulkChunkSize;
+
+    @Value("${batch.get.max-ids:1000}")
+    int maxBatchGetIds;
 
     public List<Customer> findAll() {
         return customerRepository.findAll();
     }
 
+    /**
+     * @param limit page size, capped at {@code pagination.max-limit}, which is also the default
+     */
+    public CustomerPage findPage(String cursor, Integer limit) {
+        return customerRepository.findPage(cursor, limit != null ? Math.min(limit, maxPageSize) : maxPageSize);
+    }
+
+    public Stream<Customer> streamAll() {
+        return customerRepository.streamAllConfigured();
+    }
+
+    /**
+     * @param segments between 1 and {@link #getMaxScanSegments()}
+     */
+    public Stream<Customer> streamAll(int segments) {
+        return customerRepository.streamAllParallel(segments);
+    }
+
     public Customer findById(String id) {
         return customerRepository.findById(id);
     }
 
-    public Customer create(Customer customer) {
-        return customerRepository.save(customer);
+    public TaggedCustomer findTaggedById(String id) {
+        return customerRepository.findTaggedById(id);
+    }
+
+    public List<Customer> findAllById(Collection<String> ids) {
+        return customerRepository.findAllById(ids);
+    }
+
+    public List<Customer> findByEmail(String email) {
+        return customerRepository.findByEmail(email);
+    }
+
+    public List<Customer> findByAccountNumber(String accountNumber) {
+        return customerRepository.findByAccountNumber(accountNumber);
+    }
+
+    public Customer create(Customer customer, boolean durable) {
+        return customerRepository.save(customer, durable);
+    }
+
+    /**
+     * @param expectedETags see {@link CustomerStore#update(Customer, boolean, Collection)}
+     */
+    public Customer update(Customer customer, boolean durable, Collection<String> expectedETags) {
+        return customerRepository.update(customer, durable, expectedETags);
+    }
+
+    public Customer patch(String id, Customer changes, boolean durable) {
+        return customerRepository.patch(id, changes, durable);
+    }
+
+    /**
+     * @param expectedETags see {@link CustomerStore#deleteById(String, Collection)}
+     */
+    public void deleteById(String id, Collection<String> expectedETags) {
+        customerRepository.deleteById(id, expectedETags);
+    }
+
+    /**
+     * Creates one chunk of a bulk create. Like {@link #create}, every customer gets a new id, also if it
+     * already has one. The chunk is written through {@link CustomerStore#trySaveAll}, so failures are
+     * reported per customer.
+     *
+     * @param customers  may contain {@code null} for entries that are not customers
+     * @param firstIndex position of the first customer in the whole request
+     */
+    public List<BatchItemResult> createAll(List<Customer> customers, int firstIndex) {
+        List<Customer> valid = new ArrayList<>(customers.size());
+        for (Customer customer : customers) {
+            if (customer != null) {
+                customer.setId(null);
+                valid.add(customer);
+            }
+        }
+        Map<String, String> failures = customerRepository.trySaveAll(valid);
+
+        List<String> ids = new ArrayList<>(customers.size());
+        for (Customer customer : customers) {
+            ids.add(customer != null ? customer.getId() : null);
+        }
+        return BatchItemResult.of(firstIndex, ids, failures, BatchItemResult.Status.CREATED);
+    }
+
+    /**
+     * Deletes one chunk of a bulk delete, see {@link #createAll}.
+     *
+     * @param ids may contain {@code null} for entries that are not ids
+     */
+    public List<BatchItemResult> deleteAll(List<String> ids, int firstIndex) {
+        List<String> valid = ids.stream().filter(Objects::nonNull).collect(Collectors.toList());
+        Map<String, String> failures = customerRepository.tryDeleteAll(valid);
+        return BatchItemResult.of(firstIndex, ids, failures, BatchItemResult.Status.DELETED);
+    }
+
+    /**
+     * The ids of all customers, for a truncate. The stream has to be closed.
+     */
+    public Stream<String> streamAllIds() {
+        return customerRepository.streamAllIds();
     }
 
-    public Customer update(Customer customer) {
-        return customerRepository.save(customer);
+    /**
+     * Largest number of segments of a parallel scan, {@code scan.parallel.max-segments}.
+     */
+    public int getMaxScanSegments() {
+        return maxScanSegments;
     }
 
-    public void deleteById(String id) {
-        customerRepository.deleteById(id);
+    /**
+     * Number of customers per chunk of a bulk request, {@code batch.bulk.chunk-size}. Each chunk is written
+     * with concurrent BatchWriteItem calls; only one chunk of a request is held in memory at a time.
+     */
+    public int getBulkChunkSize() {
+        return bulkChunkSize;
     }
 
-    public void loadCustomerData(int count) {
+    /**
+     * Largest number of ids of a batch read, {@code batch.get.max-ids}. The whole result is held in memory.
+     */
+    public int getMaxBatchGetIds() {
+        return maxBatchGetIds;
+    }
 
-        for (int i = 0; i < count; i++) {
-            String generatedString = RandomStringUtils.randomAlphabetic(10);
+    public String etag(Customer customer) {
+        return CustomerCodec.etag(customer);
+    }
 
-            Customer cust = new Customer();
-            cust.setName(generatedString);
-            cust.setId(UUID.randomUUID().toString());
-            cust.setRegDate(Date.from(Instant.now()));
-            cust.setEmail(generatedString + "@test.com");
+    public String etag(Collection<Customer> customers) {
+        return CustomerCodec.etag(customers);
+    }
 
-            Random rnd = new Random();
-            int number = rnd.nextInt(999999);
+    public CompletableFuture<List<Customer>> findAllAsync() {
+        if (customerAsyncRepository == null) {
+            return CompletableFuture.completedFuture(customerRepository.findAll());
+        }
+        return customerAsyncRepository.findAll();
+    }
 
-            cust.setAccountNumber(String.format("%06d", number));
+    public CompletableFuture<Customer> findByIdAsync(String id) {
+        if (customerAsyncRepository == null) {
+            return CompletableFuture.completedFuture(customerRepository.findById(id));
+        }
+        return customerAsyncRepository.findById(id);
+    }
+
+    public CompletableFuture<Customer> createAsync(Customer customer) {
+        if (customerAsyncRepository == null) {
+            return CompletableFuture.completedFuture(customerRepository.save(customer));
+        }
+        return customerAsyncRepository.save(customer);
+    }
 
-            customerRepository.save(cust);
+    public CompletableFuture<Void> deleteByIdAsync(String id) {
+        if (customerAsyncRepository == null) {
+            customerRepository.deleteById(id);
+            return CompletableFuture.completedFuture(null);
         }
+        return customerAsyncRepository.deleteById(id);
     }
 }
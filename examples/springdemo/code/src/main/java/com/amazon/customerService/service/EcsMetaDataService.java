@@ -18,9 +18,9 @@ package com.amazon.customerService.service;
 import com.amazon.customerService.model.metrics.ContainerMetric;
 import com.amazon.customerService.model.metrics.MetricWrapper;
 import com.amazon.customerService.model.metrics.TaskMetric;
+import com.amazon.customerService.utils.JsonMappers;
 import com.fasterxml.jackson.core.JsonPointer;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import software.amazon.awssdk.auth.credentials.ContainerCredentialsProvider;
@@ -50,8 +50,7 @@ public class EcsMetaDataService {
                 return null;
             }
 
-            ObjectMapper objectMapper = new ObjectMapper();
-            JsonNode node = objectMapper.readTree(URI.create(metaDataUrl + "/task").toURL());
+            JsonNode node = JsonMappers.DEFAULT.readTree(URI.create(metaDataUrl + "/task").toURL());
 
             JsonPointer pointer = JsonPointer.compile("/TaskARN");
             String taskArn = node.at(pointer).asText();
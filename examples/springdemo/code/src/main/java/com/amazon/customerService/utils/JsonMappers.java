@@ -0,0 +1,40 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * Shared Jackson mappers for code that runs outside of Spring MVC, such as the startup metrics and the
+ * container metadata lookups. Web responses use the application's {@code ObjectMapper} bean instead.
+ * <p>
+ * Creating a mapper is expensive and its serializer cache starts out empty, so the mappers are created
+ * once. They are thread-safe and must not be reconfigured.
+ */
+public final class JsonMappers {
+
+    /**
+     * Plain mapper with {@link JavaTimeModule}; dates and durations are written as timestamps.
+     */
+    public static final ObjectMapper DEFAULT = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    public static final ObjectWriter WRITER = DEFAULT.writer();
+
+    private JsonMappers() {
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.controller;
+
+import com.amazon.customerService.model.Customer;
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.List;
+
+/**
+ * Smoke test of the reactive edition of the API on Reactor Netty, against the in-memory store
+ * ({@code mode=memory}). Runs with the Maven profile {@code reactive}.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"spring.main.web-application-type=reactive", "batch.get.max-ids=3"})
+@ActiveProfiles({"memory", "reactive"})
+public class ReactiveCustomerControllerTest {
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Test
+    public void testCreateAndGet() {
+
+        Customer customer = create("Reactive");
+        Assert.assertNotNull(customer.getId());
+
+        String etag = webTestClient.get().uri("/api/customers/" + customer.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Customer.class).isEqualTo(customer)
+                .returnResult().getResponseHeaders().getETag();
+        Assert.assertNotNull(etag);
+
+        webTestClient.get().uri("/api/customers/" + customer.getId())
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .exchange()
+                .expectStatus().isNotModified();
+
+        webTestClient.get().uri("/api/customers/batch?ids=" + customer.getId() + ",missing")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Customer.class).isEqualTo(List.of(customer));
+    }
+
+    @Test
+    public void testTooManyIds() {
+
+        Customer customer = create("Batch Get");
+
+        webTestClient.post().uri("/api/customers/batch-get")
+                .bodyValue(List.of(customer.getId(), "missing", "missing"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Customer.class).isEqualTo(List.of(customer));
+
+        webTestClient.get().uri("/api/customers/batch?ids=" + customer.getId() + ",a,b,c")
+                .exchange()
+                .expectStatus().isBadRequest();
+        webTestClient.post().uri("/api/customers/batch-get")
+                .bodyValue(List.of(customer.getId(), "a", "b", "c"))
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void testList() {
+
+        Customer customer = create("Listed");
+
+        List<Customer> all = webTestClient.get().uri("/api/customers")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_JSON)
+                .expectBodyList(Customer.class).returnResult().getResponseBody();
+        Assert.assertTrue(all.contains(customer));
+
+        List<Customer> ndjson = webTestClient.get().uri("/api/customers")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(Customer.class).getResponseBody().collectList().block();
+        Assert.assertEquals(all.size(), ndjson.size());
+
+        // A page has a weak ETag
+        String etag = webTestClient.get().uri("/api/customers?limit=100")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Customer.class).returnResult().getResponseHeaders().getETag();
+        Assert.assertTrue(etag, etag.startsWith("W/"));
+        webTestClient.get().uri("/api/customers?limit=100")
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .exchange()
+                .expectStatus().isNotModified();
+
+        webTestClient.get().uri("/api/customers?limit=0")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void testUpdateAndDelete() {
+
+        Customer customer = create("If-Match");
+        String path = "/api/customers/" + customer.getId();
+        String etag = webTestClient.get().uri(path).exchange()
+                .expectBody(Customer.class).returnResult().getResponseHeaders().getETag();
+
+        customer.setName("If-Match again");
+        String updatedETag = webTestClient.put().uri(path)
+                .header(HttpHeaders.IF_MATCH, etag)
+                .bodyValue(customer)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Customer.class).isEqualTo(customer)
+                .returnResult().getResponseHeaders().getETag();
+        Assert.assertNotEquals(etag, updatedETag);
+
+        webTestClient.delete().uri(path)
+                .header(HttpHeaders.IF_MATCH, etag)
+                .exchange()
+                .expectStatus().isEqualTo(412);
+        webTestClient.delete().uri(path)
+                .header(HttpHeaders.IF_MATCH, updatedETag)
+                .exchange()
+                .expectStatus().isOk();
+        webTestClient.get().uri(path)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().isEmpty();
+    }
+
+    private Customer create(String name) {
+        Customer customer = new Customer();
+        customer.setName(name);
+        return webTestClient.post().uri("/api/customers")
+                .bodyValue(customer)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Customer.class).returnResult().getResponseBody();
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.boot.web.embedded.netty.NettyServerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ReactorResourceFactory;
+
+/**
+ * Web server of the reactive edition ({@code spring.main.web-application-type=reactive}, set by the
+ * profile {@code reactive}). spring-boot-starter-web stays on the class path for the servlet edition, and
+ * Spring Boot would then run the reactive API on Tomcat, so the Reactor Netty server is declared here.
+ * <p>
+ * CRaC: the server and its {@link ReactorResourceFactory} are Spring lifecycle beans. Before a checkpoint
+ * Spring stops the server, then the resource factory, which shuts down the event loops and closes their
+ * epoll file descriptors; after restore both are started again. The event loops belong to this factory
+ * rather than to Reactor Netty's global resources, so nothing else keeps them open across a checkpoint.
+ * The DynamoDB client's event loops are handled by {@code CustomerAsyncRepository}.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveConfig {
+
+    // Reactor Netty waits 2 seconds by default before shutting down the loops, which delays every checkpoint
+    @Value("${spring.reactor.netty.shutdown-quiet-period:0s}")
+    private Duration shutdownQuietPeriod;
+
+    @Bean
+    public ReactorResourceFactory reactorResourceFactory() {
+        ReactorResourceFactory resourceFactory = new ReactorResourceFactory();
+        resourceFactory.setUseGlobalResources(false);
+        resourceFactory.setShutdownQuietPeriod(shutdownQuietPeriod);
+        return resourceFactory;
+    }
+
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory(ReactorResourceFactory resourceFactory,
+                                                                       ObjectProvider<NettyServerCustomizer> serverCustomizers) {
+        NettyReactiveWebServerFactory serverFactory = new NettyReactiveWebServerFactory();
+        serverFactory.setResourceFactory(resourceFactory);
+        serverFactory.getServerCustomizers().addAll(serverCustomizers.orderedStream().toList());
+        return serverFactory;
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.controller;
+
+import com.amazon.customerService.model.BatchItemResult;
+import com.amazon.customerService.model.Customer;
+import com.amazon.customerService.model.LoadReport;
+import com.amazon.customerService.service.LoadGenerator;
+import com.amazon.customerService.service.ReactiveCustomerService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+/**
+ * Reactive edition of {@link CustomerController} on WebFlux and Reactor Netty, active with the Spring
+ * profile {@code reactive}. The paths are the same, except that the {@code /async} variants are not needed
+ * and the streaming variants are replaced by {@link #getCustomers}: a {@link Flux} is written as it is
+ * read, as a JSON array or as newline-delimited JSON ({@code Accept: application/x-ndjson}), and the table
+ * scan only advances as fast as the client reads the response.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveCustomerController {
+
+    /**
+     * Network buffers of a bulk request body read ahead of the parser.
+     */
+    private static final int BODY_PREFETCH = 4;
+
+    @Autowired
+    ReactiveCustomerService customerService;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    LoadGenerator loadGenerator;
+
+    /**
+     * See {@link CustomerController#getCustomers}: all customers, or one page of them if {@code limit} or
+     * {@code cursor} is given. Only a page has an ETag: the full list is streamed, and its ETag would only
+     * be known after the last customer has been written.
+     */
+    @GetMapping(value = "/customers", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    Mono<ResponseEntity<Flux<Customer>>> getCustomers(@RequestParam(required = false) Integer limit,
+                                                      @RequestParam(required = false) String cursor) {
+        if (limit == null && cursor == null) {
+            return Mono.just(ResponseEntity.ok(customerService.findAll()));
+        }
+        CustomerController.validatePage(limit);
+        return customerService.findPage(cursor, limit).map(page -> CustomerController
+                .withNextCursor(page.getNextCursor())
+                .eTag(customerService.etag(page.getCustomers()))
+                .body(Flux.fromIterable(page.getCustomers())));
+    }
+
+    @GetMapping(value = "/customers", params = "email")
+    Flux<Customer> getCustomersByEmail(@RequestParam String email) {
+        return customerService.findByEmail(email);
+    }
+
+    @GetMapping(value = "/customers", params = "accountNumber")
+    Flux<Customer> getCustomersByAccountNumber(@RequestParam String accountNumber) {
+        return customerService.findByAccountNumber(accountNumber);
+    }
+
+    /**
+     * See {@link CustomerController#loadCustomers}. The load generator blocks, so it runs off the event loop.
+     */
+    @GetMapping("/customers/load")
+    Mono<LoadReport> loadCustomers(@RequestParam(defaultValue = "100") int count,
+                                   @RequestParam(defaultValue = "4") int concurrency,
+                                   @RequestParam(defaultValue = "25") int batchSize,
+                                   @RequestParam(defaultValue = "10") int valueSize) {
+        CustomerController.validateLoad(count, loadGenerator.getMaxCount(), concurrency, batchSize, valueSize);
+        return Mono.fromCallable(() -> loadGenerator.run(count, concurrency, batchSize, valueSize, progress -> {
+                })).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @GetMapping("/customers/batch")
+    Flux<Customer> getCustomersByIds(@RequestParam List<String> ids) {
+        CustomerController.validateIds(ids, customerService.getMaxBatchGetIds());
+        return customerService.findAllById(ids);
+    }
+
+    @PostMapping("/customers/batch-get")
+    Flux<Customer> getCustomersByIdsPost(@RequestBody List<String> ids) {
+        CustomerController.validateIds(ids, customerService.getMaxBatchGetIds());
+        return customerService.findAllById(ids);
+    }
+
+    /**
+     * See {@link CustomerController#createCustomersBatch}. The body is parsed with the same
+     * {@link ArrayElements} as there, rather than by WebFlux's JSON decoder: that one fails all elements of a
+     * network buffer if one of them is malformed, and cannot pass {@code null} elements on. The parser reads
+     * the body as an input stream, so it runs off the event loop.
+     */
+    @PostMapping(value = "/customers/batch",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    Flux<BatchItemResult> createCustomersBatch(@RequestBody(required = false) Flux<DataBuffer> body) {
+        return parseArray(body, Customer.class, customerService::createAll);
+    }
+
+    /**
+     * See {@link CustomerController#deleteCustomersBatch}.
+     */
+    @PostMapping(value = "/customers/batch-delete",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    Flux<BatchItemResult> deleteCustomersBatch(@RequestBody(required = false) Flux<DataBuffer> body) {
+        return parseArray(body, String.class, customerService::deleteAll);
+    }
+
+    /**
+     * See {@link CustomerController#deleteAllCustomers}.
+     */
+    @DeleteMapping(value = "/customers", params = "all=true",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    Flux<BatchItemResult> deleteAllCustomers() {
+        return customerService.deleteAll();
+    }
+
+    @PostMapping("/customers")
+    Mono<Customer> createCustomer(@RequestBody Customer customer,
+                                  @RequestParam(defaultValue = "false") boolean durable) {
+        return customerService.create(customer, durable);
+    }
+
+    /**
+     * See {@link CustomerController#getCustomerbyId}.
+     */
+    @GetMapping("/customers/{id}")
+    Mono<ResponseEntity<Customer>> getCustomerbyId(@PathVariable String id) {
+        return customerService.findTaggedById(id)
+                .map(tagged -> ResponseEntity.ok().eTag(tagged.getETag()).body(tagged.getCustomer()))
+                .defaultIfEmpty(ResponseEntity.ok().build());
+    }
+
+    /**
+     * See {@link CustomerController#replaceCustomer}.
+     */
+    @PutMapping("/customers/{id}")
+    Mono<ResponseEntity<Customer>> replaceCustomer(@RequestBody Customer newCustomer, @PathVariable String id,
+                                                   @RequestParam(defaultValue = "false") boolean durable,
+                                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                                   List<String> ifMatch) {
+        newCustomer.setId(id);
+        return customerService.update(newCustomer, durable, CustomerController.expectedETags(ifMatch))
+                .map(updated -> ResponseEntity.ok().eTag(customerService.etag(updated)).body(updated));
+    }
+
+    @PatchMapping("/customers/{id}")
+    Mono<Customer> updateCustomer(@RequestBody Customer changes, @PathVariable String id,
+                                  @RequestParam(defaultValue = "false") boolean durable) {
+        return customerService.patch(id, changes, durable);
+    }
+
+    /**
+     * See {@link CustomerController#deleteCustomerById}.
+     */
+    @DeleteMapping("/customers/{id}")
+    Mono<Void> deleteCustomerById(@PathVariable String id,
+                                  @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) List<String> ifMatch) {
+        return customerService.deleteById(id, CustomerController.expectedETags(ifMatch));
+    }
+
+    /**
+     * Hands the elements of the JSON array in {@code body} to {@code process}. A body that is not a JSON array
+     * fails with {@link com.amazon.customerService.exception.InvalidBatchException} before anything is
+     * written.
+     */
+    private <T> Flux<BatchItemResult> parseArray(Flux<DataBuffer> body, Class<T> type,
+                                                 BiFunction<Iterator<T>, Supplier<String>, Flux<BatchItemResult>> process) {
+        return Flux.using(() -> objectMapper.getFactory().createParser(
+                                DataBufferUtils.subscriberInputStream(body, BODY_PREFETCH)),
+                        parser -> {
+                            ArrayElements<T> elements;
+                            try {
+                                elements = new ArrayElements<>(parser, type);
+                            } catch (IOException exc) {
+                                return Flux.error(exc);
+                            }
+                            return process.apply(elements, elements::getError);
+                        })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.service;
+
+import com.amazon.customerService.model.BatchItemResult;
+import com.amazon.customerService.model.Customer;
+import com.amazon.customerService.model.CustomerPage;
+import com.amazon.customerService.model.TaggedCustomer;
+import com.amazon.customerService.repository.CustomerAsyncRepository;
+import com.amazon.customerService.repository.CustomerCodec;
+import com.amazon.customerService.repository.CustomerStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+/**
+ * Reactive counterpart of {@link CustomerService}, used by the reactive edition of the API.
+ * <p>
+ * Reads, creates and deletes go through {@link CustomerAsyncRepository}, so no thread waits for DynamoDB.
+ * Batch reads are the exception: they use BatchGetItem on the blocking store, which reads up to 100 ids per
+ * call, instead of one GetItem per id.
+ * With {@code write-behind.enabled}, reads by id go to the blocking store instead, like the updates: the
+ * buffered writes, the snapshot and the cache are then consulted in the same order as by the servlet edition,
+ * so a GET sees the version (and ETag) that a PUT or PATCH just returned.
+ * Scans and index queries are driven by the SDK's paginated publishers: the next page is only requested as
+ * the response is written, so {@link #findAll()} streams any table size with bounded memory. Updates and
+ * patches have no asynchronous implementation yet; they run on the blocking store on
+ * {@link Schedulers#boundedElastic()}, as do deletes with expected ETags. With {@code mode=memory} there is
+ * no asynchronous repository and every call does. Bulk writes are chunked like in {@link CustomerService},
+ * which also writes the chunks, on {@link Schedulers#boundedElastic()} as well.
+ */
+@Slf4j
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveCustomerService {
+
+    @Autowired
+    CustomerStore customerRepository;
+
+    // Absent with mode=memory
+    @Autowired(required = false)
+    CustomerAsyncRepository customerAsyncRepository;
+
+    // Writes the chunks of bulk requests
+    @Autowired
+    CustomerService customerService;
+
+    @Value("${pagination.max-limit:100}")
+    int maxPageSize;
+
+    @Value("${write-behind.enabled:false}")
+    boolean writeBehind;
+
+    public Flux<Customer> findAll() {
+        if (customerAsyncRepository == null) {
+            return Flux.fromStream(customerRepository::streamAllConfigured)
+                    .subscribeOn(Schedulers.boundedElastic());
+        }
+        return Flux.from(customerAsyncRepository.scan());
+    }
+
+    /**
+     * See {@link CustomerService#findPage}.
+     */
+    public Mono<CustomerPage> findPage(String cursor, Integer limit) {
+        int pageSize = limit != null ? Math.min(limit, maxPageSize) : maxPageSize;
+        if (customerAsyncRepository == null) {
+            return blocking(() -> customerRepository.findPage(cursor, pageSize));
+        }
+        return Mono.fromFuture(() -> customerAsyncRepository.findPage(cursor, pageSize));
+    }
+
+    public Mono<Customer> findById(String id) {
+        if (customerAsyncRepository == null || writeBehind) {
+            return blocking(() -> customerRepository.findById(id));
+        }
+        // A null result completes the Mono empty
+        return Mono.fromFuture(() -> customerAsyncRepository.findById(id));
+    }
+
+    /**
+     * The customer with its ETag. With the asynchronous repository this bypasses the customer cache, like
+     * {@link #findById}, and the ETag is computed per call.
+     */
+    public Mono<TaggedCustomer> findTaggedById(String id) {
+        if (customerAsyncRepository == null || writeBehind) {
+            return blocking(() -> customerRepository.findTaggedById(id));
+        }
+        return findById(id).map(customer -> new TaggedCustomer(customer, CustomerCodec.etag(customer)));
+    }
+
+    /**
+     * Duplicate ids are collapsed; ids that do not exist are omitted from the result.
+     */
+    public Flux<Customer> findAllById(Collection<String> ids) {
+        return blocking(() -> customerRepository.findAllById(ids)).flatMapMany(Flux::fromIterable);
+    }
+
+    public Flux<Customer> findByEmail(String email) {
+        if (customerAsyncRepository == null) {
+            return blocking(() -> customerRepository.findByEmail(email)).flatMapMany(Flux::fromIterable);
+        }
+        return Flux.from(customerAsyncRepository.findByEmail(email));
+    }
+
+    public Flux<Customer> findByAccountNumber(String accountNumber) {
+        if (customerAsyncRepository == null) {
+            return blocking(() -> customerRepository.findByAccountNumber(accountNumber))
+                    .flatMapMany(Flux::fromIterable);
+        }
+        return Flux.from(customerAsyncRepository.findByAccountNumber(accountNumber));
+    }
+
+    /**
+     * @param durable only relevant to the blocking store, asynchronous writes are always durable
+     */
+    public Mono<Customer> create(Customer customer, boolean durable) {
+        if (customerAsyncRepository == null) {
+            return blocking(() -> customerRepository.save(customer, durable));
+        }
+        return Mono.fromFuture(() -> customerAsyncRepository.save(customer));
+    }
+
+    /**
+     * @param expectedETags see {@link CustomerStore#update(Customer, boolean, Collection)}
+     */
+    public Mono<Customer> update(Customer customer, boolean durable, Collection<String> expectedETags) {
+        return blocking(() -> customerRepository.update(customer, durable, expectedETags));
+    }
+
+    public Mono<Customer> patch(String id, Customer changes, boolean durable) {
+        return blocking(() -> customerRepository.patch(id, changes, durable));
+    }
+
+    /**
+     * @param expectedETags see {@link CustomerStore#deleteById(String, Collection)}
+     */
+    public Mono<Void> deleteById(String id, Collection<String> expectedETags) {
+        if (customerAsyncRepository == null || expectedETags != null) {
+            return blocking(() -> {
+                customerRepository.deleteById(id, expectedETags);
+                return null;
+            });
+        }
+        return Mono.fromFuture(() -> customerAsyncRepository.deleteById(id));
+    }
+
+    /**
+     * See {@link CustomerService#createAll}. The customers are read and written in chunks of
+     * {@code batch.bulk.chunk-size} as the response is written, and the results of a chunk are emitted once it
+     * is written. If {@code error} has a message once {@code customers} ends, a FAILED result that describes
+     * it follows. Reading the customers may block, so it runs off the event loop.
+     */
+    public Flux<BatchItemResult> createAll(Iterator<Customer> customers, Supplier<String> error) {
+        return inChunks(customers, error, customerService::createAll);
+    }
+
+    /**
+     * See {@link #createAll(Iterator, Supplier)}.
+     */
+    public Flux<BatchItemResult> deleteAll(Iterator<String> ids, Supplier<String> error) {
+        return inChunks(ids, error, customerService::deleteAll);
+    }
+
+    /**
+     * Deletes all customers, see {@link CustomerService#streamAllIds()}.
+     */
+    public Flux<BatchItemResult> deleteAll() {
+        return Flux.using(customerRepository::streamAllIds, ids -> deleteAll(ids.iterator(), () -> null))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * See {@link CustomerService#getMaxBatchGetIds()}.
+     */
+    public int getMaxBatchGetIds() {
+        return customerService.getMaxBatchGetIds();
+    }
+
+    public String etag(Customer customer) {
+        return CustomerCodec.etag(customer);
+    }
+
+    public String etag(Collection<Customer> customers) {
+        return CustomerCodec.etag(customers);
+    }
+
+    private <T> Flux<BatchItemResult> inChunks(Iterator<T> items, Supplier<String> error,
+                                               BiFunction<List<T>, Integer, List<BatchItemResult>> process) {
+        int chunkSize = customerService.getBulkChunkSize();
+        AtomicInteger nextIndex = new AtomicInteger();
+
+        return Flux.<List<BatchItemResult>>generate(sink -> {
+                    List<T> chunk = new ArrayList<>(chunkSize);
+                    while (chunk.size() < chunkSize && items.hasNext()) {
+                        chunk.add(items.next());
+                    }
+                    if (!chunk.isEmpty()) {
+                        sink.next(process.apply(chunk, nextIndex.getAndAdd(chunk.size())));
+                        return;
+                    }
+                    if (error.get() != null) {
+                        sink.next(List.of(new BatchItemResult(nextIndex.get(), null, BatchItemResult.Status.FAILED,
+                                "Malformed request body: " + error.get())));
+                    }
+                    sink.complete();
+                })
+                .concatMapIterable(results -> results)
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Runs a blocking store call off the event loop.
+     */
+    private static <T> Mono<T> blocking(Callable<T> call) {
+        return Mono.fromCallable(call).subscribeOn(Schedulers.boundedElastic());
+    }
+}
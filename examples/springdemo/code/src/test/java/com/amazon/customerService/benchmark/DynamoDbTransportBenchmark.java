@@ -0,0 +1,137 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.benchmark;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import com.amazon.customerService.model.Customer;
+import com.amazon.customerService.repository.CustomerCodec;
+import com.amazon.customerService.repository.CustomerRepository;
+import com.amazon.customerService.repository.DynamoDbClientFactory;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeDefinition;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BillingMode;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
+import software.amazon.awssdk.services.dynamodb.model.ScalarAttributeType;
+
+/**
+ * GetItem latency (sample mode, with percentiles) and throughput for each HTTP transport supported by
+ * {@link DynamoDbClientFactory}, with 16 concurrent callers. Expects a DynamoDB Local instance at
+ * {@code DYNAMODB_ENDPOINT} (default {@code http://localhost:8000/}), e.g.
+ * {@code docker run -p 8000:8000 amazon/dynamodb-local}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class DynamoDbTransportBenchmark {
+
+    private static final String TABLE_NAME = "CustomerTransportBenchmark";
+    private static final String CUSTOMER_ID = "transport-benchmark";
+
+    @Param({"apache", "url-connection", "crt"})
+    public String transport;
+
+    @Param({"50"})
+    public int maxConnections;
+
+    private DynamoDbClient client;
+    private GetItemRequest getItemRequest;
+
+    @Setup
+    public void setup() {
+        String endpoint = System.getenv().getOrDefault("DYNAMODB_ENDPOINT", "http://localhost:8000/");
+
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new MapPropertySource("benchmark", Map.of(
+                "mode", "local",
+                "amazon.dynamodb.endpoint", endpoint,
+                "amazon.dynamodb.region", "us-east-1",
+                "dynamodb.http.client", transport,
+                "dynamodb.http.max-connections", String.valueOf(maxConnections))));
+
+        client = new DynamoDbClientFactory(environment).createClient();
+        createTableIfMissing();
+
+        Customer customer = new Customer();
+        customer.setId(CUSTOMER_ID);
+        customer.setName("John Doe");
+        customer.setEmail("john.doe@test.com");
+        customer.setAccountNumber("123456");
+        customer.setRegDate(new Date());
+        client.putItem(builder -> builder.tableName(TABLE_NAME).item(CustomerCodec.toItem(customer)));
+
+        getItemRequest = GetItemRequest.builder()
+                .tableName(TABLE_NAME)
+                .key(Map.of(CustomerRepository.ID_COLUMN, AttributeValue.fromS(CUSTOMER_ID)))
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        client.close();
+    }
+
+    @Benchmark
+    public GetItemResponse getItem() {
+        return client.getItem(getItemRequest);
+    }
+
+    private void createTableIfMissing() {
+        try {
+            client.describeTable(builder -> builder.tableName(TABLE_NAME));
+        } catch (ResourceNotFoundException exc) {
+            client.createTable(builder -> builder
+                    .tableName(TABLE_NAME)
+                    .billingMode(BillingMode.PAY_PER_REQUEST)
+                    .attributeDefinitions(AttributeDefinition.builder()
+                            .attributeName(CustomerRepository.ID_COLUMN)
+                            .attributeType(ScalarAttributeType.S)
+                            .build())
+                    .keySchema(KeySchemaElement.builder()
+                            .attributeName(CustomerRepository.ID_COLUMN)
+                            .keyType(KeyType.HASH)
+                            .build()));
+        }
+    }
+}
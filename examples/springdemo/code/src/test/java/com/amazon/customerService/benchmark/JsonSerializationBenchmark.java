@@ -0,0 +1,153 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.amazon.customerService.model.Customer;
+import com.amazon.customerService.model.CustomerSerializer;
+import com.amazon.customerService.model.metrics.ContainerMetric;
+import com.amazon.customerService.model.metrics.MetricWrapper;
+import com.amazon.customerService.model.metrics.MetricWrapperSerializer;
+import com.amazon.customerService.model.metrics.TaskMetric;
+import com.amazon.customerService.utils.JsonMappers;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * Compares the hand-written {@link CustomerSerializer} and {@link MetricWrapperSerializer} with Jackson's
+ * reflective bean serializers, which a mix-in switches back on. The web mapper is configured like Spring
+ * Boot's (ISO dates). The {@code metrics*} benchmarks compare a mapper per call, as the startup metrics
+ * used to, with the shared {@link JsonMappers#WRITER}. {@code listGzip} adds the cost of compressing a
+ * list response. Run with {@code -prof gc} (the default in the benchmark profile) to see bytes allocated
+ * per operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class JsonSerializationBenchmark {
+
+    private static final int LIST_SIZE = 100;
+
+    @JsonSerialize(using = JsonSerializer.None.class)
+    private interface Reflective {
+    }
+
+    private ObjectMapper handWritten;
+    private ObjectMapper reflective;
+    private ObjectMapper reflectiveMetrics;
+
+    private Customer customer;
+    private List<Customer> customers;
+    private MetricWrapper metrics;
+
+    @Setup
+    public void setup() {
+        handWritten = JsonMapper.builder()
+                .addModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        reflective = handWritten.copy().addMixIn(Customer.class, Reflective.class);
+        reflectiveMetrics = JsonMappers.DEFAULT.copy().addMixIn(MetricWrapper.class, Reflective.class);
+
+        customers = new ArrayList<>(LIST_SIZE);
+        for (int i = 0; i < LIST_SIZE; i++) {
+            Customer customer = new Customer();
+            customer.setId(UUID.randomUUID().toString());
+            customer.setName("John Doe " + i);
+            customer.setEmail("john.doe" + i + "@test.com");
+            customer.setAccountNumber(String.valueOf(100000 + i));
+            customer.setRegDate(new Date());
+            customers.add(customer);
+        }
+        customer = customers.get(0);
+
+        Instant now = Instant.now();
+        metrics = new MetricWrapper(new ContainerMetric(now, now), new TaskMetric(now, now, "arn:aws:ecs:task"),
+                null, Duration.ofMillis(1234), now, 2);
+    }
+
+    @Benchmark
+    public byte[] customerReflective() throws IOException {
+        return reflective.writeValueAsBytes(customer);
+    }
+
+    @Benchmark
+    public byte[] customerHandWritten() throws IOException {
+        return handWritten.writeValueAsBytes(customer);
+    }
+
+    @Benchmark
+    public byte[] listReflective() throws IOException {
+        return reflective.writeValueAsBytes(customers);
+    }
+
+    @Benchmark
+    public byte[] listHandWritten() throws IOException {
+        return handWritten.writeValueAsBytes(customers);
+    }
+
+    @Benchmark
+    public byte[] listGzip() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            handWritten.writeValue(gzip, customers);
+        }
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public String metricsMapperPerCall() throws IOException {
+        return new ObjectMapper().registerModule(new JavaTimeModule()).writeValueAsString(metrics);
+    }
+
+    @Benchmark
+    public String metricsSharedReflective() throws IOException {
+        return reflectiveMetrics.writeValueAsString(metrics);
+    }
+
+    @Benchmark
+    public String metricsSharedHandWritten() throws IOException {
+        return JsonMappers.WRITER.writeValueAsString(metrics);
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.controller;
+
+import com.amazon.customerService.model.Customer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Drives the REST API through MockMvc against the in-memory store ({@code mode=memory}).
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("memory")
+@TestPropertySource(properties = {
+        "scan.parallel.max-segments=4",
+        "load.max-count=1000",
+        "batch.get.max-ids=3"})
+public class CustomerControllerTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Test
+    public void testSegmentsOutOfRange() throws Exception {
+
+        for (String segments : new String[]{"0", "-1", "5"}) {
+            mockMvc.perform(get("/api/customers").param("stream", "true").param("segments", segments))
+                    .andExpect(status().isBadRequest());
+        }
+        mockMvc.perform(get("/api/customers").param("stream", "true").param("segments", "4"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void testLoadCountOutOfRange() throws Exception {
+
+        for (String count : new String[]{"-1", "1001", String.valueOf(Integer.MAX_VALUE)}) {
+            mockMvc.perform(get("/api/customers/load").param("count", count))
+                    .andExpect(status().isBadRequest());
+        }
+        mockMvc.perform(get("/api/customers/load").param("count", "1000").param("batchSize", "25"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void testTooManyIds() throws Exception {
+
+        Customer customer = create("Batch Get");
+        List<String> ids = List.of(customer.getId(), "missing", "missing");
+
+        mockMvc.perform(get("/api/customers/batch").param("ids", String.join(",", ids)))
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(List.of(customer))));
+        mockMvc.perform(post("/api/customers/batch-get").contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(ids)))
+                .andExpect(status().isOk());
+
+        List<String> tooMany = List.of(customer.getId(), "a", "b", "c");
+        mockMvc.perform(get("/api/customers/batch").param("ids", String.join(",", tooMany)))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/api/customers/batch-get").contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(tooMany)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testNotModified() throws Exception {
+
+        Customer customer = create("Not Modified");
+        String etag = mockMvc.perform(get("/api/customers/" + customer.getId()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        Assert.assertFalse(etag, etag.startsWith("W/"));
+
+        mockMvc.perform(get("/api/customers/" + customer.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        mockMvc.perform(get("/api/customers/" + customer.getId()).header(HttpHeaders.IF_NONE_MATCH, "\"other\""))
+                .andExpect(status().isOk());
+
+        // Lists and pages have weak ETags, If-None-Match compares weakly
+        for (String list : new String[]{"/api/customers", "/api/customers?limit=100"}) {
+            MvcResult result = mockMvc.perform(get(list))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            String listETag = result.getResponse().getHeader(HttpHeaders.ETAG);
+            Assert.assertTrue(listETag, listETag.startsWith("W/"));
+
+            mockMvc.perform(get(list).header(HttpHeaders.IF_NONE_MATCH, listETag))
+                    .andExpect(status().isNotModified());
+            mockMvc.perform(get(list).header(HttpHeaders.IF_NONE_MATCH, listETag.substring(2)))
+                    .andExpect(status().isNotModified());
+
+            // Changing a listed customer changes the ETag
+            Customer listed = objectMapper.readValue(result.getResponse().getContentAsString(), Customer[].class)[0];
+            listed.setName("Changes the list");
+            mockMvc.perform(put("/api/customers/" + listed.getId()).contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(listed)))
+                    .andExpect(status().isOk());
+            mockMvc.perform(get(list).header(HttpHeaders.IF_NONE_MATCH, listETag))
+                    .andExpect(status().isOk());
+        }
+    }
+
+    @Test
+    public void testPreconditionFailed() throws Exception {
+
+        Customer customer = create("If-Match");
+        String path = "/api/customers/" + customer.getId();
+        String etag = mockMvc.perform(get(path)).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        customer.setName("If-Match again");
+        String body = objectMapper.writeValueAsString(customer);
+        String updatedETag = mockMvc.perform(put(path).contentType(MediaType.APPLICATION_JSON).content(body)
+                        .header(HttpHeaders.IF_MATCH, etag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        Assert.assertNotEquals(etag, updatedETag);
+
+        // The ETag from before the update no longer matches
+        mockMvc.perform(put(path).contentType(MediaType.APPLICATION_JSON).content(body)
+                        .header(HttpHeaders.IF_MATCH, etag))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(delete(path).header(HttpHeaders.IF_MATCH, etag))
+                .andExpect(status().isPreconditionFailed());
+
+        // If-Match compares strongly, so a weak ETag never matches
+        mockMvc.perform(delete(path).header(HttpHeaders.IF_MATCH, "W/" + updatedETag))
+                .andExpect(status().isPreconditionFailed());
+
+        mockMvc.perform(get(path))
+                .andExpect(header().string(HttpHeaders.ETAG, updatedETag));
+        mockMvc.perform(delete(path).header(HttpHeaders.IF_MATCH, "\"other\", " + updatedETag))
+                .andExpect(status().isOk());
+        mockMvc.perform(get(path))
+                .andExpect(content().string(""));
+        mockMvc.perform(put(path).contentType(MediaType.APPLICATION_JSON).content(body)
+                        .header(HttpHeaders.IF_MATCH, "*"))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    public void testNdjsonPages() throws Exception {
+
+        for (int i = 0; i < 3; i++) {
+            create("NDJSON page " + i);
+        }
+        MvcResult started = mockMvc.perform(get("/api/customers").param("limit", "2")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String cursor = started.getResponse().getHeader(CustomerController.NEXT_CURSOR_HEADER);
+        Assert.assertNotNull(cursor);
+
+        MvcResult page = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn();
+        String[] lines = page.getResponse().getContentAsString().split("\n");
+        Assert.assertTrue(lines.length <= 2);
+        for (String line : lines) {
+            objectMapper.readValue(line, Customer.class);
+        }
+
+        mockMvc.perform(get("/api/customers").param("cursor", cursor).accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted());
+        mockMvc.perform(get("/api/customers").param("limit", "0").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testExpectedETags() {
+
+        Assert.assertNull(CustomerController.expectedETags(null));
+        Assert.assertEquals(List.of("\"a\"", "*"),
+                CustomerController.expectedETags(List.of(" \"a\"", "W/\"b\"", "*")));
+    }
+
+    private Customer create(String name) throws Exception {
+        Customer customer = new Customer();
+        customer.setName(name);
+        MvcResult result = mockMvc.perform(post("/api/customers")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(customer)))
+                .andExpect(status().isOk())
+                .andReturn();
+        return objectMapper.readValue(result.getResponse().getContentAsString(), Customer.class);
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.repository;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * Retries and chunking of BatchWriteItem, against a stubbed DynamoDB client.
+ */
+public class BatchWriterTest {
+
+    private static final long BACKOFF_MILLIS = 20;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final List<Long> sentAt = new CopyOnWriteArrayList<>();
+
+    // Returns the unprocessed requests of a batch, or throws
+    private Function<List<WriteRequest>, List<WriteRequest>> outcome = requests -> List.of();
+
+    private final StubDynamoDbClient client = new StubDynamoDbClient(request -> {
+        sentAt.add(System.nanoTime());
+        List<WriteRequest> unprocessed = outcome.apply(((BatchWriteItemRequest) request).requestItems().get("Customer"));
+        return BatchWriteItemResponse.builder()
+                .unprocessedItems(unprocessed.isEmpty() ? Map.of() : Map.of("Customer", unprocessed))
+                .build();
+    });
+
+    private final BatchWriter writer = new BatchWriter(client, "Customer", executor, 3, BACKOFF_MILLIS);
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testRetriesUnprocessedItemsAfterABackoff() {
+
+        List<WriteRequest> requests = puts(3);
+        // DynamoDB leaves the last item unprocessed the first time
+        outcome = batch -> batch.size() == 3 ? batch.subList(2, 3) : List.of();
+
+        Assert.assertTrue(writer.write(requests).isEmpty());
+
+        List<BatchWriteItemRequest> sent = client.requests(BatchWriteItemRequest.class);
+        Assert.assertEquals(2, sent.size());
+        Assert.assertEquals(requests, sent.get(0).requestItems().get("Customer"));
+        Assert.assertEquals(requests.subList(2, 3), sent.get(1).requestItems().get("Customer"));
+
+        // The first retry waits between one and two base backoffs
+        Assert.assertTrue(sentAt.get(1) - sentAt.get(0) >= BACKOFF_MILLIS * 1_000_000);
+    }
+
+    @Test
+    public void testGivesUpAfterMaxAttempts() {
+
+        List<WriteRequest> requests = puts(3);
+        outcome = batch -> batch;
+
+        Assert.assertEquals(requests, writer.write(requests));
+        Assert.assertEquals(3, client.requests(BatchWriteItemRequest.class).size());
+
+        client.clear();
+        Map<String, String> failures = writer.writeAll(requests);
+        Assert.assertEquals(List.of("0", "1", "2"), new ArrayList<>(failures.keySet()));
+        Assert.assertEquals("Still unprocessed after 3 attempts", failures.get("0"));
+        Assert.assertEquals(3, client.requests(BatchWriteItemRequest.class).size());
+    }
+
+    @Test
+    public void testSplitsIntoChunksOf25() {
+
+        Assert.assertTrue(writer.write(puts(60)).isEmpty());
+
+        List<Integer> sizes = client.requests(BatchWriteItemRequest.class).stream()
+                .map(request -> request.requestItems().get("Customer").size())
+                .sorted()
+                .toList();
+        Assert.assertEquals(List.of(10, 25, 25), sizes);
+    }
+
+    @Test
+    public void testFailedChunkOnlyFailsItsOwnRequests() {
+
+        // The chunk holding id 0 fails beyond the SDK's retries
+        outcome = batch -> {
+            if (BatchWriter.idOf(batch.get(0)).equals("0")) {
+                throw SdkClientException.create("throttled");
+            }
+            return List.of();
+        };
+
+        Map<String, String> failures = writer.writeAll(puts(30));
+        Assert.assertEquals(BatchWriter.MAX_BATCH_SIZE, failures.size());
+        Assert.assertTrue(failures.containsKey("0"));
+        Assert.assertFalse(failures.containsKey("25"));
+        Assert.assertTrue(failures.get("0"), failures.get("0").contains("throttled"));
+        Assert.assertEquals(2, client.requests(BatchWriteItemRequest.class).size());
+    }
+
+    private static List<WriteRequest> puts(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(id -> WriteRequest.builder()
+                        .putRequest(PutRequest.builder().item(Map.of("Id", AttributeValue.fromS(String.valueOf(id)))).build())
+                        .build())
+                .toList();
+    }
+}
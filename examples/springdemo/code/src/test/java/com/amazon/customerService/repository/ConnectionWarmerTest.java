@@ -0,0 +1,131 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.Assert;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableResponse;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The warm-up after a restore, against a stubbed DynamoDB client: the repository only reports itself ready
+ * once the warm-up has finished, even if it failed.
+ */
+public class ConnectionWarmerTest {
+
+    private static final int CONNECTIONS = 4;
+
+    // Readiness changes and DynamoDB requests, in order
+    private final List<String> events = new CopyOnWriteArrayList<>();
+    private final CountDownLatch allConnected = new CountDownLatch(CONNECTIONS);
+    private boolean fail;
+
+    private final StubDynamoDbClient client = new StubDynamoDbClient(request -> {
+        events.add(request.getClass().getSimpleName());
+        if (fail) {
+            throw SdkClientException.create("unreachable");
+        }
+        if (request instanceof DescribeTableRequest) {
+            return DescribeTableResponse.builder().build();
+        }
+        // Only returns once all warm-up calls are in flight at the same time
+        allConnected.countDown();
+        try {
+            allConnected.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+        }
+        return GetItemResponse.builder().build();
+    });
+
+    private final MockEnvironment environment = new MockEnvironment()
+            .withProperty("restore.warmup.connections", String.valueOf(CONNECTIONS));
+    private final CustomerRepository repository = client.repository(environment);
+
+    {
+        ReflectionTestUtils.setField(repository, "eventPublisher", (ApplicationEventPublisher) event -> {
+            if (event instanceof AvailabilityChangeEvent<?> change) {
+                events.add(String.valueOf(change.getState()));
+            }
+        });
+    }
+
+    @AfterEach
+    public void tearDown() {
+        repository.destroy();
+    }
+
+    @Test
+    public void testAcceptsTrafficOnlyAfterTheWarmUp() {
+
+        repository.beforeCheckpoint(null);
+        repository.afterRestore(null);
+
+        List<String> expected = new ArrayList<>(List.of("REFUSING_TRAFFIC", "DescribeTableRequest"));
+        expected.addAll(Collections.nCopies(CONNECTIONS, "GetItemRequest"));
+        expected.add("ACCEPTING_TRAFFIC");
+        Assert.assertEquals(expected, events);
+
+        // The warm-up calls held their connections at the same time
+        Assert.assertEquals(0, allConnected.getCount());
+        for (GetItemRequest request : client.requests(GetItemRequest.class)) {
+            Assert.assertEquals("Customer", request.tableName());
+        }
+    }
+
+    @Test
+    public void testFailedWarmUpStillAcceptsTraffic() {
+
+        fail = true;
+        repository.beforeCheckpoint(null);
+        repository.afterRestore(null);
+
+        Assert.assertEquals(ReadinessState.ACCEPTING_TRAFFIC.name(), events.get(events.size() - 1));
+        Assert.assertEquals(CONNECTIONS, client.requests(GetItemRequest.class).size());
+
+        MeterRegistry meterRegistry = (MeterRegistry) ReflectionTestUtils.getField(repository, "meterRegistry");
+        for (String step : new String[]{"credentials", "describe-table", "connections"}) {
+            Assert.assertEquals(1, meterRegistry.timer(ConnectionWarmer.WARMUP_TIMER, "step", step).count());
+        }
+    }
+
+    @Test
+    public void testWarmUpCanBeDisabled() {
+
+        repository.beforeCheckpoint(null);
+        environment.setProperty("restore.warmup.enabled", "false");
+        repository.afterRestore(null);
+
+        Assert.assertEquals(List.of("REFUSING_TRAFFIC", "ACCEPTING_TRAFFIC"), events);
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.repository;
+
+import com.amazon.customerService.model.Customer;
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Checks that {@link CustomerCodec} reads and writes the registration dates of existing items the same way
+ * as the {@code SimpleDateFormat} it replaced, which formatted in the default time zone of the JVM.
+ */
+public class CustomerCodecTest {
+
+    private static final String PREVIOUS_PATTERN = "yyyy-MM-dd'T'HH:mm:ss.SSSXXX";
+
+    private static final String[] TIME_ZONES = {"UTC", "Europe/Berlin", "America/Los_Angeles", "Asia/Kolkata"};
+
+    private static final long[] DATES = {0L, 1L, 999L, 951_782_400_123L, 1_700_000_000_000L, 1_711_846_799_999L,
+            4_102_444_800_000L};
+
+    @Test
+    public void testReadsPreviouslyWrittenDates() throws ParseException {
+
+        for (String timeZone : TIME_ZONES) {
+            SimpleDateFormat previous = previousFormat(timeZone);
+            for (long millis : DATES) {
+                Date date = new Date(millis);
+                String stored = previous.format(date);
+                Assert.assertEquals(stored, date, CustomerCodec.parseDate(stored));
+            }
+        }
+
+        // Hand-written values: Z, offsets with minutes, negative offsets
+        Assert.assertEquals(new Date(0), CustomerCodec.parseDate("1970-01-01T00:00:00.000Z"));
+        Assert.assertEquals(new Date(0), CustomerCodec.parseDate("1970-01-01T05:30:00.000+05:30"));
+        Assert.assertEquals(new Date(0), CustomerCodec.parseDate("1969-12-31T16:00:00.000-08:00"));
+    }
+
+    @Test
+    public void testWritesDatesThePreviousFormatReads() throws ParseException {
+
+        for (long millis : DATES) {
+            Date date = new Date(millis);
+            String written = CustomerCodec.formatDate(date);
+            for (String timeZone : TIME_ZONES) {
+                Assert.assertEquals(written, date, previousFormat(timeZone).parse(written));
+            }
+            // Always UTC, as the previous format in a UTC JVM
+            Assert.assertEquals(previousFormat("UTC").format(date), written);
+        }
+        Assert.assertEquals("2023-11-14T22:13:20.000Z", CustomerCodec.formatDate(new Date(1_700_000_000_000L)));
+    }
+
+    @Test
+    public void testInvalidAndMissingDates() {
+
+        Assert.assertNull(CustomerCodec.parseDate(null));
+        Assert.assertNull(CustomerCodec.parseDate("not a date"));
+        Assert.assertNull(CustomerCodec.parseDate("2023-11-14T22:13:20Z"));
+    }
+
+    @Test
+    public void testItemRoundTrip() {
+
+        Customer customer = new Customer();
+        customer.setId("id-1");
+        customer.setName("John Doe");
+        customer.setEmail("test@test.com");
+        customer.setAccountNumber("111111");
+        customer.setRegDate(new Date(1_700_000_000_123L));
+
+        Map<String, AttributeValue> item = CustomerCodec.toItem(customer);
+        Assert.assertEquals(5, item.size());
+        Assert.assertEquals("John Doe", item.get(CustomerRepository.NAME_COLUMN).s());
+        Assert.assertEquals("2023-11-14T22:13:20.123Z", item.get(CustomerRepository.REGISTRATION_DATE_COLUMN).s());
+
+        assertSameCustomer(customer, CustomerCodec.fromItem(item));
+    }
+
+    @Test
+    public void testNullAttributesAreLeftOut() {
+
+        Customer customer = new Customer();
+        customer.setId("id-1");
+
+        Map<String, AttributeValue> item = CustomerCodec.toItem(customer);
+        Assert.assertEquals(Map.of(CustomerRepository.ID_COLUMN, AttributeValue.fromS("id-1")), item);
+
+        Customer read = CustomerCodec.fromItem(item);
+        Assert.assertEquals("id-1", read.getId());
+        Assert.assertNull(read.getName());
+        Assert.assertNull(read.getEmail());
+        Assert.assertNull(read.getAccountNumber());
+        Assert.assertNull(read.getRegDate());
+    }
+
+    @Test
+    public void testCopy() {
+
+        Customer customer = new Customer();
+        customer.setId("id-1");
+        customer.setName("John Doe");
+        customer.setRegDate(new Date(1_700_000_000_123L));
+
+        Customer copy = CustomerCodec.copy(customer);
+        assertSameCustomer(customer, copy);
+
+        // Date is mutable, the copy must not share it
+        copy.getRegDate().setTime(0);
+        Assert.assertEquals(1_700_000_000_123L, customer.getRegDate().getTime());
+
+        Assert.assertNull(CustomerCodec.copy(new Customer()).getRegDate());
+    }
+
+    private static void assertSameCustomer(Customer expected, Customer actual) {
+        Assert.assertEquals(expected.getId(), actual.getId());
+        Assert.assertEquals(expected.getName(), actual.getName());
+        Assert.assertEquals(expected.getEmail(), actual.getEmail());
+        Assert.assertEquals(expected.getAccountNumber(), actual.getAccountNumber());
+        Assert.assertEquals(expected.getRegDate(), actual.getRegDate());
+    }
+
+    private static SimpleDateFormat previousFormat(String timeZone) {
+        SimpleDateFormat format = new SimpleDateFormat(PREVIOUS_PATTERN);
+        format.setTimeZone(TimeZone.getTimeZone(timeZone));
+        return format;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.repository;
+
+import com.amazon.customerService.model.Customer;
+import org.junit.Assert;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks the Query requests of the index lookups, against a stubbed DynamoDB client that returns the
+ * results in two pages.
+ */
+public class CustomerRepositoryQueryTest {
+
+    private final StubDynamoDbClient client = new StubDynamoDbClient(request -> {
+        QueryRequest query = (QueryRequest) request;
+        if (query.exclusiveStartKey().isEmpty()) {
+            return QueryResponse.builder()
+                    .items(item("1"), item("2"))
+                    .lastEvaluatedKey(Map.of("Id", AttributeValue.fromS("2")))
+                    .build();
+        }
+        return QueryResponse.builder().items(item("3")).build();
+    });
+
+    private final CustomerRepository repository = client.repository(new MockEnvironment());
+
+    @AfterEach
+    public void tearDown() {
+        repository.destroy();
+    }
+
+    @Test
+    public void testFindByEmailReadsAllPages() {
+
+        List<Customer> customers = repository.findByEmail("john@test.com");
+        Assert.assertEquals(List.of("1", "2", "3"), customers.stream().map(Customer::getId).toList());
+
+        List<QueryRequest> requests = client.requests(QueryRequest.class);
+        Assert.assertEquals(2, requests.size());
+        for (QueryRequest request : requests) {
+            Assert.assertEquals("Customer", request.tableName());
+            Assert.assertEquals(CustomerRepository.EMAIL_INDEX, request.indexName());
+            Assert.assertEquals("#key = :value", request.keyConditionExpression());
+            Assert.assertEquals(Map.of("#key", "Email"), request.expressionAttributeNames());
+            Assert.assertEquals(Map.of(":value", AttributeValue.fromS("john@test.com")),
+                    request.expressionAttributeValues());
+        }
+        // The second page starts after the last key of the first one
+        Assert.assertEquals(Map.of("Id", AttributeValue.fromS("2")), requests.get(1).exclusiveStartKey());
+    }
+
+    @Test
+    public void testFindByAccountNumber() {
+
+        Assert.assertEquals(3, repository.findByAccountNumber("123456").size());
+
+        QueryRequest request = client.requests(QueryRequest.class).get(0);
+        Assert.assertEquals(CustomerRepository.ACCOUNT_NUMBER_INDEX, request.indexName());
+        Assert.assertEquals(Map.of("#key", "AccountNumber"), request.expressionAttributeNames());
+        Assert.assertEquals(Map.of(":value", AttributeValue.fromS("123456")), request.expressionAttributeValues());
+    }
+
+    private static Map<String, AttributeValue> item(String id) {
+        return Map.of("Id", AttributeValue.fromS(id),
+                "Name", AttributeValue.fromS("John Doe"),
+                "Email", AttributeValue.fromS("john@test.com"),
+                "AccountNumber", AttributeValue.fromS("123456"));
+    }
+}
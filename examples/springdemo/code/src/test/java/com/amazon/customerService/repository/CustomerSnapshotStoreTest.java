@@ -0,0 +1,150 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.repository;
+
+import com.amazon.customerService.model.Customer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+
+public class CustomerSnapshotStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private CustomerSnapshotStore store;
+
+    @AfterEach
+    public void tearDown() {
+        store.destroy();
+    }
+
+    @Test
+    public void testPutGetRemove() {
+
+        store = store("5m", 16);
+
+        Customer customer = customer("1", "John Doe");
+        put(customer);
+        Customer read = store.get("1");
+        Assert.assertEquals("John Doe", read.getName());
+        Assert.assertEquals(customer.getRegDate(), read.getRegDate());
+        Assert.assertNull(read.getAccountNumber());
+
+        put(customer("1", "Jane Doe"));
+        Assert.assertEquals("Jane Doe", store.get("1").getName());
+
+        store.remove("1");
+        Assert.assertNull(store.get("1"));
+        Assert.assertNull(store.get("2"));
+    }
+
+    @Test
+    public void testSkipsWhatDoesNotFit() {
+
+        store = store("5m", 1);
+
+        put(customer("1", "John Doe"));
+        put(customer("2", "John Doe"));
+        Assert.assertNull(store.get("2"));
+
+        // A version that is too long must not leave the previous one behind
+        put(customer("1", "x".repeat(100)));
+        Assert.assertNull(store.get("1"));
+    }
+
+    @Test
+    public void testSkipsReadsOlderThanRemoval() {
+
+        store = store("5m", 16);
+
+        // Read started, then the customer was written and removed before the read completed
+        long generation = store.generation();
+        store.remove("1");
+        store.put(customer("1", "Stale"), generation);
+        Assert.assertNull(store.get("1"));
+
+        store.put(customer("1", "Current"), store.generation());
+        Assert.assertEquals("Current", store.get("1").getName());
+    }
+
+    @Test
+    public void testExpires() throws InterruptedException {
+
+        store = store("50ms", 16);
+
+        put(customer("1", "John Doe"));
+        Assert.assertNotNull(store.get("1"));
+        Thread.sleep(100);
+        Assert.assertNull(store.get("1"));
+    }
+
+    @Test
+    public void testEmptyAfterRestore() {
+
+        store = store("5m", 16);
+        for (int i = 0; i < 10; i++) {
+            put(customer(String.valueOf(i), "Customer " + i));
+        }
+
+        store.beforeCheckpoint(null);
+        Assert.assertNull(store.get("1"));
+        Assert.assertFalse(Files.exists(directory.resolve("customers.dat")));
+
+        // Customers may have changed while the image was stored
+        store.afterRestore(null);
+        Assert.assertNull(store.get("1"));
+        put(customer("1", "Customer 1"));
+        Assert.assertEquals("Customer 1", store.get("1").getName());
+    }
+
+    private void put(Customer customer) {
+        store.put(customer, store.generation());
+    }
+
+    private CustomerSnapshotStore store(String ttl, int capacity) {
+        CustomerSnapshotStore snapshotStore = new CustomerSnapshotStore();
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("snapshot.enabled", "true")
+                .withProperty("snapshot.path", directory.resolve("customers.dat").toString())
+                .withProperty("snapshot.capacity", String.valueOf(capacity))
+                .withProperty("snapshot.ttl", ttl);
+        // Converts "5m" to a Duration, as in the application
+        environment.setConversionService(new ApplicationConversionService());
+        ReflectionTestUtils.setField(snapshotStore, "environment", environment);
+        ReflectionTestUtils.setField(snapshotStore, "meterRegistry", new SimpleMeterRegistry());
+        snapshotStore.init();
+        return snapshotStore;
+    }
+
+    private static Customer customer(String id, String name) {
+        Customer customer = new Customer();
+        customer.setId(id);
+        customer.setName(name);
+        customer.setEmail(name.length() < 20 ? "test@test.com" : null);
+        customer.setRegDate(new Date());
+        return customer;
+    }
+}
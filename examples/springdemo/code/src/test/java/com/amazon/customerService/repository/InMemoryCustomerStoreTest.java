@@ -0,0 +1,175 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.repository;
+
+import com.amazon.customerService.exception.CustomerNotFoundException;
+import com.amazon.customerService.exception.InvalidCursorException;
+import com.amazon.customerService.exception.PreconditionFailedException;
+import com.amazon.customerService.model.Customer;
+import com.amazon.customerService.model.CustomerPage;
+import com.amazon.customerService.model.TaggedCustomer;
+import org.junit.Assert;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.context.web.WebAppConfiguration;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Runs the application with {@code mode=memory}, so no DynamoDB is needed.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@WebAppConfiguration
+@ActiveProfiles("memory")
+@TestPropertySource(properties = {
+        "memory.latency.read=1ms",
+        "memory.latency.write=1ms"})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class InMemoryCustomerStoreTest {
+
+    @Autowired
+    CustomerStore store;
+
+    @Test
+    public void testSelectedByMode() {
+        Assert.assertTrue(store instanceof InMemoryCustomerStore);
+    }
+
+    @Test
+    public void testCrud() {
+
+        Customer customer = new Customer();
+        customer.setName("John Doe");
+        customer.setEmail("memory@test.com");
+        customer.setAccountNumber("222222");
+
+        Customer saved = store.save(customer);
+        Assert.assertNotNull(saved.getId());
+        Assert.assertNotNull(saved.getRegDate());
+
+        // Returned customers are copies
+        store.findById(saved.getId()).setName("Changed");
+        Assert.assertEquals("John Doe", store.findById(saved.getId()).getName());
+
+        Customer changes = new Customer();
+        changes.setEmail("patched@test.com");
+        Customer patched = store.patch(saved.getId(), changes);
+        Assert.assertEquals("patched@test.com", patched.getEmail());
+        Assert.assertEquals("John Doe", patched.getName());
+        Assert.assertEquals(List.of(saved), store.findByEmail("patched@test.com"));
+
+        Customer replacement = new Customer();
+        replacement.setId(saved.getId());
+        replacement.setName("Jane Doe");
+        Customer updated = store.update(replacement);
+        Assert.assertNull(updated.getEmail());
+        Assert.assertEquals(saved.getRegDate(), updated.getRegDate());
+
+        Assertions.assertThrows(CustomerNotFoundException.class,
+                () -> store.patch(UUID.randomUUID().toString(), changes));
+
+        store.deleteById(saved.getId());
+        Assert.assertNull(store.findById(saved.getId()));
+    }
+
+    @Test
+    public void testFindPage() {
+
+        Set<String> saved = new HashSet<>();
+        for (int i = 0; i < 25; i++) {
+            Customer customer = new Customer();
+            customer.setName("Page " + i);
+            saved.add(store.save(customer).getId());
+        }
+
+        List<String> paged = new ArrayList<>();
+        String cursor = null;
+        do {
+            CustomerPage page = store.findPage(cursor, 10);
+            Assert.assertTrue(page.getCustomers().size() <= 10);
+            page.getCustomers().forEach(customer -> paged.add(customer.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        Assert.assertEquals(paged.size(), new HashSet<>(paged).size());
+        Assert.assertTrue(paged.containsAll(saved));
+
+        Assertions.assertThrows(InvalidCursorException.class, () -> store.findPage("not a cursor", 10));
+
+        saved.forEach(store::deleteById);
+    }
+
+    @Test
+    public void testConditionalWrites() {
+
+        Customer customer = new Customer();
+        customer.setName("Tagged");
+        Customer saved = store.save(customer);
+        TaggedCustomer tagged = store.findTaggedById(saved.getId());
+        Assert.assertEquals(CustomerCodec.etag(saved), tagged.getETag());
+
+        Customer replacement = CustomerCodec.copy(saved);
+        replacement.setName("Tagged again");
+        Customer updated = store.update(replacement, false, List.of(tagged.getETag()));
+        Assert.assertNotEquals(tagged.getETag(), CustomerCodec.etag(updated));
+
+        // The old ETag no longer matches, neither for updates nor for deletes
+        Assertions.assertThrows(PreconditionFailedException.class,
+                () -> store.update(replacement, false, List.of(tagged.getETag())));
+        Assertions.assertThrows(PreconditionFailedException.class,
+                () -> store.deleteById(saved.getId(), List.of(tagged.getETag())));
+        Assert.assertEquals("Tagged again", store.findById(saved.getId()).getName());
+
+        store.deleteById(saved.getId(), List.of(TaggedCustomer.ANY));
+        Assert.assertNull(store.findById(saved.getId()));
+        Assertions.assertThrows(PreconditionFailedException.class,
+                () -> store.deleteById(saved.getId(), List.of(TaggedCustomer.ANY)));
+    }
+
+    @Test
+    public void testBulkWrites() {
+
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            Customer customer = new Customer();
+            customer.setName("Bulk " + i);
+            customer.setId(UUID.randomUUID().toString());
+            customers.add(customer);
+        }
+        Assert.assertTrue(store.trySaveAll(customers).isEmpty());
+
+        List<String> ids = customers.stream().map(Customer::getId).toList();
+        Assert.assertTrue(store.streamAllIds().toList().containsAll(ids));
+
+        // Duplicate ids are deleted once
+        List<String> duplicated = new ArrayList<>(ids);
+        duplicated.add(ids.get(0));
+        Map<String, String> failures = store.tryDeleteAll(duplicated);
+        Assert.assertTrue(failures.isEmpty());
+        ids.forEach(id -> Assert.assertNull(store.findById(id)));
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.repository;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Latency of lookups under a skewed load (a few hot ids get most requests) against a stand-in for DynamoDB
+ * that serves 4 calls of 2 ms at a time, with and without {@link SingleFlight}. Sample time mode reports
+ * the p50 and p99. Lives next to {@link SingleFlight}, which is package-private.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(32)
+@State(Scope.Benchmark)
+public class SingleFlightBenchmark {
+
+    @Param({"false", "true"})
+    public boolean coalesce;
+
+    private final Semaphore connections = new Semaphore(4);
+
+    private SingleFlight<String, String> flight;
+
+    @Setup
+    public void setup() {
+        flight = new SingleFlight<>(new SimpleMeterRegistry().counter("customer.coalesced"));
+    }
+
+    @Benchmark
+    public String lookup() {
+        // 1000 ids, heavily skewed towards the first ones
+        String id = String.valueOf((int) (1000 * Math.pow(ThreadLocalRandom.current().nextDouble(), 4)));
+        return coalesce ? flight.execute(id, this::backend) : backend(id);
+    }
+
+    private String backend(String id) {
+        connections.acquireUninterruptibly();
+        try {
+            Thread.sleep(2);
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+        } finally {
+            connections.release();
+        }
+        return "customer-" + id;
+    }
+}
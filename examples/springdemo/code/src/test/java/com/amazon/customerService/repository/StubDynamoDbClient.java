@@ -0,0 +1,213 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.repository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.env.Environment;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableResponse;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbRequest;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbResponse;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+import software.amazon.awssdk.services.dynamodb.paginators.QueryIterable;
+import software.amazon.awssdk.services.dynamodb.paginators.ScanIterable;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Stand-in for DynamoDB in unit tests: records every request and answers it with {@code handler}, which
+ * may also throw (e.g. a {@code ConditionalCheckFailedException}). The paginators page through the
+ * handler's responses like the SDK does. Operations the repository does not use are not supported.
+ */
+class StubDynamoDbClient implements DynamoDbClient {
+
+    private final List<DynamoDbRequest> requests = new CopyOnWriteArrayList<>();
+    private final Function<DynamoDbRequest, DynamoDbResponse> handler;
+
+    StubDynamoDbClient(Function<DynamoDbRequest, DynamoDbResponse> handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * A {@link CustomerRepository} that talks to this client, with the cache, the snapshot and the id
+     * filter configured by {@code environment} (all disabled unless set). Properties are converted like in
+     * the application, e.g. durations such as {@code 50ms}.
+     */
+    CustomerRepository repository(MockEnvironment environment) {
+        environment.setConversionService(new ApplicationConversionService());
+        environment.setProperty("table.name", environment.getProperty("table.name", "Customer"));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ExecutorService executor = Executors.newCachedThreadPool();
+
+        CustomerCache customerCache = new CustomerCache();
+        ReflectionTestUtils.setField(customerCache, "environment", environment);
+        ReflectionTestUtils.setField(customerCache, "meterRegistry", meterRegistry);
+        customerCache.init();
+
+        CustomerSnapshotStore snapshot = new CustomerSnapshotStore();
+        ReflectionTestUtils.setField(snapshot, "environment", environment);
+        ReflectionTestUtils.setField(snapshot, "meterRegistry", meterRegistry);
+        snapshot.init();
+
+        CustomerIdFilter idFilter = new CustomerIdFilter();
+        ReflectionTestUtils.setField(idFilter, "environment", environment);
+        ReflectionTestUtils.setField(idFilter, "meterRegistry", meterRegistry);
+        idFilter.init();
+
+        CustomerRepository repository = new CustomerRepository();
+        ReflectionTestUtils.setField(repository, "environment", environment);
+        ReflectionTestUtils.setField(repository, "idGenerator", new RandomUuidGenerator());
+        ReflectionTestUtils.setField(repository, "clientFactory", new ClientFactory(environment));
+        ReflectionTestUtils.setField(repository, "repositoryExecutor", executor);
+        ReflectionTestUtils.setField(repository, "scanExecutor", executor);
+        ReflectionTestUtils.setField(repository, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(repository, "customerCache", customerCache);
+        ReflectionTestUtils.setField(repository, "snapshot", snapshot);
+        ReflectionTestUtils.setField(repository, "idFilter", idFilter);
+        ReflectionTestUtils.setField(repository, "eventPublisher", (ApplicationEventPublisher) event -> {
+        });
+        repository.init();
+        return repository;
+    }
+
+    /**
+     * @return the recorded requests of the given type, in order
+     */
+    <T extends DynamoDbRequest> List<T> requests(Class<T> type) {
+        return requests.stream().filter(type::isInstance).map(type::cast).toList();
+    }
+
+    void clear() {
+        requests.clear();
+    }
+
+    @Override
+    public GetItemResponse getItem(GetItemRequest request) {
+        return handle(request);
+    }
+
+    @Override
+    public PutItemResponse putItem(PutItemRequest request) {
+        return handle(request);
+    }
+
+    @Override
+    public UpdateItemResponse updateItem(UpdateItemRequest request) {
+        return handle(request);
+    }
+
+    @Override
+    public DeleteItemResponse deleteItem(DeleteItemRequest request) {
+        return handle(request);
+    }
+
+    @Override
+    public BatchGetItemResponse batchGetItem(BatchGetItemRequest request) {
+        return handle(request);
+    }
+
+    @Override
+    public BatchWriteItemResponse batchWriteItem(BatchWriteItemRequest request) {
+        return handle(request);
+    }
+
+    @Override
+    public QueryResponse query(QueryRequest request) {
+        return handle(request);
+    }
+
+    @Override
+    public QueryIterable queryPaginator(QueryRequest request) {
+        return new QueryIterable(this, request);
+    }
+
+    @Override
+    public ScanResponse scan(ScanRequest request) {
+        return handle(request);
+    }
+
+    @Override
+    public ScanIterable scanPaginator(ScanRequest request) {
+        return new ScanIterable(this, request);
+    }
+
+    @Override
+    public DescribeTableResponse describeTable(DescribeTableRequest request) {
+        return handle(request);
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends DynamoDbResponse> T handle(DynamoDbRequest request) {
+        requests.add(request);
+        return (T) handler.apply(request);
+    }
+
+    /**
+     * Hands out the stub instead of building a client.
+     */
+    private class ClientFactory extends DynamoDbClientFactory {
+
+        ClientFactory(Environment environment) {
+            super(environment);
+        }
+
+        @Override
+        public DynamoDbClient createClient(AwsCredentialsProvider credentialsProvider) {
+            return StubDynamoDbClient.this;
+        }
+
+        @Override
+        public AwsCredentialsProvider credentialsProvider() {
+            return StaticCredentialsProvider.create(AwsBasicCredentials.create("stub", "stub"));
+        }
+    }
+}
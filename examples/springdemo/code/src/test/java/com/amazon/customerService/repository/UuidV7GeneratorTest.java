@@ -0,0 +1,100 @@
+/*
+ * Copyright 2010-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.customerService.repository;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+public class UuidV7GeneratorTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    @Test
+    public void testTimeOrdered() {
+
+        long[] clock = {NOW};
+        UuidV7Generator generator = new UuidV7Generator(() -> clock[0], UuidV7Generator::systemEntropy);
+
+        String previous = "";
+        for (int i = 0; i < 10_000; i++) {
+            // Also covers more than 4096 ids per millisecond and the clock going back
+            clock[0] = NOW + i / 5000 - (i == 9999 ? 10 : 0);
+            UUID uuid = generator.next();
+            Assert.assertEquals(7, uuid.version());
+            Assert.assertEquals(2, uuid.variant());
+            Assert.assertTrue(uuid.toString().compareTo(previous) > 0);
+            previous = uuid.toString();
+        }
+    }
+
+    /**
+     * Simulates two processes restored from one checkpoint image: both start from identical generator
+     * state, as if the state had been frozen into the image, and both are restored at the same millisecond.
+     */
+    @Test
+    public void testRestoresFromOneImageDoNotCollide() throws Exception {
+
+        UuidV7Generator first = new UuidV7Generator(() -> NOW, imageEntropy());
+        UuidV7Generator second = new UuidV7Generator(() -> NOW, imageEntropy());
+
+        // Before the restore the state is the same, and so are the ids
+        Assert.assertEquals(first.next(), second.next());
+
+        first.afterRestore(null);
+        second.afterRestore(null);
+
+        Set<UUID> firstIds = generate(first);
+        Set<UUID> secondIds = generate(second);
+        Assert.assertEquals(4 * 10_000, firstIds.size());
+        Assert.assertEquals(4 * 10_000, secondIds.size());
+
+        firstIds.retainAll(secondIds);
+        Assert.assertTrue("Collisions: " + firstIds, firstIds.isEmpty());
+    }
+
+    /**
+     * A fixed seed when the image is built, fresh entropy on restore.
+     */
+    private static Supplier<byte[]> imageEntropy() {
+        AtomicBoolean built = new AtomicBoolean();
+        return () -> built.getAndSet(true) ? UuidV7Generator.systemEntropy() : new byte[32];
+    }
+
+    private static Set<UUID> generate(UuidV7Generator generator) throws Exception {
+        List<CompletableFuture<List<UUID>>> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(CompletableFuture.supplyAsync(() -> IntStream.range(0, 10_000)
+                    .mapToObj(i -> generator.next())
+                    .toList()));
+        }
+
+        Set<UUID> ids = new HashSet<>();
+        for (CompletableFuture<List<UUID>> thread : threads) {
+            ids.addAll(thread.get());
+        }
+        return ids;
+    }
+}
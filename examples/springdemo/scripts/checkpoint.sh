@@ -4,7 +4,12 @@
 echo Starting the application...
 ( echo 128 > /proc/sys/kernel/ns_last_pid ) 2>/dev/null || while [ $(cat /proc/sys/kernel/ns_last_pid) -lt 128 ]; do :; done;
 TABLE_NAME=springdemo-staging-customer
-nohup java -Dspring.profiles.active=prod -Dtable.name=${TABLE_NAME} -Dmode=${MODE} -Damazon.dynamodb.endpoint=${AMAZON_DYNAMO_DB_ENDPOINT} -XX:CRaCEngine=warp -XX:CRaCCheckpointTo=/opt/crac-files -jar /${SRVC_JAR_FILE_NAME} &
+# VIRTUAL_THREADS=true serves requests and repository work on virtual threads, REACTIVE=true serves the
+# reactive edition (the image has to be built with MAVEN_PROFILES=prod,reactive); both are part of the checkpoint
+PROFILES=prod
+if [ "${VIRTUAL_THREADS}" = "true" ]; then PROFILES=${PROFILES},virtual; fi
+if [ "${REACTIVE}" = "true" ]; then PROFILES=${PROFILES},reactive; fi
+nohup java -Dspring.profiles.active=${PROFILES} -Dtable.name=${TABLE_NAME} -Dmode=${MODE} -Damazon.dynamodb.endpoint=${AMAZON_DYNAMO_DB_ENDPOINT} -XX:CRaCEngine=warp -XX:CRaCCheckpointTo=/opt/crac-files -jar /${SRVC_JAR_FILE_NAME} &
 
 # ensure the application started successfully
 echo Confirming the application started successfully...
@@ -29,6 +34,7 @@ do
   if ([ -f /opt/crac-files/core.img ])
   then
     echo Checkpoint captured!
+    du -sh /opt/crac-files | tee -a /opt/logs/snapshot.log
     exit 0
     break
   fi